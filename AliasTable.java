@@ -0,0 +1,86 @@
+/**
+   AliasTable
+   Picks an index at random with given relative weights, in constant time however many weights there are.
+
+   This is Vose's version of Walker's alias method.  Each index gets a column of equal height; a column holds part of
+   its own index's weight and, filling the rest, part of the weight of one other index (its alias).  A pick chooses a
+   column uniformly, then either the column's own index or its alias.  Building the table takes linear time, once.
+ */
+
+public class AliasTable {
+
+    private final double[] probability; // chance of keeping a column's own index rather than taking its alias
+    private final int[] alias;          // the other index sharing each column
+
+    /**
+       Constructor.
+       @param weights relative weights of the indices; none may be negative, and at least one must be positive
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w)) {throw new IllegalArgumentException("bad weight " + w);}
+            total += w;
+        }
+        if (n == 0 || total <= 0) {throw new IllegalArgumentException("nothing to pick from");}
+
+        probability = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n]; // weights scaled so that the average is 1
+        int[] small = new int[n];        // indices with less than a full column, as a stack
+        int[] large = new int[n];        // indices with a full column or more, as a stack
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // fill each short column with weight from a tall one
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if (scaled[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+
+        // what is left is full, give or take rounding error
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+
+    /**
+       Returns the number of indices.
+       @return number of weights the table was built from
+     */
+    public int size() {return probability.length;}
+
+    /**
+       Picks an index at random.
+       @param random random stream to draw from
+       @return index from 0 to size() - 1, each with a chance in proportion to its weight
+     */
+    public int next(GameRandom random) {
+        int column = random.nextInt(probability.length);
+        return (random.nextDouble() < probability[column] ? column : alias[column]);
+    }
+}
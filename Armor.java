@@ -6,8 +6,9 @@
 import java.io.Serializable;
  
 public class Armor extends Item implements Equippable, Serializable {
+    private static final long serialVersionUID = 1L;
 
-	private int armorClass;
+	private PossibleArmor template; // kind of Armor this is
 
     /**
        Default constructor.
@@ -25,16 +26,15 @@ public class Armor extends Item implements Equippable, Serializable {
     public static Armor createArmor(PossibleArmor pa) {
         // Generate a Armor from the indicated PossibleArmor
         Armor armor = new Armor();
-        armor.setName(pa.getName());
-        armor.setArmorClass(pa.getArmorClass());
-        armor.setSymbol(pa.getSymbol());
+        armor.template = pa;
         return armor;
     }
 
     // getters
-	public int getArmorClass() {return armorClass;}
-
-    // setters
-    public void setArmorClass(int armorClass) {this.armorClass = armorClass;}
+    public PossibleArmor getTemplate() {return template;}
+    public int getTemplateId() {return template.getId();}
+    public String getName() {return template.getName();}
+    public char getSymbol() {return template.getSymbol();}
+	public int getArmorClass() {return template.getArmorClass();}
 
 }
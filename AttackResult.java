@@ -0,0 +1,33 @@
+/**
+   AttackResult
+   The rolls made in a single attack, as filled in by Creature.attack.
+   One AttackResult can be filled in again and again, so resolving an attack need not allocate anything.
+   The rolls are kept in the same layout as the array returned by Creature.attack(Creature, GameRandom), which is also
+   the layout of each attack in the results of Creature.attackAll.
+ */
+
+public class AttackResult {
+
+    // positions of the rolls in a result array, and the number of ints each attack takes up in one
+    public static final int ACCURACY_ROLL = 0; // attacker accuracy roll
+    public static final int EVASION_ROLL  = 1; // defender evasion roll
+    public static final int DAMAGE_ROLL   = 2; // attacker damage inflicted, before armor; 0 on a miss
+    public static final int ABSORBED      = 3; // defender armor absorbed; 0 on a miss
+    public static final int STRIDE        = 4;
+
+    private final int[] rolls = new int[STRIDE];
+
+    // getters
+    public int getAccuracyRoll() {return rolls[ACCURACY_ROLL];}
+    public int getEvasionRoll() {return rolls[EVASION_ROLL];}
+    public int getDamageRoll() {return rolls[DAMAGE_ROLL];}
+    public int getAbsorbed() {return rolls[ABSORBED];}
+    public boolean isHit() {return rolls[ACCURACY_ROLL] > rolls[EVASION_ROLL];}
+    public int getDamageTaken() {return rolls[DAMAGE_ROLL] - rolls[ABSORBED];}
+
+    /**
+       Gives Creature.attack the array to fill in.
+       @return the rolls, in the layout described above
+     */
+    int[] getRolls() {return rolls;}
+}
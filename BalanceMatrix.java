@@ -0,0 +1,317 @@
+/**
+   BalanceMatrix
+   Pits every possible monster against the Hero in every loadout (each possible weapon, or none, with each possible
+   armor, or none) in a great many duels, spread across all available cores, and reports how each pairing turns out.
+   Duels are fought with the game's own combat rules (Creature.attack): the Hero strikes first, then the two trade
+   blows until one of them is dead.
+
+   For every pairing the report gives the Hero's win rate, the expected number of rounds for the Hero to kill the
+   monster, and how much damage the Hero takes per duel (mean and percentiles), as CSV.
+
+   The duels of a pairing are fought in fixed chunks, each with its own random stream seeded from the base seed, the
+   pairing, and the chunk; so a run can be repeated exactly, whatever the number of threads.
+
+   Usage: java BalanceMatrix [duels per pairing] [threads] [base seed] [output file]
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class BalanceMatrix {
+
+    private static final int DEFAULT_DUELS = 100000; // duels per pairing if not specified
+    private static final int CHUNK         = 4096;   // duels fought with one random stream
+    private static final int MAX_ROUNDS    = 1000;   // a duel neither side can win (no damage gets through) is a draw
+
+    private static final String BARE_HANDED = "(bare-handed)";
+    private static final String NAKED       = "(naked)";
+
+    public static final String CSV_HEADER = "monster,weapon,armor,duels,win rate,draw rate,rounds to kill,"
+                                          + "damage taken mean,damage taken p50,damage taken p90,damage taken p99";
+
+    /**
+       What the Hero goes into a duel with.
+     */
+    public static class Loadout {
+        private final PossibleWeapon weapon; // null for bare-handed
+        private final PossibleArmor armor;   // null for naked
+
+        public Loadout(PossibleWeapon weapon, PossibleArmor armor) {
+            this.weapon = weapon;
+            this.armor = armor;
+        }
+
+        // getters
+        public PossibleWeapon getWeapon() {return weapon;}
+        public PossibleArmor getArmor() {return armor;}
+        public String getWeaponName() {return (weapon == null ? BARE_HANDED : weapon.getName());}
+        public String getArmorName() {return (armor == null ? NAKED : armor.getName());}
+
+        /**
+           Creates a Hero equipped with this loadout.
+           @return the Hero, at full health
+         */
+        public Hero createHero() {
+            Hero hero = new Hero("Balance Hero");
+            if (weapon != null) {hero.setWeapon(Weapon.createWeapon(weapon));}
+            if (armor != null) {hero.setArmor(Armor.createArmor(armor));}
+            hero.setDamage();
+            hero.setArmorClass();
+            return hero;
+        }
+    }
+
+    /**
+       Outcome of many duels between one monster and one loadout.  Results of separate batches of duels can be merged.
+     */
+    public static class Result {
+        private long duels;
+        private long wins;          // duels the Hero survived and the monster didn't
+        private long draws;         // duels nobody won within MAX_ROUNDS
+        private long roundsToKill;  // total rounds over the duels the Hero won
+        private long damageTaken;   // total damage taken by the Hero
+        private final long[] damageCounts; // number of duels in which the Hero took each amount of damage
+
+        /**
+           Constructor for an empty Result.
+           @param maxDamage most damage the Hero can take in a duel (its maximum health)
+         */
+        public Result(int maxDamage) {
+            damageCounts = new long[maxDamage + 1];
+        }
+
+        // getters
+        public long getDuels() {return duels;}
+        public double getWinRate() {return (duels == 0 ? 0 : (double) wins / duels);}
+        public double getDrawRate() {return (duels == 0 ? 0 : (double) draws / duels);}
+        public double getRoundsToKill() {return (wins == 0 ? Double.NaN : (double) roundsToKill / wins);}
+        public double getMeanDamageTaken() {return (duels == 0 ? 0 : (double) damageTaken / duels);}
+
+        /**
+           Returns a percentile of the damage the Hero took per duel.
+           @param fraction which percentile, from 0 to 1 (0.5 for the median)
+           @return least amount of damage that at least that fraction of duels did not exceed
+         */
+        public int getDamageTaken(double fraction) {
+            long wanted = (long) Math.ceil(fraction * duels);
+            long seen = 0;
+            for (int damage = 0; damage < damageCounts.length; damage++) {
+                seen += damageCounts[damage];
+                if (seen >= wanted && seen > 0) {return damage;}
+            }
+            return 0;
+        }
+
+        /**
+           Records one duel.
+           @param rounds rounds fought
+           @param damage damage taken by the Hero
+           @param heroWon true if the monster died and the Hero didn't
+           @param draw true if nobody died
+         */
+        private void add(int rounds, int damage, boolean heroWon, boolean draw) {
+            duels++;
+            if (heroWon) {
+                wins++;
+                roundsToKill += rounds;
+            } else if (draw) {
+                draws++;
+            }
+            damageTaken += damage;
+            damageCounts[damage]++;
+        }
+
+        /**
+           Adds the duels of another Result into this one.
+           @param other Result for the same pairing
+           @return this Result
+         */
+        private Result merge(Result other) {
+            duels += other.duels;
+            wins += other.wins;
+            draws += other.draws;
+            roundsToKill += other.roundsToKill;
+            damageTaken += other.damageTaken;
+            for (int i = 0; i < damageCounts.length; i++) {damageCounts[i] += other.damageCounts[i];}
+            return this;
+        }
+    }
+
+    /**
+       Fights the duels of one pairing, splitting them between worker threads a chunk at a time.
+     */
+    private static class DuelTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final PossibleMonster monster;
+        private final Loadout loadout;
+        private final long seed;   // seed of the pairing; each chunk's stream is derived from it
+        private final int duels;   // duels in the whole pairing
+        private final int first;   // first chunk to fight
+        private final int last;    // one past the last chunk to fight
+
+        DuelTask(PossibleMonster monster, Loadout loadout, long seed, int duels, int first, int last) {
+            this.monster = monster;
+            this.loadout = loadout;
+            this.seed = seed;
+            this.duels = duels;
+            this.first = first;
+            this.last = last;
+        }
+
+        protected Result compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                DuelTask left = new DuelTask(monster, loadout, seed, duels, first, middle);
+                left.fork();
+                Result right = new DuelTask(monster, loadout, seed, duels, middle, last).compute();
+                return left.join().merge(right);
+            }
+
+            Hero hero = loadout.createHero();
+            Monster foe = Monster.createMonster(monster);
+            AttackResult attack = new AttackResult(); // every blow of every duel fills in the same result
+            GameRandom random = new GameRandom(GameRandom.mix(seed + first));
+            Result result = new Result(hero.getMaxHealth());
+            int end = Math.min(duels, (first + 1) * CHUNK);
+            for (int i = first * CHUNK; i < end; i++) {
+                hero.setHealth(hero.getMaxHealth());
+                foe.setHealth(foe.getMaxHealth());
+                int rounds = 0;
+                while (rounds < MAX_ROUNDS) {
+                    rounds++;
+                    hero.attack(foe, random, attack);
+                    if (foe.isDead()) {break;}
+                    foe.attack(hero, random, attack);
+                    if (hero.isDead()) {break;}
+                }
+                result.add(rounds, hero.getMaxHealth() - hero.getHealth(), foe.isDead(),
+                           !foe.isDead() && !hero.isDead());
+            }
+            return result;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /**
+       Constructor.
+       @param threads Number of worker threads
+     */
+    public BalanceMatrix(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+       Lists every loadout: each weapon (and bare hands) with each armor (and none).
+       @param catalog possible weapons and armors
+       @return the loadouts, bare-handed and naked first
+     */
+    public static List<Loadout> loadouts(Catalog catalog) {
+        List<PossibleWeapon> weapons = new ArrayList<>();
+        weapons.add(null);
+        weapons.addAll(catalog.getWeapons());
+        List<PossibleArmor> armors = new ArrayList<>();
+        armors.add(null);
+        armors.addAll(catalog.getArmors());
+        List<Loadout> loadouts = new ArrayList<>();
+        for (PossibleWeapon weapon : weapons) {
+            for (PossibleArmor armor : armors) {
+                loadouts.add(new Loadout(weapon, armor));
+            }
+        }
+        return loadouts;
+    }
+
+    /**
+       Fights the duels of one pairing.
+       @param monster possible monster the Hero fights
+       @param loadout what the Hero fights with
+       @param duels number of duels
+       @param seed seed of the pairing
+       @return how the duels turned out
+     */
+    public Result duel(PossibleMonster monster, Loadout loadout, int duels, long seed) {
+        int chunks = Math.max(1, (duels + CHUNK - 1) / CHUNK);
+        return pool.invoke(new DuelTask(monster, loadout, seed, duels, 0, chunks));
+    }
+
+    /**
+       Fights every monster against every loadout and writes the results as CSV, one line per pairing.
+       All the pairings are fought at once, so the workers stay busy even when there are few of them.
+       @param catalog possible monsters, weapons, and armors
+       @param duels number of duels per pairing
+       @param baseSeed seed the pairings' seeds are derived from
+       @param out where to write the CSV
+       @throws IOException if the CSV cannot be written
+     */
+    public void run(Catalog catalog, int duels, long baseSeed, Writer out) throws IOException {
+        List<Loadout> loadouts = loadouts(catalog);
+        List<DuelTask> tasks = new ArrayList<>();
+        int chunks = Math.max(1, (duels + CHUNK - 1) / CHUNK);
+        for (PossibleMonster monster : catalog.getMonsters()) {
+            for (Loadout loadout : loadouts) {
+                long seed = GameRandom.mix(baseSeed + tasks.size()); // seed of the pairing
+                DuelTask task = new DuelTask(monster, loadout, seed, duels, 0, chunks);
+                tasks.add(task);
+                pool.execute(task);
+            }
+        }
+
+        PrintWriter csv = new PrintWriter(out);
+        csv.println(CSV_HEADER);
+        for (DuelTask task : tasks) {
+            Result r = task.join();
+            csv.println(csvField(task.monster.getName()) + "," + csvField(task.loadout.getWeaponName()) + ","
+                      + csvField(task.loadout.getArmorName()) + "," + r.getDuels() + ","
+                      + String.format("%.4f,%.4f,%.2f,%.2f,%d,%d,%d", r.getWinRate(), r.getDrawRate(),
+                                      r.getRoundsToKill(), r.getMeanDamageTaken(), r.getDamageTaken(0.5),
+                                      r.getDamageTaken(0.9), r.getDamageTaken(0.99)));
+        }
+        csv.flush();
+    }
+
+    /**
+       Quotes a CSV field if it needs it.
+       @param s text of the field
+       @return the field as it goes in the CSV
+     */
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {return s;}
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+       Stops the worker threads.
+     */
+    public void shutdown() {pool.shutdown();}
+
+    public static void main(String[] args) throws Exception {
+        int duels   = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DUELS);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+        long seed   = (args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime());
+
+        Catalog catalog = HeadlessSimulation.readLists();
+
+        BalanceMatrix matrix = new BalanceMatrix(threads);
+        Writer out = (args.length > 3 ? new FileWriter(args[3]) : new PrintWriter(System.out));
+        long start = System.nanoTime();
+        try {
+            matrix.run(catalog, duels, seed, out);
+        } finally {
+            matrix.shutdown();
+            out.flush();
+            if (args.length > 3) {out.close();}
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long pairings = (long) catalog.getMonsters().size() * loadouts(catalog).size();
+        System.err.println("Fought " + (pairings * duels) + " duels (" + pairings + " pairings) on " + threads
+                         + " threads in " + String.format("%.2f", seconds) + " s, base seed " + seed);
+    }
+}
@@ -0,0 +1,56 @@
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for BalanceMatrix.
+ */
+public class BalanceMatrixTest
+{
+    private static final Catalog CATALOG = new Catalog(
+        Arrays.asList(new PossibleMonster("giant rat", 20, 4, 0, 20, 'r'),
+                      new PossibleMonster("kobold", 40, 8, 1, 60, 'k')),
+        Arrays.asList(new PossibleWeapon("club", -5, 15, ')')),
+        Arrays.asList(new PossibleArmor("robe", 1, '[')));
+
+    @Test
+    public void testSameResultsOnAnyNumberOfThreads() throws Exception
+    {
+        String[] csv = new String[2];
+        for (int i = 0; i < 2; i++) {
+            BalanceMatrix matrix = new BalanceMatrix(1 + 3 * i);
+            StringWriter out = new StringWriter();
+            matrix.run(CATALOG, 10000, 151, out);
+            matrix.shutdown();
+            csv[i] = out.toString();
+        }
+        assertEquals(csv[0], csv[1]);
+        String[] lines = csv[0].split("\n");
+        assertEquals(BalanceMatrix.CSV_HEADER, lines[0].trim());
+        assertEquals(1 + 2 * 4, lines.length); // two monsters, each against 2 weapons (with bare hands) x 2 armors
+        assertTrue(lines[1].startsWith("giant rat,(bare-handed),(naked),10000,"));
+    }
+
+    @Test
+    public void testOutcomes() throws Exception
+    {
+        BalanceMatrix matrix = new BalanceMatrix(2);
+        BalanceMatrix.Loadout loadout = BalanceMatrix.loadouts(CATALOG).get(0);
+
+        // nothing the Hero can't beat: every duel won, and the Hero never takes more damage than it has health
+        BalanceMatrix.Result rat = matrix.duel(CATALOG.getMonsters().get(0), loadout, 5000, 1);
+        assertEquals(5000, rat.getDuels());
+        assertEquals(1.0, rat.getWinRate(), 0);
+        assertTrue(rat.getRoundsToKill() >= 1);
+        assertTrue(rat.getDamageTaken(0.5) <= rat.getDamageTaken(0.9));
+
+        // a monster the Hero can't hurt, and that can't hurt the Hero back, is always a draw
+        PossibleMonster wall = new PossibleMonster("living wall", 0, 1, 1000000, 1000000, 'W');
+        BalanceMatrix.Result draw = matrix.duel(wall, loadout, 100, 1);
+        assertEquals(0.0, draw.getWinRate(), 0);
+        assertEquals(1.0, draw.getDrawRate(), 0);
+        assertEquals(0, draw.getDamageTaken(0.99));
+        matrix.shutdown();
+    }
+}
@@ -0,0 +1,32 @@
+/**
+   Catalog
+   Everything the dungeon can be stocked with: the possible monsters, weapons, and armors, as read from the monster
+   and item lists.  Immutable once made.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Catalog {
+    private final List<PossibleMonster> monsters;
+    private final List<PossibleWeapon> weapons;
+    private final List<PossibleArmor> armors;
+
+    /**
+       Constructor
+       @param monsters possible monsters
+       @param weapons possible weapons
+       @param armors possible armors
+     */
+    public Catalog(List<PossibleMonster> monsters, List<PossibleWeapon> weapons, List<PossibleArmor> armors) {
+        this.monsters = Collections.unmodifiableList(new ArrayList<>(monsters));
+        this.weapons = Collections.unmodifiableList(new ArrayList<>(weapons));
+        this.armors = Collections.unmodifiableList(new ArrayList<>(armors));
+    }
+
+    // getters
+    public List<PossibleMonster> getMonsters() {return monsters;}
+    public List<PossibleWeapon> getWeapons() {return weapons;}
+    public List<PossibleArmor> getArmors() {return armors;}
+}
@@ -0,0 +1,29 @@
+/**
+   CatalogException
+   A line of a monster or item list that cannot be read, with where it is, so that it can be found and fixed.
+ */
+
+import java.io.IOException;
+
+public class CatalogException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String source; // name of the list
+    private final int line;      // line number in the list, counting from 1
+
+    /**
+       Constructor
+       @param source name of the list, such as its file name
+       @param line line number, counting from 1
+       @param problem what is wrong with the line
+     */
+    public CatalogException(String source, int line, String problem) {
+        super(source + ", line " + line + ": " + problem);
+        this.source = source;
+        this.line = line;
+    }
+
+    // getters
+    public String getSource() {return source;}
+    public int getLine() {return line;}
+}
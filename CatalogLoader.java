@@ -0,0 +1,441 @@
+/**
+   CatalogLoader
+   Reads the monster and item lists into a Catalog.
+
+   Each line is read once, field by field, without splitting it up first; numbers are read straight from the line.
+   Any line that is not right is reported with its line number, rather than bringing the game down with some
+   unrelated-looking exception.  Names that repeat are kept only once.  See the lists themselves for their syntax.
+
+   Reading a long list still takes a while, so load() also keeps a copy of the Catalog in a cache file, in the compact
+   binary format of SaveWriter.  As long as the lists have the same size and modification time as when the cache was
+   written, later loads read the cache instead.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class CatalogLoader {
+
+    private static final String CACHE_TAG = "catalog"; // what a cache file starts with
+    private static final int CACHE_VERSION = 1;       // layout of the cache, after the tag
+
+    private final HashMap<String, String> names = new HashMap<>(); // names seen so far, to keep one copy of each
+    private final List<PossibleMonster> monsters = new ArrayList<>();
+    private final List<PossibleWeapon> weapons = new ArrayList<>();
+    private final List<PossibleArmor> armors = new ArrayList<>();
+
+    // the line being read
+    private String source; // name of the list
+    private int number;    // line number
+    private String line;
+    private int position;  // where the next field starts; past the end of the line if there are no more fields
+
+    /**
+       Loads the Catalog, from the cache if it is up to date, or else from the lists (writing a new cache).
+       Failing to write the cache is not an error; the lists are just read again next time.
+       @param monsterList file holding the monster list
+       @param itemList file holding the item list
+       @param cache cache file, or null for none
+       @return the Catalog
+       @throws IOException if a list cannot be read
+       @throws CatalogException if a line of a list is not right
+     */
+    public static Catalog load(Path monsterList, Path itemList, Path cache) throws IOException {
+        long[] stamp = {Files.size(monsterList), Files.getLastModifiedTime(monsterList).toMillis(),
+                        Files.size(itemList), Files.getLastModifiedTime(itemList).toMillis()};
+        if (cache != null) {
+            try {
+                Catalog catalog = readCache(cache, stamp);
+                if (catalog != null) {return catalog;}
+            } catch (NoSuchFileException ex) { // nothing cached yet
+            } catch (IOException ex) {
+                System.err.println("WARNING: ignoring damaged catalog cache (" + ex + ")");
+            }
+        }
+
+        CatalogLoader loader = new CatalogLoader();
+        BufferedReader in = Files.newBufferedReader(monsterList, Charset.defaultCharset());
+        try {
+            loader.readMonsters(in, monsterList.getFileName().toString());
+        } finally {
+            in.close();
+        }
+        in = Files.newBufferedReader(itemList, Charset.defaultCharset());
+        try {
+            loader.readItems(in, itemList.getFileName().toString());
+        } finally {
+            in.close();
+        }
+        Catalog catalog = loader.getCatalog();
+
+        if (cache != null) {
+            try {
+                writeCache(catalog, cache, stamp);
+            } catch (IOException ex) {
+                System.err.println("WARNING: cannot write catalog cache (" + ex + ")");
+            }
+        }
+        return catalog;
+    }
+
+    /**
+       Returns what has been read so far.
+       @return the Catalog
+     */
+    public Catalog getCatalog() {return new Catalog(monsters, weapons, armors);}
+
+    /**
+       Reads a monster list.
+       @param in where to read it from
+       @param source name of the list, for reporting errors
+       @throws IOException if the list cannot be read
+       @throws CatalogException if a line of the list is not right
+     */
+    public void readMonsters(BufferedReader in, String source) throws IOException {
+        start(source);
+        String s;
+        while ((s = in.readLine()) != null) {monsterLine(s);}
+    }
+
+    /**
+       Reads a monster list that has already been split into lines.
+       @param lines lines of the list
+       @param source name of the list, for reporting errors
+       @throws CatalogException if a line of the list is not right
+     */
+    public void readMonsters(List<String> lines, String source) throws CatalogException {
+        start(source);
+        for (String s : lines) {monsterLine(s);}
+    }
+
+    /**
+       Reads an item list.
+       @param in where to read it from
+       @param source name of the list, for reporting errors
+       @throws IOException if the list cannot be read
+       @throws CatalogException if a line of the list is not right
+     */
+    public void readItems(BufferedReader in, String source) throws IOException {
+        start(source);
+        String s;
+        while ((s = in.readLine()) != null) {itemLine(s);}
+    }
+
+    /**
+       Reads an item list that has already been split into lines.
+       @param lines lines of the list
+       @param source name of the list, for reporting errors
+       @throws CatalogException if a line of the list is not right
+     */
+    public void readItems(List<String> lines, String source) throws CatalogException {
+        start(source);
+        for (String s : lines) {itemLine(s);}
+    }
+
+    /**
+       Gets ready to read a list.
+       @param source name of the list
+     */
+    private void start(String source) {
+        this.source = source;
+        number = 0;
+    }
+
+    /**
+       Reads one line of a monster list.
+       Syntax: [monster name],accuracy,damage,armor class,hit points,symbol[,weight[,min depth[,max depth]]]
+       @param s the line
+       @throws CatalogException if the line is not right
+     */
+    private void monsterLine(String s) throws CatalogException {
+        if (!begin(s)) {return;}
+        String name = name();
+        int accuracy = number("accuracy");
+        int damage = number("damage");
+        int armorClass = number("armor class");
+        int health = number("hit points");
+        if (health <= 0) {throw error("hit points must be positive");}
+        char symbol = symbol();
+        int weight = optional("weight", Spawnable.DEFAULT_WEIGHT);
+        int minDepth = optional("min depth", 1);
+        int maxDepth = optional("max depth", Spawnable.NO_MAX_DEPTH);
+        end(weight, minDepth, maxDepth);
+        monsters.add(new PossibleMonster(name, accuracy, damage, armorClass, health, symbol,
+                                         weight, minDepth, maxDepth));
+    }
+
+    /**
+       Reads one line of an item list.
+       Syntax: weapon,[weapon name],accuracy rating,damage rating,symbol[,weight[,min depth[,max depth]]]
+           or: armor,[armor name],armor class rating,symbol[,weight[,min depth[,max depth]]]
+       @param s the line
+       @throws CatalogException if the line is not right
+     */
+    private void itemLine(String s) throws CatalogException {
+        if (!begin(s)) {return;}
+        int kindEnd = fieldEnd();
+        String kind = line.substring(position, kindEnd);
+        position = kindEnd + 1;
+        switch (kind) {
+            case "weapon": {
+                String name = name();
+                int accuracy = number("accuracy rating");
+                int damage = number("damage rating");
+                char symbol = symbol();
+                int weight = optional("weight", Spawnable.DEFAULT_WEIGHT);
+                int minDepth = optional("min depth", 1);
+                int maxDepth = optional("max depth", Spawnable.NO_MAX_DEPTH);
+                end(weight, minDepth, maxDepth);
+                weapons.add(new PossibleWeapon(name, accuracy, damage, symbol, weight, minDepth, maxDepth));
+                break;
+            }
+            case "armor": {
+                String name = name();
+                int armorClass = number("armor class rating");
+                char symbol = symbol();
+                int weight = optional("weight", Spawnable.DEFAULT_WEIGHT);
+                int minDepth = optional("min depth", 1);
+                int maxDepth = optional("max depth", Spawnable.NO_MAX_DEPTH);
+                end(weight, minDepth, maxDepth);
+                armors.add(new PossibleArmor(name, armorClass, symbol, weight, minDepth, maxDepth));
+                break;
+            }
+            default:
+                throw error("unknown kind of item \"" + kind + "\" (expected weapon or armor)");
+        }
+    }
+
+    /**
+       Starts on a new line.
+       @param s the line
+       @return false if the line is to be skipped: blank, or a comment (beginning with '#')
+     */
+    private boolean begin(String s) {
+        number++;
+        line = s;
+        position = 0;
+        return !(s.trim().isEmpty() || s.charAt(0) == '#');
+    }
+
+    /**
+       Finishes a line, checking that nothing is left over and that the spawning columns make sense.
+       @param weight weight read from the line
+       @param minDepth min depth read from the line
+       @param maxDepth max depth read from the line
+       @throws CatalogException if something is wrong
+     */
+    private void end(int weight, int minDepth, int maxDepth) throws CatalogException {
+        if (position <= line.length()) {throw error("too many fields");}
+        if (weight < 0) {throw error("weight cannot be negative");}
+        if (minDepth < 1) {throw error("min depth must be at least 1");}
+        if (maxDepth < minDepth) {throw error("max depth is less than min depth");}
+    }
+
+    /**
+       Finds where the current field ends.
+       @return index of the comma after the field, or the length of the line if it is the last field
+     */
+    private int fieldEnd() {
+        int comma = line.indexOf(',', position);
+        return (comma < 0 ? line.length() : comma);
+    }
+
+    /**
+       Reads a name, keeping only one copy of names that repeat.
+       @return the name
+       @throws CatalogException if there is none
+     */
+    private String name() throws CatalogException {
+        if (position > line.length()) {throw error("missing name");}
+        int end = fieldEnd();
+        if (end == position) {throw error("missing name");}
+        String name = line.substring(position, end);
+        position = end + 1;
+        String known = names.get(name);
+        if (known != null) {return known;}
+        names.put(name, name);
+        return name;
+    }
+
+    /**
+       Reads a symbol: a single character.
+       @return the symbol
+       @throws CatalogException if the field is not a single character
+     */
+    private char symbol() throws CatalogException {
+        if (position > line.length()) {throw error("missing symbol");}
+        int end = fieldEnd();
+        if (end - position != 1) {throw error("symbol must be a single character");}
+        char symbol = line.charAt(position);
+        position = end + 1;
+        return symbol;
+    }
+
+    /**
+       Reads a whole number, which may have spaces around it.
+       @param what what the number is, for reporting errors
+       @return the number
+       @throws CatalogException if there is no field, or it is not a whole number
+     */
+    private int number(String what) throws CatalogException {
+        if (position > line.length()) {throw error("missing " + what);}
+        int end = fieldEnd();
+        int i = position;
+        while (i < end && line.charAt(i) == ' ') {i++;}
+        boolean negative = (i < end && line.charAt(i) == '-');
+        if (negative) {i++;}
+        int first = i;
+        long value = 0;
+        while (i < end && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            value = value * 10 + (line.charAt(i++) - '0');
+            if (value > Integer.MAX_VALUE) {throw error(what + " is too large");}
+        }
+        int digitsEnd = i;
+        while (i < end && line.charAt(i) == ' ') {i++;}
+        if (digitsEnd == first || i != end) {
+            throw error(what + " must be a whole number, not \"" + line.substring(position, end) + "\"");
+        }
+        position = end + 1;
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+       Reads a whole number that may be left off (at the end of a line) or left empty.
+       @param what what the number is, for reporting errors
+       @param missing value if it is left off
+       @return the number
+       @throws CatalogException if it is there, but not a whole number
+     */
+    private int optional(String what, int missing) throws CatalogException {
+        if (position > line.length()) {return missing;}
+        if (fieldEnd() == position) {
+            position++;
+            return missing;
+        }
+        return number(what);
+    }
+
+    /**
+       Makes an error for the current line.
+       @param problem what is wrong with it
+       @return the error, to be thrown
+     */
+    private CatalogException error(String problem) {return new CatalogException(source, number, problem);}
+
+    /**
+       Reads the Catalog from a cache file, if the cache is up to date.
+       @param cache cache file
+       @param stamp sizes and modification times of the lists
+       @return the Catalog, or null if the cache is out of date
+       @throws IOException if the cache cannot be read, or is damaged
+     */
+    private static Catalog readCache(Path cache, long[] stamp) throws IOException {
+        SaveReader in = new SaveReader(Files.newInputStream(cache));
+        try {
+            if (!CACHE_TAG.equals(in.readString()) || in.readVarInt() != CACHE_VERSION) {return null;}
+            for (long s : stamp) {
+                if (in.readLong() != s) {return null;}
+            }
+
+            List<PossibleMonster> monsters = new ArrayList<>();
+            for (int n = in.readVarInt(); n > 0; n--) {
+                String name = in.readName();
+                char symbol = in.readChar();
+                int accuracy = in.readSignedVarInt();
+                int damage = in.readSignedVarInt();
+                int armorClass = in.readSignedVarInt();
+                int health = in.readSignedVarInt();
+                monsters.add(new PossibleMonster(name, accuracy, damage, armorClass, health, symbol,
+                                                 in.readVarInt(), in.readVarInt(), in.readInt()));
+            }
+            List<PossibleWeapon> weapons = new ArrayList<>();
+            for (int n = in.readVarInt(); n > 0; n--) {
+                String name = in.readName();
+                char symbol = in.readChar();
+                int accuracy = in.readSignedVarInt();
+                int damage = in.readSignedVarInt();
+                weapons.add(new PossibleWeapon(name, accuracy, damage, symbol,
+                                               in.readVarInt(), in.readVarInt(), in.readInt()));
+            }
+            List<PossibleArmor> armors = new ArrayList<>();
+            for (int n = in.readVarInt(); n > 0; n--) {
+                String name = in.readName();
+                char symbol = in.readChar();
+                int armorClass = in.readSignedVarInt();
+                armors.add(new PossibleArmor(name, armorClass, symbol, in.readVarInt(), in.readVarInt(), in.readInt()));
+            }
+            in.finish();
+            return new Catalog(monsters, weapons, armors);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+       Writes the Catalog to a cache file.  The file is written under another name first, then renamed, so that a
+         game starting up at the same time never reads half a cache.
+       @param catalog the Catalog
+       @param cache cache file
+       @param stamp sizes and modification times of the lists the Catalog was read from
+       @throws IOException if the cache cannot be written
+     */
+    private static void writeCache(Catalog catalog, Path cache, long[] stamp) throws IOException {
+        Path partial = cache.resolveSibling(cache.getFileName() + ".tmp");
+        SaveWriter out = new SaveWriter(Files.newOutputStream(partial), false);
+        try {
+            out.writeString(CACHE_TAG);
+            out.writeVarInt(CACHE_VERSION);
+            for (long s : stamp) {out.writeLong(s);}
+
+            out.writeVarInt(catalog.getMonsters().size());
+            for (PossibleMonster pm : catalog.getMonsters()) {
+                out.writeName(pm.getName());
+                out.writeChar(pm.getSymbol());
+                out.writeSignedVarInt(pm.getAccuracy());
+                out.writeSignedVarInt(pm.getDamage());
+                out.writeSignedVarInt(pm.getArmorClass());
+                out.writeSignedVarInt(pm.getHealth());
+                writeSpawning(pm, out);
+            }
+            out.writeVarInt(catalog.getWeapons().size());
+            for (PossibleWeapon pw : catalog.getWeapons()) {
+                out.writeName(pw.getName());
+                out.writeChar(pw.getSymbol());
+                out.writeSignedVarInt(pw.getAccuracy());
+                out.writeSignedVarInt(pw.getDamage());
+                writeSpawning(pw, out);
+            }
+            out.writeVarInt(catalog.getArmors().size());
+            for (PossibleArmor pa : catalog.getArmors()) {
+                out.writeName(pa.getName());
+                out.writeChar(pa.getSymbol());
+                out.writeSignedVarInt(pa.getArmorClass());
+                writeSpawning(pa, out);
+            }
+            out.finish();
+        } finally {
+            out.close();
+        }
+        Files.move(partial, cache, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+       Writes where and how often an entry turns up.
+       @param entry the entry
+       @param out where to write it
+       @throws IOException if it cannot be written
+     */
+    private static void writeSpawning(Spawnable entry, SaveWriter out) throws IOException {
+        out.writeVarInt(entry.getWeight());
+        out.writeVarInt(entry.getMinDepth());
+        out.writeInt(entry.getMaxDepth()); // usually NO_MAX_DEPTH, which would take five bytes as a varint
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CatalogLoader: reading the lists, reporting bad lines, and keeping the cache up to date.
+ */
+public class CatalogLoaderTest
+{
+    private static CatalogException monsterError(String... lines)
+    {
+        try {
+            new CatalogLoader().readMonsters(Arrays.asList(lines), "monsters");
+        } catch (CatalogException ex) {
+            return ex;
+        }
+        fail("no error reported");
+        return null;
+    }
+
+    @Test
+    public void testReadsLists() throws Exception
+    {
+        CatalogLoader loader = new CatalogLoader();
+        loader.readMonsters(Arrays.asList("# comment", "", "giant rat,20,4,0,20,r", "kobold, 40 ,8,1,60,k,5,2,",
+                                          "giant rat,25,4,0,20,r,1,3,4"), "monsters");
+        loader.readItems(Arrays.asList("weapon,club,-5,15,)", "armor,robe,1,[,,2"), "items");
+        Catalog catalog = loader.getCatalog();
+
+        assertEquals(3, catalog.getMonsters().size());
+        PossibleMonster kobold = catalog.getMonsters().get(1);
+        assertEquals(40, kobold.getAccuracy());
+        assertEquals(5, kobold.getWeight());
+        assertEquals(2, kobold.getMinDepth());
+        assertEquals(Spawnable.NO_MAX_DEPTH, kobold.getMaxDepth());
+        assertSame(catalog.getMonsters().get(0).getName(), catalog.getMonsters().get(2).getName());
+
+        assertEquals(-5, catalog.getWeapons().get(0).getAccuracy());
+        assertEquals(Spawnable.DEFAULT_WEIGHT, catalog.getArmors().get(0).getWeight());
+        assertEquals(2, catalog.getArmors().get(0).getMinDepth());
+    }
+
+    @Test
+    public void testReportsBadLines()
+    {
+        CatalogException ex = monsterError("# comment", "giant rat,20,4,0,20,r", "kobold,40,eight,1,60,k");
+        assertEquals(3, ex.getLine());
+        assertTrue(ex.getMessage(), ex.getMessage().contains("damage"));
+
+        assertEquals(1, monsterError("kobold,40,8,1,60").getLine());           // no symbol
+        assertEquals(1, monsterError("kobold,40,8,1,60,kk").getLine());        // symbol too long
+        assertEquals(1, monsterError("kobold,40,8,1,60,k,1,1,1,1").getLine()); // too many fields
+        assertEquals(1, monsterError("kobold,40,8,1,60,k,1,3,2").getLine());   // max depth above min depth
+        assertEquals(1, monsterError("kobold,40,8,1,0,k").getLine());          // no hit points
+
+        try {
+            new CatalogLoader().readItems(Arrays.asList("weapon,club,-5,15,)", "potion,water,["), "items");
+            fail("no error reported");
+        } catch (CatalogException e) {
+            assertEquals(2, e.getLine());
+            assertEquals("items", e.getSource());
+        }
+    }
+
+    @Test
+    public void testCacheIsUsedUntilListsChange() throws Exception
+    {
+        Path dir = Files.createTempDirectory("catalog-test");
+        Path monsters = dir.resolve("monsters.txt");
+        Path items = dir.resolve("items.txt");
+        Path cache = dir.resolve("catalog.cache");
+        Charset cs = Charset.defaultCharset();
+        Files.write(monsters, Arrays.asList("giant rat,20,4,0,20,r,12,1,2"), cs);
+        Files.write(items, Arrays.asList("weapon,club,-5,15,)", "armor,robe,1,["), cs);
+
+        Catalog first = CatalogLoader.load(monsters, items, cache);
+        assertTrue(Files.exists(cache));
+        Catalog cached = CatalogLoader.load(monsters, items, cache);
+        assertEquals(1, cached.getMonsters().size());
+        PossibleMonster rat = cached.getMonsters().get(0);
+        assertEquals("giant rat", rat.getName());
+        assertEquals(12, rat.getWeight());
+        assertEquals(2, rat.getMaxDepth());
+        assertEquals(first.getArmors().get(0).getMaxDepth(), cached.getArmors().get(0).getMaxDepth());
+
+        Files.write(monsters, Arrays.asList("giant rat,20,4,0,20,r,12,1,2", "kobold,40,8,1,60,k"), cs);
+        assertEquals(2, CatalogLoader.load(monsters, items, cache).getMonsters().size());
+
+        Files.write(cache, new byte[] {1, 2, 3}); // a damaged cache is ignored (and replaced)
+        assertEquals(2, CatalogLoader.load(monsters, items, cache).getMonsters().size());
+        assertEquals(2, CatalogLoader.load(monsters, items, cache).getMonsters().size());
+
+        for (Path p : new Path[] {monsters, items, cache}) {Files.delete(p);}
+        Files.delete(dir);
+    }
+}
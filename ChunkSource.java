@@ -0,0 +1,20 @@
+/**
+   ChunkSource
+   Generates the cells of a chunked LevelGrid, one chunk at a time, the first time each chunk is used.
+   A chunk may be generated again after it has been let go of, so the same chunk must always come out the same.
+ */
+
+import java.io.Serializable;
+
+public interface ChunkSource extends Serializable {
+
+    /**
+       Generates a chunk: which of its cells are floor.  Stairs are not generated; they are put in afterwards, with
+         LevelGrid.setFeature.
+       @param chunkRow row of the chunk, counted in chunks
+       @param chunkColumn column of the chunk, counted in chunks
+       @param cells cells of the chunk, row by row (LevelGrid.CHUNK_SIZE of each), all walls to begin with; a cell may
+                    only be set to LevelGrid.FEATURE_NONE (anything else is taken as a wall)
+     */
+    void generate(int chunkRow, int chunkColumn, byte[] cells);
+}
@@ -0,0 +1,263 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for chunked Levels (LevelGrid in chunked mode, laid out by a RoomChunkSource).
+ */
+public class ChunkedLevelTest
+{
+    private static final int SIZE = 10000;
+
+    private Catalog previous; // lists in use before the test
+
+    @Before
+    public void setUp()
+    {
+        previous = SampleLists.use();
+    }
+
+    @After
+    public void tearDown()
+    {
+        SampleLists.restore(previous);
+    }
+
+    private static byte[] save(Level level) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, false);
+        LevelCodec.write(level, writer);
+        writer.finish();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static Level load(byte[] save) throws IOException
+    {
+        SaveReader reader = new SaveReader(new ByteArrayInputStream(save));
+        Level level = LevelCodec.read(reader, new GameRandom(1));
+        reader.finish();
+        reader.close();
+        return level;
+    }
+
+    @Test
+    public void testOnlyChunksInUseTakeUpMemory()
+    {
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(1));
+        LevelGrid grid = level.getGrid();
+        assertTrue(grid.isChunked());
+        assertEquals(0, grid.getLoadedChunkCount());
+
+        // walk all the way across, along the corridor through the middle of a row of chunks
+        int row = 78 * LevelGrid.CHUNK_SIZE + LevelGrid.CHUNK_SIZE / 2;
+        assertTrue(level.isWall(row, 0));
+        for (int c = 1; c < SIZE - 1; c++) {
+            assertFalse(level.isWall(row, c));
+            level.keepNear(row, c, LevelGrid.CHUNK_SIZE); // the hero's chunk and the ones around it
+            assertTrue(grid.getLoadedChunkCount() <= 9);
+        }
+        assertTrue(level.isWall(row, SIZE - 1));
+        assertEquals(0, grid.getPackedChunkCount()); // nothing was changed, so nothing needs keeping
+    }
+
+    @Test
+    public void testChunksComeBackTheSame()
+    {
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(2));
+        char[] before = new char[LevelGrid.CHUNK_CELLS * 4];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = level.getSymbol(1000 + i / 128, 2000 + i % 128);
+        }
+        int[] spot = level.getEmptyTile();
+        level.getTile(spot).setGold(25);
+
+        level.keepNear(SIZE - 1, SIZE - 1, 0); // let go of everything used so far
+        assertTrue(level.getGrid().getLoadedChunkCount() <= 1);
+        assertEquals(1, level.getGrid().getPackedChunkCount()); // only the chunk with the gold was changed
+
+        for (int i = 0; i < before.length; i++) {
+            assertEquals(before[i], level.getSymbol(1000 + i / 128, 2000 + i % 128));
+        }
+        assertEquals(25, level.getTile(spot).getGold());
+        assertEquals(0, level.getGrid().getPackedChunkCount());
+    }
+
+    @Test
+    public void testSameSeedSameLevel()
+    {
+        Level first = Level.createChunked(SIZE, SIZE, new GameRandom(3));
+        Level second = Level.createChunked(SIZE, SIZE, new GameRandom(3));
+        for (int r = 0; r < 200; r++) { // chunks used in a different order
+            first.getSymbol(r, 0);
+        }
+        second.getSymbol(SIZE - 1, SIZE - 1);
+        for (int r = 4000; r < 4200; r++) {
+            for (int c = 6000; c < 6200; c++) {
+                assertEquals(first.getSymbol(r, c), second.getSymbol(r, c));
+            }
+        }
+
+        // which chunks are in use doesn't change which empty tiles are picked, only where the level was last kept
+        first.keepNear(5000, 5000, 100);
+        second.keepNear(5000, 5000, 100);
+        for (int i = 0; i < 20; i++) {
+            int[] a = first.getEmptyTile();
+            int[] b = second.getEmptyTile();
+            assertArrayEquals(a, b);
+            assertTrue(first.getTile(a).isEmpty());
+        }
+    }
+
+    @Test
+    public void testStairsFoundWithoutLookingEverywhere()
+    {
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(4));
+        assertNull(level.findFeature(LevelGrid.FEATURE_STAIRS_DOWN));
+        LevelGrid grid = level.getGrid();
+        grid.setFeature(grid.index(9000, 9000), LevelGrid.FEATURE_STAIRS_DOWN);
+        grid.setFeature(grid.index(20, 30), LevelGrid.FEATURE_STAIRS_DOWN);
+        grid.setFeature(grid.index(5000, 5000), LevelGrid.FEATURE_STAIRS_UP);
+        level.keepNear(0, 0, 0);
+        int loaded = grid.getLoadedChunkCount();
+
+        assertArrayEquals(new int[] {20, 30}, level.findFeature(LevelGrid.FEATURE_STAIRS_DOWN));
+        assertArrayEquals(new int[] {5000, 5000}, level.findFeature(LevelGrid.FEATURE_STAIRS_UP));
+        assertEquals(loaded, grid.getLoadedChunkCount());
+
+        grid.setFeature(grid.index(20, 30), LevelGrid.FEATURE_NONE);
+        assertArrayEquals(new int[] {9000, 9000}, level.findFeature(LevelGrid.FEATURE_STAIRS_DOWN));
+    }
+
+    @Test
+    public void testEmptyTileNotFound()
+    {
+        ChunkSource solid = new ChunkSource() { // nothing but walls
+            private static final long serialVersionUID = 1L;
+            public void generate(int chunkRow, int chunkColumn, byte[] cells) {}
+        };
+        LevelGrid grid = new LevelGrid(SIZE, SIZE, solid);
+        assertEquals(LevelGrid.EMPTY_NOT_FOUND, grid.randomEmpty(new GameRandom(5)));
+        assertEquals(LevelGrid.NO_EMPTY_CELL, new LevelGrid(10, 10).randomEmpty(new GameRandom(5)));
+    }
+
+    @Test
+    public void testEmptyTilesPickedWhereKept()
+    {
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(7));
+        level.keepNear(7000, 3000, LevelGrid.CHUNK_SIZE);
+        for (int i = 0; i < 100; i++) {
+            int[] spot = level.getEmptyTile();
+            assertTrue(Math.abs(spot[0] - 7000) < 3 * LevelGrid.CHUNK_SIZE);
+            assertTrue(Math.abs(spot[1] - 3000) < 3 * LevelGrid.CHUNK_SIZE);
+            level.getTile(spot).setGold(1);
+        }
+        assertTrue(level.getGrid().getLoadedChunkCount() <= 9); // nothing far away was laid out to find them
+    }
+
+    @Test
+    public void testChangedChunksSaved() throws Exception
+    {
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(8));
+        LevelGrid grid = level.getGrid();
+        level.keepNear(9000, 9000, 0);
+        int[] gold = level.getEmptyTile();
+        level.getTile(gold).setGold(40);
+        int[] item = level.getEmptyTile();
+        level.getTile(item).setItem(Weapon.createWeapon(Generator.getCatalog().getWeapons().get(1)));
+        int[] stairs = level.getEmptyTile();
+        level.getTile(stairs).setDownStairs();
+        level.keepNear(100, 200, 0);
+        int[] monsterSpot = level.getEmptyTile();
+        Monster monster = Monster.createMonster(Generator.getCatalog().getMonsters().get(1));
+        monster.setLocation(monsterSpot);
+        level.getTile(monsterSpot).setCreature(monster);
+        level.getMonsters().add(monster);
+        grid.setFeature(grid.index(101, 201), LevelGrid.FEATURE_NONE); // dug out
+        level.getExploredMap().remember(grid.index(101, 201), ExploredMap.FLOOR);
+
+        byte[] save = save(level);
+        assertTrue(save.length < 2000); // a few chunks, not a hundred million cells
+        Level loaded = load(save);
+        LevelGrid loadedGrid = loaded.getGrid();
+        assertTrue(loadedGrid.isChunked());
+        assertEquals(100, loadedGrid.getFocusRow());
+        assertEquals(200, loadedGrid.getFocusColumn());
+        assertTrue(loadedGrid.getLoadedChunkCount() <= 1);
+
+        assertEquals(40, loaded.getTile(gold).getGold());
+        assertEquals(level.getTile(item).getItem().getName(), loaded.getTile(item).getItem().getName());
+        assertArrayEquals(stairs, loaded.findFeature(LevelGrid.FEATURE_STAIRS_DOWN));
+        assertEquals(1, loaded.getMonsters().size());
+        assertTrue(loaded.hasMonster(monsterSpot[0], monsterSpot[1]));
+        assertFalse(loaded.isWall(101, 201));
+        assertEquals(1, loaded.getExploredMap().getSeenCount());
+        for (int r = 8950; r < 9050; r++) { // the rest comes out as it was laid out
+            for (int c = 8950; c < 9050; c++) {
+                assertEquals(level.getSymbol(r, c), loaded.getSymbol(r, c));
+            }
+        }
+        assertArrayEquals(save, save(loaded));
+    }
+
+    @Test
+    public void testChunkedLevelKept() throws Exception
+    {
+        LevelStore store = new LevelStore(1);
+        Level level = Level.createChunked(SIZE, SIZE, new GameRandom(9));
+        level.keepNear(4000, 4000, 0);
+        int[] spot = level.getEmptyTile();
+        level.getTile(spot).setUpStairs();
+        store.put(1, level);
+        store.put(2, new Level(60, 60, new GameRandom(10))); // the chunked level goes to disk
+        assertEquals(1, store.getSpilledCount());
+
+        Level back = store.take(1, new GameRandom(11));
+        assertTrue(back.isChunked());
+        assertArrayEquals(spot, back.findFeature(LevelGrid.FEATURE_STAIRS_UP));
+        store.clear();
+    }
+
+    @Test
+    public void testBottomLevelIsChunked() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", 12L);
+        while (game.getDepth() < GamePlay.CHUNKED_DEPTH) {
+            game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+            game.descendStairs();
+        }
+        Level level = game.getLevel();
+        assertTrue(level.isChunked());
+        assertEquals(GamePlay.CHUNKED_SIZE, level.getRowSize());
+        assertTrue(level.getTile(game.getHeroRow(), game.getHeroColumn()).hasUpStairs());
+        assertTrue(level.getMonsters().size() > 0);
+        for (int i = 0; i < 20; i++) {
+            game.moveMonsters();
+        }
+        assertTrue(level.getGrid().getLoadedChunkCount() <= 9);
+
+        // it is saved, and kept while the hero is away, like any other level
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, true);
+        game.save(writer);
+        writer.close();
+        SaveReader reader = new SaveReader(new ByteArrayInputStream(bytes.toByteArray()));
+        GamePlay loaded = GamePlay.load(reader);
+        reader.close();
+        assertEquals(game.getView(), loaded.getView());
+
+        int row = loaded.getHeroRow();
+        int column = loaded.getHeroColumn();
+        loaded.ascendStairs();
+        assertEquals(GamePlay.CHUNKED_DEPTH - 1, loaded.getDepth());
+        loaded.descendStairs();
+        assertEquals(GamePlay.CHUNKED_DEPTH, loaded.getDepth());
+        assertEquals(row, loaded.getHeroRow());
+        assertEquals(column, loaded.getHeroColumn());
+    }
+}
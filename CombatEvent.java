@@ -0,0 +1,106 @@
+/**
+   CombatEvent
+   A GameEvent for a single attack: who attacked whom, the rolls involved, and how it turned out.
+   Everything needed to describe the attack is copied when it happens, since the Creatures involved go on changing
+   (or dying) before the event is displayed.
+ */
+
+import java.util.List;
+
+public class CombatEvent extends GameEvent {
+
+    private final String attackerName;
+    private final boolean attackerIsMonster;
+    private final String defenderName;
+    private final boolean defenderIsMonster;
+    private final int accuracyRoll;
+    private final int accuracy;
+    private final int evasionRoll;
+    private final int evasion;
+    private final int damageRoll;
+    private final int maxDamage;
+    private final int absorbed;
+    private final int armorClass;
+    private final int healthRemaining;
+    private final boolean killed;
+
+    /**
+       Constructor.  Must be called right after the attack, before anything else changes.
+       @param attacker Attacking Creature
+       @param defender Defending Creature
+       @param result results of the attack, as returned by Creature.attack
+     */
+    public CombatEvent(Creature attacker, Creature defender, int[] result) {
+        this(attacker, defender, result[AttackResult.ACCURACY_ROLL], result[AttackResult.EVASION_ROLL],
+             result[AttackResult.DAMAGE_ROLL], result[AttackResult.ABSORBED]);
+    }
+
+    /**
+       Constructor.  Must be called right after the attack, before anything else changes.
+       The rolls are copied, so the AttackResult may be reused straight away.
+       @param attacker Attacking Creature
+       @param defender Defending Creature
+       @param result results of the attack, as filled in by Creature.attack
+     */
+    public CombatEvent(Creature attacker, Creature defender, AttackResult result) {
+        this(attacker, defender, result.getAccuracyRoll(), result.getEvasionRoll(), result.getDamageRoll(),
+             result.getAbsorbed());
+    }
+
+    /**
+       Constructor from the individual rolls.
+     */
+    private CombatEvent(Creature attacker, Creature defender, int accuracyRoll, int evasionRoll, int damageRoll,
+                        int absorbed) {
+        attackerName = attacker.getName();
+        attackerIsMonster = attacker.isMonster();
+        defenderName = defender.getName();
+        defenderIsMonster = defender.isMonster();
+        this.accuracyRoll = accuracyRoll;
+        accuracy = attacker.getAccuracy();
+        this.evasionRoll = evasionRoll;
+        evasion = defender.getEvasion();
+        this.damageRoll = damageRoll;
+        maxDamage = attacker.getDamage();
+        this.absorbed = absorbed;
+        armorClass = defender.getArmorClass();
+        healthRemaining = defender.getHealth();
+        killed = defender.isDead();
+    }
+
+    // getters
+    public String getAttackerName() {return attackerName;}
+    public String getDefenderName() {return defenderName;}
+    public boolean isHit() {return accuracyRoll > evasionRoll;}
+    public int getDamageTaken() {return (isHit() ? damageRoll - absorbed : 0);}
+    public boolean isKilled() {return killed;}
+
+    public void render(int verbosity, List<String> lines) {
+        // add articles to monster names
+        String attacker = (attackerIsMonster ? "the " + attackerName : attackerName);
+        String defender = (defenderIsMonster ? "the " + defenderName : defenderName);
+        boolean verbose = (verbosity >= VERBOSE);
+
+        if (verbose) {lines.add(attacker + " is attacking " + defender);}
+        lines.add(attacker + (isHit() ? " hits " : " misses ") + defender + ".");
+        if (verbose) {
+            lines.add("(Accuracy roll " + accuracyRoll + "/" + accuracy
+                    + " versus evasion roll " + evasionRoll + "/" + evasion + ")");
+        }
+        if (isHit()) {
+            if (verbose && armorClass > 0) { // defender has armor
+                if (absorbed == 0) { // but it didn't help
+                    lines.add("The armor of " + defender + " fails to absorb any damage.");
+                } else {
+                    lines.add("The armor of " + defender + " absorbs " + absorbed + " damage.");
+                }
+            }
+            lines.add(defender + " takes " + getDamageTaken() + " damage "
+                    + "(out of a maximum of " + maxDamage + ").");
+            if (getDamageTaken() > 0) {
+                lines.add(defender + " has " + healthRemaining + " hit points remaining.");
+            }
+        }
+        if (killed) {lines.add(defender + " has been killed!");}
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CombatEvent: the text it renders, at each verbosity level.
+ */
+public class CombatEventTest
+{
+    @Test
+    public void testHitAndKill() throws Exception
+    {
+        Hero hero = new Hero("PowerMan");
+        Monster monster = Monster.createMonster(new PossibleMonster("Bubbles", 5, 10, 15, 20, 'b'));
+        monster.setHealth(0); // the attack below killed it
+        CombatEvent event = new CombatEvent(hero, monster, new int[] {7, 3, 9, 0});
+
+        ArrayList<String> lines = new ArrayList<>();
+        event.render(GameEvent.NORMAL, lines);
+        assertEquals("PowerMan hits the Bubbles.", lines.get(0));
+        assertEquals("the Bubbles has been killed!", lines.get(lines.size() - 1));
+        assertFalse(lines.toString().contains("Accuracy roll"));
+
+        ArrayList<String> verbose = new ArrayList<>();
+        event.render(GameEvent.VERBOSE, verbose);
+        assertTrue(verbose.size() > lines.size());
+        assertEquals("PowerMan is attacking the Bubbles", verbose.get(0));
+        assertTrue(verbose.contains("(Accuracy roll 7/" + hero.getAccuracy() + " versus evasion roll 3/"
+                                    + monster.getEvasion() + ")"));
+    }
+
+    @Test
+    public void testMiss() throws Exception
+    {
+        Hero hero = new Hero("PowerMan");
+        Monster monster = Monster.createMonster(new PossibleMonster("Bubbles", 5, 10, 15, 20, 'b'));
+        CombatEvent event = new CombatEvent(monster, hero, new int[] {2, 8, 0, 0});
+        assertFalse(event.isHit());
+        assertEquals(0, event.getDamageTaken());
+
+        ArrayList<String> lines = new ArrayList<>();
+        event.render(GameEvent.NORMAL, lines);
+        assertEquals(1, lines.size());
+        assertEquals("the Bubbles misses PowerMan.", lines.get(0));
+    }
+}
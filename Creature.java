@@ -1,5 +1,4 @@
 import java.io.Serializable;
-import java.util.Random;
 import static utils.RandomGen.*;
 
 /**
@@ -7,40 +6,31 @@ import static utils.RandomGen.*;
  */
 
 abstract public class Creature implements Serializable {
-    private String name;
+    private static final long serialVersionUID = 1L;
     private int health;
-    private int maxHealth;
-    private int accuracy;
-    private int damage;
-    private int evasion;
-    private int armorClass;
     private int row = -1; //the character will be informed of the its position on the map at all times
     private int col = -1; //the character will be informed of the its position on the map at all times
 
     /**
        Default constructor.
        Currently we're creating the objects in the inherited classes, not here.
+       Only what changes in the course of play (health and location) is kept here; the statistics are up to the
+         inherited classes, so that a Monster can share them with every other Monster of its kind.
      */
     protected Creature() {}
 
     // getters and setters
     public boolean isDead() {return (health < 1);}
-    public String getName() {return name;}
     public int getHealth() {return health;}
-    public int getMaxHealth() {return maxHealth;}
-    public int getAccuracy() {return accuracy;}
-    public int getDamage() {return damage;}
-    public int getEvasion() {return evasion;}
-    public int getArmorClass() {return armorClass;}
+    abstract public String getName();
+    abstract public int getMaxHealth();
+    abstract public int getAccuracy();
+    abstract public int getDamage();
+    abstract public int getEvasion();
+    abstract public int getArmorClass();
     abstract public char getSymbol(); // representation of this Creature
 
-    public void setName(String name) {this.name = name;}
     public void setHealth(int health) {this.health = health;}
-    public void setMaxHealth(int maxHealth) {this.maxHealth = maxHealth;}
-    public void setAccuracy(int accuracy) {this.accuracy = accuracy;}
-    public void setDamage(int damage) {this.damage = damage;}
-    public void setEvasion(int evasion) {this.evasion = evasion;}
-    public void setArmorClass(int armorClass) {this.armorClass = armorClass;}
 
     // getters and setters for row/columns
     public int getRow() {return row;}
@@ -75,20 +65,73 @@ abstract public class Creature implements Serializable {
                      3 - defender armor absorbed.
      */
     public int[] attack(Creature cr) {
-        int[] result = new int[4];
-        result[0] = randRange(0, getAccuracy());
-        result[1] = randRange(0, cr.getEvasion());
-        result[2] = result[3] = 0;
-        
-        if (result[0] > result[1]) { // successful attack
-            result[2] = randRange(1, damage); // calculate damage roll
-            result[3] = randRange(0, cr.getArmorClass());
-            if (result[3] > result[2]) {result[3] = result[2];} // cannot absorb more damage than is taken
-            cr.takeDamage(result[2] - result[3]); // take damage equal to damage roll minus armor class roll
-        }
-        
+        return attack(cr, new GameRandom(rand.nextLong()));
+    }
+
+    /**
+       Initiates an attack from this creature, rolling dice from the given random stream.
+       @param cr The target Creature to be attacked.
+       @param random Random stream owned by the game session.
+       @return An int array with results of the attack, as in attack(Creature).
+     */
+    public int[] attack(Creature cr, GameRandom random) {
+        int[] result = new int[AttackResult.STRIDE];
+        resolve(cr, random, result, 0);
         return result;
     }
+
+    /**
+       Initiates an attack from this creature, filling in a result supplied by the caller instead of allocating one.
+       The dice rolled, and what they do, are exactly as in attack(Creature, GameRandom).
+       @param cr The target Creature to be attacked.
+       @param random Random stream owned by the game session.
+       @param result where to put the rolls; its previous contents are overwritten
+     */
+    public void attack(Creature cr, GameRandom random, AttackResult result) {
+        resolve(cr, random, result.getRolls(), 0);
+    }
+
+    /**
+       Resolves a number of attacks in order, as if attackers[i].attack(defenders[i], random) were called for each i.
+       @param attackers attacking Creatures
+       @param defenders defending Creatures; defenders[i] is attacked by attackers[i]
+       @param count number of attacks
+       @param random Random stream owned by the game session.
+       @param results where to put the rolls: those of attack i start at i * AttackResult.STRIDE, in the layout of
+                      AttackResult; must hold at least count * AttackResult.STRIDE ints
+     */
+    public static void attackAll(Creature[] attackers, Creature[] defenders, int count, GameRandom random,
+                                 int[] results) {
+        for (int i = 0, offset = 0; i < count; i++, offset += AttackResult.STRIDE) {
+            attackers[i].resolve(defenders[i], random, results, offset);
+        }
+    }
+
+    /**
+       Rolls the dice for an attack from this creature and applies the damage.
+       @param cr The target Creature to be attacked.
+       @param random Random stream owned by the game session.
+       @param out where to put the rolls, in the layout of AttackResult
+       @param offset where in out they start
+     */
+    private void resolve(Creature cr, GameRandom random, int[] out, int offset) {
+        int accuracyRoll = random.randRange(0, getAccuracy());
+        int evasionRoll = random.randRange(0, cr.getEvasion());
+        int damageRoll = 0;
+        int absorbed = 0;
+
+        if (accuracyRoll > evasionRoll) { // successful attack
+            damageRoll = random.randRange(1, getDamage()); // calculate damage roll
+            absorbed = random.randRange(0, cr.getArmorClass());
+            if (absorbed > damageRoll) {absorbed = damageRoll;} // cannot absorb more damage than is taken
+            cr.takeDamage(damageRoll - absorbed); // take damage equal to damage roll minus armor class roll
+        }
+
+        out[offset + AttackResult.ACCURACY_ROLL] = accuracyRoll;
+        out[offset + AttackResult.EVASION_ROLL] = evasionRoll;
+        out[offset + AttackResult.DAMAGE_ROLL] = damageRoll;
+        out[offset + AttackResult.ABSORBED] = absorbed;
+    }
     
     /**
        Inflict damage upon a creature.
@@ -79,6 +79,79 @@ public class CreatureHeroMonsterTest {
 		assertNotNull(Monster.createMonster(something));
 	}
 	
+	@Test
+	public void AttackResultTest(){
+		// the same fights, resolved through each of the attack methods, must roll and hurt identically
+		PossibleMonster ogre = new PossibleMonster("Ogre", 60, 30, 10, 100000, 'O');
+		Hero[] heroes = new Hero[3];
+		Monster[] ogres = new Monster[3];
+		for (int i = 0; i < 3; i++) {
+			heroes[i] = new Hero("PowerMan");
+			heroes[i].setHealth(100000);
+			ogres[i] = Monster.createMonster(ogre);
+		}
+		GameRandom[] randoms = {new GameRandom(151), new GameRandom(151), new GameRandom(151)};
+		AttackResult reused = new AttackResult();
+		int[] batch = new int[AttackResult.STRIDE * 200];
+		Creature[] attackers = new Creature[200];
+		Creature[] defenders = new Creature[200];
+		for (int i = 0; i < 200; i++) {
+			attackers[i] = (i % 2 == 0 ? ogres[2] : heroes[2]);
+			defenders[i] = (i % 2 == 0 ? heroes[2] : ogres[2]);
+		}
+		Creature.attackAll(attackers, defenders, 200, randoms[2], batch);
+		
+		for (int i = 0; i < 200; i++) {
+			int[] expected = (i % 2 == 0 ? ogres[0].attack(heroes[0], randoms[0])
+			                             : heroes[0].attack(ogres[0], randoms[0]));
+			if (i % 2 == 0) {
+				ogres[1].attack(heroes[1], randoms[1], reused);
+			} else {
+				heroes[1].attack(ogres[1], randoms[1], reused);
+			}
+			assertEquals(expected[0], reused.getAccuracyRoll());
+			assertEquals(expected[1], reused.getEvasionRoll());
+			assertEquals(expected[2], reused.getDamageRoll());
+			assertEquals(expected[3], reused.getAbsorbed());
+			for (int j = 0; j < AttackResult.STRIDE; j++) {
+				assertEquals(expected[j], batch[i * AttackResult.STRIDE + j]);
+			}
+		}
+		for (int i = 1; i < 3; i++) {
+			assertEquals(heroes[0].getHealth(), heroes[i].getHealth());
+			assertEquals(ogres[0].getHealth(), ogres[i].getHealth());
+		}
+		assertEquals(randoms[0].getState(), randoms[2].getState());
+	}
+	
+	@Test
+	public void AttackRulesUnchangedTest(){
+		// rolls and health worked out with the int[] attack as it was before AttackResult, from the same seed
+		int[][] expected = {{11, 15, 0, 0}, {56, 14, 8, 1}, {46, 16, 8, 0}, {50, 14, 6, 6}, {55, 0, 10, 0},
+		                    {16, 28, 0, 0}, {42, 4, 17, 0}, {7, 7, 0, 0}, {55, 46, 17, 0}, {25, 4, 1, 1}};
+		Hero hero = new Hero("PowerMan");
+		hero.setHealth(100000);
+		Monster ogre = Monster.createMonster(new PossibleMonster("Ogre", 60, 30, 10, 100000, 'O'));
+		GameRandom random = new GameRandom(151);
+		AttackResult result = new AttackResult();
+		for (int i = 0; i < 200; i++) {
+			if (i % 2 == 0) {
+				ogre.attack(hero, random, result);
+			} else {
+				hero.attack(ogre, random, result);
+			}
+			if (i < expected.length) {
+				assertEquals(expected[i][0], result.getAccuracyRoll());
+				assertEquals(expected[i][1], result.getEvasionRoll());
+				assertEquals(expected[i][2], result.getDamageRoll());
+				assertEquals(expected[i][3], result.getAbsorbed());
+			}
+		}
+		assertEquals(99232, hero.getHealth());
+		assertEquals(99881, ogre.getHealth());
+		assertEquals(8965573437611972031L, random.getState());
+	}
+	
 	public static void main(String[] args) {
 		Result result = JUnitCore.runClasses(CreatureHeroMonsterTest.class);
 		for (Failure failure : result.getFailures()) {
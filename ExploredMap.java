@@ -0,0 +1,163 @@
+/**
+   ExploredMap
+   What the Hero remembers of a Level: which locations it has seen, and what was there when it last saw them.
+   Each location is remembered as a 3-bit code (nothing, floor, wall, stairs down or up, gold, a weapon, an armor);
+   Creatures are not remembered, since they move.  The codes are kept in blocks of BLOCK_SIZE locations, as three
+   bit planes of a few longs each, and a block only takes up memory once something in it has been seen; so a Level
+   costs three bits per explored location, and next to nothing for the parts never visited.
+   Every Level has one; see LevelCodec for how it is saved.
+ */
+
+import java.io.Serializable;
+
+public class ExploredMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // what a location is remembered as
+    public static final int UNSEEN      = 0;
+    public static final int FLOOR       = 1;
+    public static final int WALL        = 2;
+    public static final int STAIRS_DOWN = 3;
+    public static final int STAIRS_UP   = 4;
+    public static final int GOLD        = 5;
+    public static final int WEAPON      = 6;
+    public static final int ARMOR       = 7;
+    public static final int CODES       = 8;
+
+    // symbols for remembered Items, which are only remembered by kind
+    public static final char SYMBOL_WEAPON = ')';
+    public static final char SYMBOL_ARMOR  = '[';
+
+    private static final char[] SYMBOLS = {' ', Tile.SYMBOL_FLOOR, Tile.SYMBOL_WALL, Tile.SYMBOL_STAIRS_DOWN,
+                                           Tile.SYMBOL_STAIRS_UP, Tile.SYMBOL_GOLD, SYMBOL_WEAPON, SYMBOL_ARMOR};
+
+    private static final int BLOCK_SHIFT = 8;                // locations per block: 256
+    private static final int BLOCK_SIZE  = 1 << BLOCK_SHIFT;
+    private static final int PLANE_WORDS = BLOCK_SIZE / 64;  // longs in one bit plane of a block
+
+    private final int size;       // number of locations
+    private final long[][] blocks; // bit planes of each block, one after another; null until something in it is seen
+    private int seenCount;        // number of locations seen
+
+    /**
+       Constructor for a map with nothing seen yet.
+       @param size number of locations on the Level (rows * columns)
+     */
+    public ExploredMap(int size) {
+        this.size = size;
+        blocks = new long[(size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT][];
+    }
+
+    // getters
+    public int getSize() {return size;}
+    public int getSeenCount() {return seenCount;}
+    public boolean isSeen(int index) {return getCode(index) != UNSEEN;}
+
+    /**
+       Returns what a location is remembered as.
+       @param index index of the location (row * columns + column)
+       @return one of the codes above; UNSEEN if it was never seen
+     */
+    public int getCode(int index) {
+        long[] block = blocks[index >>> BLOCK_SHIFT];
+        if (block == null) {return UNSEEN;}
+        int bit = index & (BLOCK_SIZE - 1);
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        return ((block[word] & mask) != 0 ? 1 : 0)
+             | ((block[PLANE_WORDS + word] & mask) != 0 ? 2 : 0)
+             | ((block[2 * PLANE_WORDS + word] & mask) != 0 ? 4 : 0);
+    }
+
+    /**
+       Finds where a run of locations remembered as the same thing ends, such as to save the map as runs.
+       Blocks where nothing was ever seen are skipped whole, so this is quick on a huge Level seen only in part.
+       @param start index of the first location of the run
+       @return index of the first location after the run (or the number of locations, if the run goes to the end)
+     */
+    public int getRunEnd(int start) {
+        int code = getCode(start);
+        int end = start + 1;
+        while (end < size) {
+            if (code == UNSEEN && (end & (BLOCK_SIZE - 1)) == 0 && blocks[end >>> BLOCK_SHIFT] == null) {
+                end += BLOCK_SIZE;
+            } else if (getCode(end) == code) {
+                end++;
+            } else {
+                break;
+            }
+        }
+        return Math.min(end, size);
+    }
+
+    /**
+       Returns the symbol a remembered location should display.
+       @param index index of the location
+       @return the symbol; a blank space if the location was never seen
+     */
+    public char getSymbol(int index) {return SYMBOLS[getCode(index)];}
+
+    /**
+       Remembers a location as something.
+       @param index index of the location
+       @param code what it is to be remembered as, one of the codes above
+     */
+    public void remember(int index, int code) {
+        int old = getCode(index);
+        if (old == code) {return;}
+        int b = index >>> BLOCK_SHIFT;
+        if (blocks[b] == null) {blocks[b] = new long[3 * PLANE_WORDS];}
+        long[] block = blocks[b];
+        int bit = index & (BLOCK_SIZE - 1);
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        for (int plane = 0; plane < 3; plane++) {
+            if ((code & (1 << plane)) != 0) {
+                block[plane * PLANE_WORDS + word] |= mask;
+            } else {
+                block[plane * PLANE_WORDS + word] &= ~mask;
+            }
+        }
+        if (old == UNSEEN) {seenCount++;}
+        if (code == UNSEEN) {seenCount--;}
+    }
+
+    /**
+       Works out what a location of a Level would be remembered as, if it were seen now.
+       @param grid contents of the Level
+       @param index index of the location
+       @return one of the codes above, never UNSEEN
+     */
+    public static int codeOf(LevelGrid grid, int index) {
+        // same order as the map: a wall covers up anything else, then Items, gold, and stairs
+        byte feature = grid.getFeature(index);
+        if (feature == LevelGrid.FEATURE_WALL) {return WALL;}
+        if (grid.hasItem(index)) {return (grid.getItem(index).isArmor() ? ARMOR : WEAPON);}
+        if (grid.hasGold(index)) {return GOLD;}
+        if (feature == LevelGrid.FEATURE_STAIRS_DOWN) {return STAIRS_DOWN;}
+        if (feature == LevelGrid.FEATURE_STAIRS_UP) {return STAIRS_UP;}
+        return FLOOR;
+    }
+
+    /**
+       Remembers everything in a FieldOfView, as it is now.
+       @param level Level the FieldOfView was computed on
+       @param fov what can be seen
+     */
+    public void explore(Level level, FieldOfView fov) {
+        LevelGrid grid = level.getGrid();
+        int radius = fov.getRadius();
+        int top = Math.max(0, fov.getRow() - radius);
+        int bottom = Math.min(grid.getRows() - 1, fov.getRow() + radius);
+        int left = Math.max(0, fov.getColumn() - radius);
+        int right = Math.min(grid.getColumns() - 1, fov.getColumn() + radius);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                if (fov.isVisible(r, c)) {
+                    int index = r * grid.getColumns() + c;
+                    remember(index, codeOf(grid, index));
+                }
+            }
+        }
+    }
+}
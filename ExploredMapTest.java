@@ -0,0 +1,69 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ExploredMap.
+ */
+public class ExploredMapTest
+{
+    @Test
+    public void testCodesRememberedIndependently()
+    {
+        ExploredMap map = new ExploredMap(1000);
+        assertEquals(0, map.getSeenCount());
+        for (int i = 0; i < 1000; i += 7) {
+            map.remember(i, i % ExploredMap.CODES);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((i % 7 == 0 ? i % ExploredMap.CODES : ExploredMap.UNSEEN), map.getCode(i));
+        }
+        map.remember(14, ExploredMap.WALL);
+        map.remember(14, ExploredMap.FLOOR); // remembered differently the next time it is seen
+        assertEquals(ExploredMap.FLOOR, map.getCode(14));
+        assertEquals(Tile.SYMBOL_FLOOR, map.getSymbol(14));
+        assertEquals(' ', map.getSymbol(15));
+
+        int seen = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (map.isSeen(i)) {seen++;}
+        }
+        assertEquals(seen, map.getSeenCount());
+    }
+
+    @Test
+    public void testCodeOfFollowsTheMap()
+    {
+        LevelGrid grid = new LevelGrid(3, 3);
+        assertEquals(ExploredMap.WALL, ExploredMap.codeOf(grid, 0));
+        grid.setFeature(4, LevelGrid.FEATURE_STAIRS_DOWN);
+        assertEquals(ExploredMap.STAIRS_DOWN, ExploredMap.codeOf(grid, 4));
+        grid.setGold(4, 10);
+        assertEquals(ExploredMap.GOLD, ExploredMap.codeOf(grid, 4));
+        grid.setItem(4, Armor.createArmor(new PossibleArmor("robe", 1, '[')));
+        assertEquals(ExploredMap.ARMOR, ExploredMap.codeOf(grid, 4));
+        grid.setFeature(5, LevelGrid.FEATURE_NONE);
+        grid.setItem(5, Weapon.createWeapon(new PossibleWeapon("club", -5, 15, ')')));
+        assertEquals(ExploredMap.WEAPON, ExploredMap.codeOf(grid, 5));
+    }
+
+    @Test
+    public void testExploreRemembersOnlyWhatIsSeen()
+    {
+        Level level = new Level(utils.GameFunctions.ROW_SIZE, utils.GameFunctions.COLUMN_SIZE, new GameRandom(5));
+        int[] spot = level.getEmptyTile();
+        FieldOfView fov = new FieldOfView(6);
+        fov.compute(level, spot[0], spot[1]);
+        ExploredMap map = level.getExploredMap();
+        map.explore(level, fov);
+        assertEquals(fov.getVisibleCount(), map.getSeenCount());
+        for (int r = 0; r < level.getRowSize(); r++) {
+            for (int c = 0; c < level.getColumnSize(); c++) {
+                int index = r * level.getColumnSize() + c;
+                assertEquals(fov.isVisible(r, c), map.isSeen(index));
+                if (map.isSeen(index) && !level.getTile(r, c).hasCreature()) {
+                    assertEquals(level.getSymbol(r, c), map.getSymbol(index));
+                }
+            }
+        }
+    }
+}
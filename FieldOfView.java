@@ -0,0 +1,215 @@
+/**
+   FieldOfView
+   Which locations can be seen from a single point (normally the Hero), out to a fixed radius; walls block sight.
+   It is worked out by recursive shadowcasting: each of the eight octants around the viewer is scanned row by row
+   outward, and a wall casts a shadow (a range of slopes) that is skipped in every row beyond it.  Locations in
+   shadow are never looked at, so the cost is that of the locations actually in view, not of the whole square.
+
+   The result is a bitset over the square window around the viewer, one bit per location.  Results are kept for the
+   last few points they were computed from, so walking back and forth (or standing still) costs nothing; they stay
+   valid until a wall is created or removed, or the viewer moves to a different Level.
+   Rendering (Viewport) and Monsters (GamePlay.moveMonsters) both read the same bitset.
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+public class FieldOfView {
+
+    public static final int DEFAULT_CACHE_SIZE = 64; // results remembered, by where they were computed from
+
+    // how a row and a column of an octant map onto rows and columns of the Level, one entry per octant
+    private static final int[] COLUMN_FROM_COLUMN = {1, 0, 0, -1, -1, 0, 0, 1};
+    private static final int[] COLUMN_FROM_ROW    = {0, 1, -1, 0, 0, -1, 1, 0};
+    private static final int[] ROW_FROM_COLUMN    = {0, 1, 1, 0, 0, -1, -1, 0};
+    private static final int[] ROW_FROM_ROW       = {1, 0, 0, 1, -1, 0, 0, -1};
+
+    private final int radius;    // how far the viewer can see
+    private final int side;      // rows (and columns) in the window: 2 * radius + 1
+    private final int cacheSize;
+    private final LinkedHashMap<Integer, long[]> cache = new LinkedHashMap<>(16, 0.75f, true); // by location, LRU
+
+    private long[] visible;      // bit (row * side + column) of the window is set if that location is in view
+    private int version;         // bumped every time visible changes
+
+    // what visible was computed for
+    private Level computedLevel;
+    private int computedRow;
+    private int computedColumn;
+    private int computedVersion; // terrain version of the Level
+
+    // the Level being scanned, during compute()
+    private Level scanLevel;
+
+    /**
+       Constructor.
+       @param radius How far the viewer can see, in locations
+     */
+    public FieldOfView(int radius) {
+        this(radius, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+       Constructor.
+       @param radius How far the viewer can see, in locations
+       @param cacheSize Number of results to remember; 0 to recompute on every move
+     */
+    public FieldOfView(int radius, int cacheSize) {
+        this.radius = radius;
+        this.cacheSize = cacheSize;
+        side = 2 * radius + 1;
+    }
+
+    // getters
+    public int getRadius() {return radius;}
+    public int getRow() {return computedRow;}       // where the field was last computed from
+    public int getColumn() {return computedColumn;}
+
+    /**
+       Returns a counter that changes whenever the set of visible locations may have changed.
+       @return current version
+     */
+    public int getVersion() {return version;}
+
+    /**
+       Works out what can be seen from a location.
+       Nothing is recomputed if the viewer hasn't moved and no walls have changed since the last call; and a location
+         seen from before (with the same walls) is only looked up.
+       @param level Level the viewer is on
+       @param r row of the viewer
+       @param c column of the viewer
+     */
+    public void compute(Level level, int r, int c) {
+        if (level == computedLevel && level.getTerrainVersion() == computedVersion) {
+            if (r == computedRow && c == computedColumn) {return;} // still valid
+        } else { // different walls: nothing remembered holds any more
+            cache.clear();
+        }
+        computedLevel = level;
+        computedRow = r;
+        computedColumn = c;
+        computedVersion = level.getTerrainVersion();
+        version++;
+
+        Integer key = r * level.getColumnSize() + c;
+        long[] remembered = cache.get(key);
+        if (remembered != null) {
+            visible = remembered;
+            return;
+        }
+
+        // reuse the least recently used result's array if the cache is full; results are never changed once cached
+        long[] bits = null;
+        if (cacheSize > 0 && cache.size() >= cacheSize) {
+            Iterator<long[]> eldest = cache.values().iterator();
+            bits = eldest.next();
+            eldest.remove();
+        } else if (cacheSize == 0) {
+            bits = visible;
+        }
+        if (bits == null) {
+            bits = new long[(side * side + 63) >>> 6];
+        } else {
+            Arrays.fill(bits, 0);
+        }
+        visible = bits;
+
+        scanLevel = level;
+        mark(radius, radius); // the viewer sees its own location
+        for (int octant = 0; octant < 8; octant++) {
+            scan(octant, 1, 1.0, 0.0);
+        }
+        scanLevel = null;
+        if (cacheSize > 0) {cache.put(key, bits);}
+    }
+
+    /**
+       Scans an octant outward from a given distance, between two slopes, marking what is visible.
+       Walls found along the way split the scan: the part of the octant on the near side of each wall's shadow is
+         scanned further by a recursive call.
+       @param octant which octant
+       @param distance distance from the viewer of the first row to scan
+       @param start slope at which the scan starts (the larger one)
+       @param end slope at which the scan ends
+     */
+    private void scan(int octant, int distance, double start, double end) {
+        if (start < end) {return;}
+        int xx = COLUMN_FROM_COLUMN[octant];
+        int xy = COLUMN_FROM_ROW[octant];
+        int yx = ROW_FROM_COLUMN[octant];
+        int yy = ROW_FROM_ROW[octant];
+        int rows = scanLevel.getRowSize();
+        int columns = scanLevel.getColumnSize();
+        int limit = radius * radius + radius; // a little beyond radius squared, for a rounder edge
+        double nextStart = 0;
+        boolean blocked = false;
+
+        for (; distance <= radius && !blocked; distance++) {
+            int dy = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (start < rightSlope) {continue;}
+                if (end > leftSlope) {break;}
+
+                int wc = dx * xx + dy * xy; // location relative to the viewer
+                int wr = dx * yx + dy * yy;
+                int r = computedRow + wr;
+                int c = computedColumn + wc;
+                boolean wall = (r < 0 || r >= rows || c < 0 || c >= columns || scanLevel.isWall(r, c));
+                if (dx * dx + dy * dy <= limit) {mark(wr + radius, wc + radius);}
+
+                if (blocked) {
+                    if (wall) { // still in shadow
+                        nextStart = rightSlope;
+                    } else { // shadow ends
+                        blocked = false;
+                        start = nextStart;
+                    }
+                } else if (wall && distance < radius) { // shadow starts; scan on beyond it, on its near side
+                    blocked = true;
+                    scan(octant, distance + 1, start, leftSlope);
+                    nextStart = rightSlope;
+                }
+            }
+        }
+    }
+
+    /**
+       Marks a location of the window as visible.
+       @param wr row of the window
+       @param wc column of the window
+     */
+    private void mark(int wr, int wc) {
+        int bit = wr * side + wc;
+        visible[bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+       Checks if a location can be seen from where the field was last computed.
+       @param r row of the location
+       @param c column of the location
+       @return true if it is in view
+     */
+    public boolean isVisible(int r, int c) {
+        if (visible == null) {return false;}
+        int wr = r - computedRow + radius;
+        int wc = c - computedColumn + radius;
+        if (wr < 0 || wr >= side || wc < 0 || wc >= side) {return false;}
+        int bit = wr * side + wc;
+        return (visible[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+       Counts the locations in view.
+       @return number of visible locations
+     */
+    public int getVisibleCount() {
+        int count = 0;
+        if (visible != null) {
+            for (long word : visible) {count += Long.bitCount(word);}
+        }
+        return count;
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for FieldOfView.
+ */
+public class FieldOfViewTest
+{
+    /**
+     * Builds a Level that is one open room, walled in around the edges.
+     */
+    private static Level room(int rows, int columns)
+    {
+        LevelGrid grid = new LevelGrid(rows, columns);
+        for (int r = 1; r < rows - 1; r++) {
+            for (int c = 1; c < columns - 1; c++) {
+                grid.setFeature(grid.index(r, c), LevelGrid.FEATURE_NONE);
+            }
+        }
+        return new Level(grid, new GameRandom(1));
+    }
+
+    @Test
+    public void testOpenRoomSeenOutToRadius()
+    {
+        Level level = room(41, 41);
+        FieldOfView fov = new FieldOfView(5);
+        fov.compute(level, 20, 20);
+        assertTrue(fov.isVisible(20, 20));
+        assertTrue(fov.isVisible(15, 20));
+        assertTrue(fov.isVisible(24, 23));
+        assertFalse(fov.isVisible(14, 20)); // beyond the radius
+        assertFalse(fov.isVisible(15, 15)); // corner of the square, outside the circle
+        for (int r = 17; r <= 23; r++) { // nothing in the way, so everything close by is seen
+            for (int c = 17; c <= 23; c++) {
+                assertTrue(fov.isVisible(r, c));
+            }
+        }
+    }
+
+    @Test
+    public void testWallsCastShadows()
+    {
+        Level level = room(21, 21);
+        level.getGrid().setFeature(level.getGrid().index(10, 12), LevelGrid.FEATURE_WALL);
+        FieldOfView fov = new FieldOfView(8);
+        fov.compute(level, 10, 10);
+        assertTrue(fov.isVisible(10, 11));
+        assertTrue(fov.isVisible(10, 12)); // the wall itself is seen
+        assertFalse(fov.isVisible(10, 13)); // but not what is behind it
+        assertFalse(fov.isVisible(10, 16));
+        assertTrue(fov.isVisible(8, 16)); // off to the side of the shadow
+
+        // walls around the edge block the view of the outside world
+        fov.compute(level, 2, 2);
+        assertTrue(fov.isVisible(0, 2));
+        assertFalse(fov.isVisible(-1, 2));
+    }
+
+    @Test
+    public void testRememberedUntilWallsChange()
+    {
+        Level level = room(21, 21);
+        FieldOfView fov = new FieldOfView(8);
+        fov.compute(level, 10, 10);
+        int version = fov.getVersion();
+        fov.compute(level, 10, 10);
+        assertEquals(version, fov.getVersion()); // nothing to do
+
+        fov.compute(level, 10, 11);
+        fov.compute(level, 10, 10); // looked up, and the same as before
+        assertTrue(fov.isVisible(10, 16));
+
+        level.getGrid().setFeature(level.getGrid().index(10, 12), LevelGrid.FEATURE_WALL);
+        fov.compute(level, 10, 10); // walls changed, so worked out again
+        assertFalse(fov.isVisible(10, 16));
+    }
+
+    @Test
+    public void testSameResultWithoutCache()
+    {
+        Level level = new Level(utils.GameFunctions.ROW_SIZE, utils.GameFunctions.COLUMN_SIZE, new GameRandom(7));
+        FieldOfView cached = new FieldOfView(10);
+        FieldOfView uncached = new FieldOfView(10, 0);
+        GameRandom random = new GameRandom(3);
+        int[][] spots = new int[10][];
+        for (int i = 0; i < spots.length; i++) {spots[i] = level.getEmptyTile();}
+        for (int i = 0; i < 200; i++) { // going back and forth between a few spots, so most are looked up
+            int[] spot = spots[random.nextInt(spots.length)];
+            cached.compute(level, spot[0], spot[1]);
+            uncached.compute(level, spot[0], spot[1]);
+            assertEquals(cached.getVisibleCount(), uncached.getVisibleCount());
+            int r = spot[0] + random.randRange(-10, 10);
+            int c = spot[1] + random.randRange(-10, 10);
+            assertEquals(cached.isVisible(r, c), uncached.isVisible(r, c));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+   FlowField
+   Distance map toward a single target (normally the Hero), shared by every Monster on a turn.
+   It is computed once per turn by a breadth-first search outward from the target over every non-wall location
+   within a square window around it, moving in all eight directions like the Monsters do.  After that, finding the
+   best step for any Monster is a constant-time look at its eight neighbours, and Monsters follow corridors around
+   walls instead of getting stuck behind them.
+   The arrays are reused from turn to turn, so computing the field allocates nothing once it is warmed up.
+ */
+
+import java.util.Arrays;
+
+public class FlowField {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE; // distance of locations the search didn't reach
+
+    private final int radius; // how far from the target the field extends, in each direction
+
+    // window of the level covered by the field
+    private int top;
+    private int left;
+    private int height;
+    private int width;
+
+    private int[] distance; // steps to the target for each location in the window
+    private int[] queue;    // breadth-first search queue, as window indices
+
+    // what the field was last computed for; walls are all that matter, so it stays valid until they change
+    private Level computedLevel;
+    private int computedRow;
+    private int computedColumn;
+    private int computedVersion;
+
+    /**
+       Constructor.
+       @param radius How far the field extends from the target in each direction.
+                     Monsters further away than this get no suggestion from the field.
+     */
+    public FlowField(int radius) {
+        this.radius = radius;
+    }
+
+    // getter for radius
+    public int getRadius() {return radius;}
+
+    /**
+       Computes the distance from every location within the window to the target.
+       Nothing is recomputed if the target hasn't moved and no walls have changed since the last call.
+       @param level Level to compute the field on
+       @param r row of the target
+       @param c column of the target
+     */
+    public void compute(Level level, int r, int c) {
+        if (level == computedLevel && r == computedRow && c == computedColumn
+            && level.getTerrainVersion() == computedVersion) {
+            return; // still valid
+        }
+        computedLevel = level;
+        computedRow = r;
+        computedColumn = c;
+        computedVersion = level.getTerrainVersion();
+
+        top = Math.max(0, r - radius);
+        left = Math.max(0, c - radius);
+        height = Math.min(level.getRowSize(), r + radius + 1) - top;
+        width = Math.min(level.getColumnSize(), c + radius + 1) - left;
+        int size = height * width;
+        if (distance == null || distance.length < size) { // grow the arrays if the window got larger
+            distance = new int[size];
+            queue = new int[size];
+        }
+        Arrays.fill(distance, 0, size, UNREACHABLE);
+
+        int start = (r - top) * width + (c - left);
+        distance[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int current = queue[head++];
+            int cr = current / width;
+            int cc = current % width;
+            int next = distance[current] + 1;
+            for (int dR = -1; dR <= 1; dR++) {
+                int nr = cr + dR;
+                if (nr < 0 || nr >= height) {continue;}
+                for (int dC = -1; dC <= 1; dC++) {
+                    int nc = cc + dC;
+                    if (nc < 0 || nc >= width) {continue;}
+                    int neighbour = nr * width + nc;
+                    if (distance[neighbour] != UNREACHABLE) {continue;} // already reached (this includes current)
+                    if (level.isWall(nr + top, nc + left)) {continue;}
+                    distance[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+       Returns the number of steps from a location to the target.
+       @param r row of the location
+       @param c column of the location
+       @return steps to the target, or UNREACHABLE if the location is a wall, cut off, or outside the field
+     */
+    public int getDistance(int r, int c) {
+        int wr = r - top;
+        int wc = c - left;
+        if (wr < 0 || wr >= height || wc < 0 || wc >= width) {return UNREACHABLE;}
+        return distance[wr * width + wc];
+    }
+
+    /**
+       Suggests a 1-square move toward the target for a Monster.
+       Only moves that get strictly closer to the target are suggested; walls and other Monsters may not be moved onto.
+       The target's own location CAN be moved onto; this represents an attack.
+       @param level Level the field was computed on
+       @param r row of the monster
+       @param c column of the monster
+       @return {row, column} of the suggested destination; the current location if no move gets closer,
+               or null if the monster is outside the field (or cut off from the target)
+     */
+    public int[] suggestMove(Level level, int r, int c) {
+        int best = getDistance(r, c);
+        if (best == UNREACHABLE) {return null;}
+        int[] move = {r, c};
+        for (int dR = -1; dR <= 1; dR++) {
+            for (int dC = -1; dC <= 1; dC++) {
+                int pR = r + dR; // possible destination row
+                int pC = c + dC; // possible destination column
+                int pD = getDistance(pR, pC);
+                if (pD < best && !level.hasMonster(pR, pC)) { // closer, and not blocked by another monster
+                    best = pD;
+                    move[0] = pR;
+                    move[1] = pC;
+                }
+            }
+        }
+        return move;
+    }
+
+    /**
+       Moves a Monster several steps toward the target in one go, as if it had been moving for that many turns.
+       The walk stops next to the target rather than attacking it, and never ends on another Monster.
+       @param level Level the field was computed on
+       @param r row of the monster
+       @param c column of the monster
+       @param steps greatest number of steps to take
+       @return {row, column} of where the walk ends up, or null if the monster is outside the field
+     */
+    public int[] advance(Level level, int r, int c, int steps) {
+        int current = getDistance(r, c);
+        if (current == UNREACHABLE) {return null;}
+        int[] position = {r, c};
+        for (int step = 0; step < steps && current > 1; step++) {
+            int bestR = -1;
+            int bestC = -1;
+            for (int dR = -1; dR <= 1; dR++) {
+                for (int dC = -1; dC <= 1; dC++) {
+                    int pR = position[0] + dR;
+                    int pC = position[1] + dC;
+                    int pD = getDistance(pR, pC);
+                    if (pD < current && !level.hasMonster(pR, pC)) {
+                        current = pD;
+                        bestR = pR;
+                        bestC = pC;
+                    }
+                }
+            }
+            if (bestR < 0) {break;} // boxed in
+            position[0] = bestR;
+            position[1] = bestC;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+   GameEvent
+   Something that happened in the game that the player may want to be told about.
+   Events record what happened rather than how to say it; they are only turned into text when somebody displays
+   them, and how much detail is shown is up to whoever does.
+ */
+
+import java.util.List;
+
+public abstract class GameEvent {
+
+    // verbosity levels, from least to most detail
+    public static final int NORMAL  = 0; // what a player needs to know
+    public static final int VERBOSE = 1; // details such as dice rolls
+
+    /**
+       Describes the event, in as many lines as it takes.
+       @param verbosity greatest level of detail to include (NORMAL or VERBOSE)
+       @param lines list the lines of text are added to
+     */
+    public abstract void render(int verbosity, List<String> lines);
+}
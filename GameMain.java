@@ -7,21 +7,28 @@
 
 import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.List;
 import javax.swing.JFrame;
 
 public class GameMain {
 
     private static final String MONSTER_LIST = "monster-list.txt";
     private static final String ITEM_LIST    = "item-list.txt";
+    private static final String CATALOG_CACHE = "catalog.cache"; // the lists, ready to use; rebuilt when they change
 
     public static void main(String[] args) throws IOException {
 
         String name = "";
 
+        // Read monster and item lists, before anything else, so any mistake in them is reported straight away
+        try {
+            Generator.useCatalog(CatalogLoader.load(Paths.get(MONSTER_LIST), Paths.get(ITEM_LIST),
+                                                    Paths.get(CATALOG_CACHE)));
+        } catch (CatalogException ex) {
+            System.err.println("ERROR: " + ex.getMessage());
+            System.exit(1);
+        }
+
         // Introduction screen and query for character name
         Introduction introduction = new Introduction();
         introduction.setSize(100, 200);
@@ -36,12 +43,8 @@ public class GameMain {
         }
         introduction.dispatchEvent(new WindowEvent(introduction, WindowEvent.WINDOW_CLOSING)); // get rid of introduction window
 
-        // Read monster list
-        List<String> monsters = Files.readAllLines(Paths.get(MONSTER_LIST), Charset.defaultCharset());
-        List<String> items = Files.readAllLines(Paths.get(ITEM_LIST), Charset.defaultCharset());
-
         // Set up main user interface screen
-        UserInterface ui = new UserInterface(name, monsters, items);
+        UserInterface ui = new UserInterface(name);
         ui.setVisible(true);
         ui.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         ui.pack();
@@ -4,42 +4,273 @@
    @author Everyone on the project, by this point
  */
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import static utils.RandomGen.*;
 import static utils.GameFunctions.*;
 
 public class GamePlay implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int VIEW_RADIUS = MAP_SIZE / 2; // how far the hero can see: to the edges of the map display
+    public static final int CHUNKED_DEPTH = MAX_LEVELS; // the bottom level is a vast one, laid out as it is explored
+    public static final int CHUNKED_SIZE  = 10000;      // rows and columns of that level
 
     private Level level; // physical level (not difficulty)
     private int depth;
     private Hero hero;
     private String killer;
     private boolean escaped;
-    private LinkedList<Monster> monsters;
     private Generator gen; // factory that handles generating things on a level
+    private GameRandom random; // random stream owned by this session alone
     private transient MessageQueue messages; // this is meant to be shared with UserInterface
+    private transient FlowField flow; // distances to the hero, shared by all monsters on a turn
+    private transient FieldOfView sight; // what the hero can see; created when first needed
+    private transient ArrayList<Monster> active; // monsters being moved on the current turn
+    private transient AttackResult attackResult; // filled in again by every attack, rather than allocating a new one
+    private int turn; // number of turns the monsters have had
+    private int activityRadius; // monsters further than this from the hero stay dormant; 0 means none do
+    private long seed; // where the random stream started; with the input log, this reproduces the whole session
+    private InputLog inputs; // every command given to this session
+    private transient LevelStore levels; // levels the hero has left, by depth; created when first needed
+    private transient LevelPregenerator pregenerator; // creates the next level down in the background; null if off
 
     /**
        Constructor.
-       Creates an instance of GamePlay from scratch; Hero is assumed to not already exist.
+       Creates an instance of GamePlay from scratch, with a random stream seeded off the shared generator.
        @param name Name of the Hero.
      */
     public GamePlay(String name) {
+        this(name, new GameRandom(rand.nextLong()));
+    }
+
+    /**
+       Constructor.
+       Creates an instance of GamePlay from scratch with an explicit seed.  Equal seeds give equal games, and given the
+         same commands, they stay equal.
+       @param name Name of the Hero.
+       @param seed Seed for the session's random stream.
+     */
+    public GamePlay(String name, long seed) {
+        this(name, new GameRandom(seed));
+    }
+
+    /**
+       Constructor.
+       Creates an instance of GamePlay from scratch, drawing all of its random numbers from the given stream.
+       Sessions with different streams are fully independent and may be run concurrently.
+       @param name Name of the Hero.
+       @param random Random stream for this session; it must not be shared with another session.
+     */
+    public GamePlay(String name, GameRandom random) {
+        this.random = random;
+        seed = random.getState(); // a stream started from this seed repeats this one exactly
+        inputs = new InputLog();
         hero = new Hero(name);  // Create our hero
-        level = new Level(ROW_SIZE, COLUMN_SIZE);
+        level = new Level(ROW_SIZE, COLUMN_SIZE, random);
         depth = 1;
-        gen = new Generator(depth);
+        gen = new Generator(depth, random);
         escaped = false;
-        monsters = new LinkedList<>();
         populateLevel();    // put hero, monsters, etc. on level
+        explore();
         messages = null;
     }
 
+    /**
+       Constructor for load(); everything is filled in from the save.
+     */
+    private GamePlay() {}
+
+    /**
+       Writes this game to a save.  See SaveWriter for the format.
+       @param out where to write the game; it is finished (checksum written) but not closed
+       @throws IOException if the game cannot be written
+     */
+    public void save(SaveWriter out) throws IOException {
+        out.writeVarInt(depth);
+        out.writeString(killer);
+        out.writeBoolean(escaped);
+        out.writeInt(turn);
+        out.writeVarInt(activityRadius);
+        out.writeLong(random.getState());
+
+        // the hero: only base statistics are saved; the rest follows from the equipment
+        out.writeString(hero.getName());
+        out.writeSignedVarInt(hero.getHealth());
+        out.writeSignedVarInt(hero.getMaxHealth());
+        out.writeSignedVarInt(hero.getBaseAccuracy());
+        out.writeSignedVarInt(hero.getEvasion());
+        out.writeVarInt(hero.getRow());
+        out.writeVarInt(hero.getColumn());
+        out.writeVarInt(hero.getGold());
+        writeOptionalItem(hero.getWeapon(), out);
+        writeOptionalItem(hero.getArmor(), out);
+        out.writeVarInt(HERO_MAX_ITEMS);
+        for (int i = 0; i < HERO_MAX_ITEMS; i++) {
+            writeOptionalItem(hero.getItem(i), out);
+        }
+
+        LevelCodec.write(level, out);
+
+        // how to get here from scratch, in case the game needs to be replayed (say, to reproduce a bug)
+        out.writeLong(seed);
+        inputs.write(out);
+
+        // the levels the hero has left, to come back to
+        getLevelStore().write(out, random);
+        out.finish();
+    }
+
+    /**
+       Writes this game to a replay save: just the seed and the commands given so far.  Such a save is tiny, but
+         loading it means playing the whole game again (without a display, so this is quick).
+       @param out where to write the game; it must have been created with SaveWriter.FLAG_REPLAY.  It is finished
+              (checksum written) but not closed.
+       @throws IOException if the game cannot be written
+     */
+    public void saveReplay(SaveWriter out) throws IOException {
+        out.writeString(hero.getName());
+        out.writeLong(seed);
+        out.writeLong(Generator.getCatalogFingerprint());
+        inputs.write(out);
+        out.finish();
+    }
+
+    /**
+       Plays a game from scratch: creates it from a seed, then gives it every command from an input log.
+       @param name Name of the Hero
+       @param seed Seed the game was created with
+       @param log Commands to give it
+       @return the game, in the state the commands leave it in
+     */
+    public static GamePlay replay(String name, long seed, InputLog log) {
+        GamePlay game = new GamePlay(name, seed);
+        log.replay(game);
+        return game;
+    }
+
+    /**
+       Reads a game from a save written by save() or saveReplay().
+       @param in where to read the game from; it is checked against its checksum but not closed
+       @return the game, without a message queue
+       @throws IOException if the game cannot be read, the save is damaged, or (for a replay save) the monster and
+               item lists are not the ones the game was played with
+     */
+    public static GamePlay load(SaveReader in) throws IOException {
+        if (in.isReplay()) {
+            String name = in.readString();
+            long seed = in.readLong();
+            if (in.readLong() != Generator.getCatalogFingerprint()) {
+                throw new IOException("monster or item lists have changed since this game was saved");
+            }
+            InputLog log = InputLog.read(in);
+            in.finish(); // check the save before spending time on it
+            return replay(name, seed, log);
+        }
+
+        GamePlay game = new GamePlay();
+        game.depth = in.readVarInt();
+        game.killer = in.readString();
+        game.escaped = in.readBoolean();
+        game.turn = in.readInt();
+        game.activityRadius = in.readVarInt();
+        game.random = new GameRandom(in.readLong());
+
+        Hero hero = new Hero(in.readString());
+        hero.setHealth(in.readSignedVarInt());
+        hero.setMaxHealth(in.readSignedVarInt());
+        hero.setAccuracy(in.readSignedVarInt());
+        hero.setEvasion(in.readSignedVarInt());
+        hero.setRow(in.readVarInt());
+        hero.setColumn(in.readVarInt());
+        hero.addGold(in.readVarInt());
+        Item weapon = readOptionalItem(in);
+        Item armor = readOptionalItem(in);
+        if ((weapon != null && !weapon.isWeapon()) || (armor != null && !armor.isArmor())) {
+            throw new IOException("malformed saved game: equipment in the wrong slot");
+        }
+        hero.setWeapon((Weapon) weapon);
+        hero.setArmor((Armor) armor);
+        hero.setDamage();
+        hero.setArmorClass();
+        int slots = in.readVarInt();
+        if (slots > HERO_MAX_ITEMS) {throw new IOException("malformed saved game: too many inventory slots");}
+        for (int i = 0; i < slots; i++) {
+            hero.setItem(i, readOptionalItem(in));
+        }
+        game.hero = hero;
+
+        game.level = LevelCodec.read(in, game.random);
+        if (hero.getRow() >= game.level.getRowSize() || hero.getColumn() >= game.level.getColumnSize()
+            || game.level.hasMonster(hero.getRow(), hero.getColumn())
+            || game.level.isWall(hero.getRow(), hero.getColumn())) {
+            throw new IOException("malformed saved game: misplaced hero");
+        }
+        game.level.getTile(hero.getRow(), hero.getColumn()).setCreature(hero);
+        game.gen = new Generator(game.depth, game.random);
+        game.seed = in.readLong();
+        game.inputs = InputLog.read(in);
+        game.getLevelStore().read(in, game.random);
+        in.finish();
+        return game;
+    }
+
+    /**
+       Writes an Item that may be missing (an empty slot).
+       @param item Item to write, or null
+       @param out where to write it
+       @throws IOException if the Item cannot be written
+     */
+    private static void writeOptionalItem(Item item, SaveWriter out) throws IOException {
+        out.writeBoolean(item != null);
+        if (item != null) {LevelCodec.writeItem(item, out);}
+    }
+
+    /**
+       Reads an Item written by writeOptionalItem.
+       @param in where to read it from
+       @return the Item, or null
+       @throws IOException if the Item cannot be read
+     */
+    private static Item readOptionalItem(SaveReader in) throws IOException {
+        return (in.readBoolean() ? LevelCodec.readItem(in) : null);
+    }
+
     // getter for depth
     public int getDepth() {return depth;}
     
-    // setters for messageQueue
+    // getter for the current level
+    public Level getLevel() {return level;}
+
+    /**
+       Returns the store of Levels the Hero has left, creating it if there is none yet.
+       @return the store
+     */
+    public LevelStore getLevelStore() {
+        if (levels == null) {levels = new LevelStore(LevelStore.DEFAULT_CAPACITY);}
+        return levels;
+    }
+
+    // getter and setter for the activity radius
+    public int getActivityRadius() {return activityRadius;}
+
+    /**
+       Sets how close to the Hero a Monster must be to take its turn.
+       Monsters further away go dormant and cost nothing per turn; when one comes back within the radius, it first
+         catches up on the moves it missed, all at once, before moving as usual.
+       @param radius greatest distance (in moves) at which Monsters are active; 0 to keep every Monster active
+     */
+    public void setActivityRadius(int radius) {
+        inputs.radius(radius); // this changes how the game plays out, so a replay needs it too
+        activityRadius = radius;
+    }
+
+    // getters for what it takes to replay this session
+    public long getSeed() {return seed;}
+    public InputLog getInputLog() {return inputs;}
+
+    // setters for messageQueue; without one (as in headless runs) messages are simply dropped
     public void setMessageQueue(MessageQueue mq) {messages = mq;}
 
     // getters for Hero attributes
@@ -53,10 +284,20 @@ public class GamePlay implements Serializable {
     public Armor getHeroArmor() {return hero.getArmor();}
     public String getHeroInventory() {return hero.getInventory();}
     public int getHeroGold() {return hero.getGold();}
+    public int getHeroRow() {return hero.getRow();}
+    public int getHeroColumn() {return hero.getColumn();}
     public boolean isHeroDead() {return hero.isDead();}
     public boolean hasHeroEscaped() {return escaped;}
     public String getKiller() {return killer;}
 
+    /**
+       Passes a message on to the message queue, if there is one.
+       @param s The message to be displayed
+     */
+    private void message(String s) {
+        if (messages != null) {messages.add(s);}
+    }
+
     /**
        Gets a view of the map centered on the Hero.
        This is currently represented as a String, but other representations are planned.
@@ -64,6 +305,35 @@ public class GamePlay implements Serializable {
      */
     public String getView() {return level.viewMap(hero.getRow(), hero.getColumn());}
 
+    /**
+       Brings a Viewport centered on the Hero up to date, working out which of its cells changed since the last time.
+       Only what the Hero can see is shown as it is; what it remembers of the rest of the Level is shown dimmed.
+       @param view Viewport to be updated
+       @return number of cells of the view that changed
+     */
+    public int updateView(Viewport view) {
+        return view.update(level, hero.getRow(), hero.getColumn(), getFieldOfView());
+    }
+
+    /**
+       Adds what the Hero can see from where it is now to what it remembers of the Level.
+       This happens at the start of every turn and on arriving on a Level, never because of the display, so the memory
+         comes out the same in a replay.
+     */
+    private void explore() {
+        level.getExploredMap().explore(level, getFieldOfView());
+    }
+
+    /**
+       Returns what the Hero can see from where it is now.
+       @return the Hero's FieldOfView, brought up to date
+     */
+    public FieldOfView getFieldOfView() {
+        if (sight == null) {sight = new FieldOfView(VIEW_RADIUS);}
+        sight.compute(level, hero.getRow(), hero.getColumn());
+        return sight;
+    }
+
     /**
        Places a Creature at the specified coordinates of the level.
        This routine expects that the destination is valid, but will report errors if not.
@@ -133,6 +403,7 @@ public class GamePlay implements Serializable {
 
         creature.setRow(nextRow);//update creatures internal reference to the occupied columns
         creature.setColumn(nextColumn);//update creatures internal reference to the occupied row
+        if (creature.isMonster()) {level.getMonsters().moved((Monster) creature);} // keep spatial index current
         return true;
     }
 
@@ -152,79 +423,273 @@ public class GamePlay implements Serializable {
 
         // Place hero
         spot = level.getEmptyTile(); // Get random empty spot to place hero in
+        if (spot == null) {
+            System.err.println("FATAL ERROR: no room on the level for the hero");
+            return false;
+        }
         hero.setLocation(spot); // Notify hero of the location at which he will be placed
         level.getTile(spot).setCreature(hero);  // place hero at spot
 
+        return fillLevel(level, gen, random, turn);
+    } //end of method populateLevel
+
+    /**
+       Creates a Level below the first, complete with everything on it, except the Hero.
+       The Level draws from a random stream of its own, derived from the session's seed and the depth, so it comes out
+         the same whenever and on whichever thread it is created; this is what allows creating it ahead of time, in the
+         background (see LevelPregenerator).  It has stairs up on the spot where the Hero is to arrive.
+       The Level at CHUNKED_DEPTH is a chunked one, CHUNKED_SIZE on a side (see Level.createChunked); everything on it
+         starts out around a random spot, where the Hero arrives, and the rest is only laid out as it is explored.
+       Once the Level is in play, it should be handed the session's own stream with Level.setRandom.
+       @param seed Seed of the game session
+       @param depth Depth of the Level
+       @return the Level
+     */
+    public static Level generateLevel(long seed, int depth) {
+        GameRandom random = new GameRandom(GameRandom.mix(seed ^ depth));
+        Level level;
+        if (depth == CHUNKED_DEPTH) { // everything goes around a random spot, and the rest is laid out as it is found
+            level = Level.createChunked(CHUNKED_SIZE, CHUNKED_SIZE, random);
+            level.keepNear(random.nextInt(CHUNKED_SIZE), random.nextInt(CHUNKED_SIZE), VIEW_RADIUS);
+        } else {
+            level = new Level(ROW_SIZE, COLUMN_SIZE, random);
+        }
+        int[] spot = level.getEmptyTile(); // where the hero arrives
+        if (spot == null) {
+            System.err.println("FATAL ERROR: no room on the level for the hero");
+            return level;
+        }
+        level.getTile(spot).setUpStairs();
+        fillLevel(level, new Generator(depth, random), random, 0);
+        return level;
+    }
+
+    /**
+       Places Monsters, stairs down, Items, and gold on a Level.
+       @param level Level to fill
+       @param gen factory for the things to place
+       @param random random stream to draw from
+       @param turn current turn, when the Monsters start out
+       @return true if successful, false if the Level ran out of room
+     */
+    private static boolean fillLevel(Level level, Generator gen, GameRandom random, int turn) {
+        int[] spot; // this holds the coordinates for a valid location
+
         // Place monsters
-        for (int i = 0; i < randRange(MIN_MONSTERS, MAX_MONSTERS); i++) {
-            Monster monster = gen.generateMonster(); // create monster
+        int count = random.randRange(MIN_MONSTERS, MAX_MONSTERS); // decide how many before placing any
+        for (int i = 0; i < count; i++) {
             spot = level.getEmptyTile(); // Get random empty spot to place monster in
+            if (spot == null) {return false;} // level is full
+            Monster monster = gen.generateMonster(); // create monster
             monster.setLocation(spot); //notify monster of the location at which he will be placed
+            monster.setLastActiveTurn(turn); // nothing to catch up on before it arrived
             level.getTile(spot).setCreature(monster); //place monster at spot
-            monsters.add(monster); // add monster to list of monsters
+            level.getMonsters().add(monster); // add monster to the level's registry of monsters
         }
 
-        // Place stairs (only down stairs are currently supported; and only place one staircase)
+        // Place stairs down (stairs up, if any, go where the hero arrives)
         spot = level.getEmptyTile();
+        if (spot == null) {return false;} // level is full
         level.getTile(spot).setDownStairs();
 
         // Place items
-        for (int i = 0; i < randRange(MIN_ITEMS, MAX_ITEMS); i++) {
+        count = random.randRange(MIN_ITEMS, MAX_ITEMS);
+        for (int i = 0; i < count; i++) {
             spot = level.getEmptyTile(); // Get random empty spot to place item in
+            if (spot == null) {return false;} // level is full
             level.getTile(spot).setItem(gen.generateItem()); // put a randomly generated Item there
         }
 
         // Place gold
-        for (int i = 0; i < randRange(MIN_GOLD, MAX_GOLD); i++) {
+        count = random.randRange(MIN_GOLD, MAX_GOLD);
+        for (int i = 0; i < count; i++) {
             spot = level.getEmptyTile(); // Get random empty spot to place gold in
+            if (spot == null) {return false;} // level is full
             level.getTile(spot).setGold(gen.generateGold());
         }
 
         return true;
-    } //end of method populateLevel
+    }
 
     /**
        Move to another dungeon Level.
-       The entire old Level, with the exception of the Hero, is forgotten; keeping the old level is currently unsupported.
+       The old Level, with the exception of the Hero, goes into the LevelStore, to be found as it was left if the Hero
+         comes back; the new one is taken out of it.  Time stands still on a Level while the Hero is away: its Monsters do not catch up on the turns
+         they missed.
+       A Level not visited before is created and populated, unless it was already created in the background (see
+         setBackgroundGeneration).  Either way, the Hero arrives on the staircase leading back where he came from, or
+         as near to it as there is room; if the new Level has no room for him at all, he stays where he is.
        @author Stephen S. Lee
        @param depth The depth of the destination Level.
      */
     private void changeLevel(int depth) {
         if (hero == null || level == null) { // cannot change level without an already existing hero and level
             System.err.println("FATAL ERROR: cannot change level without an already existing hero and level");
+            return;
         } else if (depth > MAX_LEVELS) { // cannot go beyond maximum level
             System.err.println("FATAL ERROR: cannot go beyond maximum depth of " + MAX_LEVELS);
+            return;
+        } else if (depth < 1) { // nor above the top one
+            System.err.println("FATAL ERROR: cannot go above the top level of the dungeon");
+            return;
+        }
+        boolean down = (depth > this.depth);
+        Level next; // the level in play is never in the store, so the one arrived on is taken out of it
+        try {
+            next = getLevelStore().take(depth, random);
+        } catch (IOException ex) { // that level is lost, which is a pity but not fatal
+            System.err.println("ERROR: cannot read back dungeon level: " + ex.getMessage());
+            next = null;
+        }
+        if (next == null && down) { // somewhere new, which may be ready already
+            next = (pregenerator != null ? pregenerator.take(depth) : null);
+            if (next == null) {next = generateLevel(seed, depth);}
+            next.setRandom(random); // from now on it draws from the session's stream, like every other level
         }
-        level = new Level(ROW_SIZE, COLUMN_SIZE); // create brand new level
+
+        // where the hero arrives: the staircase leading back, or as near to it as there is room
+        int[] spot = null;
+        if (next != null) {
+            spot = next.findFeature(down ? LevelGrid.FEATURE_STAIRS_UP : LevelGrid.FEATURE_STAIRS_DOWN);
+            if (spot == null || next.getTile(spot).hasCreature()) {spot = findRoomNear(next, spot);}
+            if (spot == null) { // nowhere to stand; the hero stays where he is
+                System.err.println("ERROR: no room for the hero on dungeon level " + depth);
+                message("The way is blocked.");
+                keepLevel(depth, next);
+                return;
+            }
+        }
+
+        level.getTile(hero.getRow(), hero.getColumn()).setCreature(null); // the hero takes nothing of himself along
+        keepLevel(this.depth, level);
+        level = next;
         this.depth = depth;
-        monsters = new LinkedList<>(); // reset monster list
-        populateLevel(); // put hero, monsters, etc. on level
+        gen = new Generator(depth, random); // generate things appropriate to the new depth
+
+        if (level == null) { // only happens if the level above was lost: it could not be read back
+            level = new Level(ROW_SIZE, COLUMN_SIZE, random);
+            populateLevel(); // put hero, monsters, etc. on level
+            if (depth > 1) {level.getTile(hero.getRow(), hero.getColumn()).setUpStairs();} // a way further up
+        } else {
+            MonsterRegistry monsters = level.getMonsters();
+            for (int i = 0; i < monsters.size(); i++) { // nothing happened while the hero was away (or before he came)
+                monsters.get(i).setLastActiveTurn(turn);
+            }
+            hero.setLocation(spot);
+            level.getTile(spot).setCreature(hero);
+        }
+        explore();
+        prepareNextLevel();
+    }
+
+    /**
+       Turns creating the next Level down in the background on or off.
+       While it is on, the next Level is created on a worker thread as soon as the Hero arrives on a Level, so going
+         down the stairs need not wait for it.  This does not change the game in any way: every Level below the first
+         comes out the same whether or not it was created in the background.
+       Headless runs leave this off; they have better uses for the other cores.
+       @param on true to create Levels in the background, false to create them when they are needed
+     */
+    public void setBackgroundGeneration(boolean on) {
+        if (on && pregenerator == null) {
+            pregenerator = new LevelPregenerator(seed);
+            prepareNextLevel();
+        } else if (!on && pregenerator != null) {
+            pregenerator.cancel();
+            pregenerator = null;
+        }
+    }
+
+    /**
+       Starts creating the Level below this one in the background, if that is on and the Level is not there already.
+     */
+    private void prepareNextLevel() {
+        if (pregenerator != null && depth < MAX_LEVELS && !getLevelStore().contains(depth + 1)) {
+            pregenerator.start(depth + 1);
+        }
+    }
+
+    /**
+       Puts a Level in the store, for when the Hero comes back.
+       @param depth depth of the Level
+       @param level Level to keep; the Hero must not be on it
+     */
+    private void keepLevel(int depth, Level level) {
+        try {
+            getLevelStore().put(depth, level);
+        } catch (IOException ex) { // some level is lost, which is a pity but not fatal
+            System.err.println("ERROR: cannot store dungeon level: " + ex.getMessage());
+        }
+    }
+
+    /**
+       Finds a place for the Hero as near as possible to where he should arrive, when something else is there.
+       @param level Level the Hero is arriving on
+       @param spot {row, column} of where the Hero should arrive, or null if anywhere will do
+       @return {row, column} of an open Tile next to it if there is one, or else of a random empty Tile; null if the
+               Level has no room at all
+     */
+    private static int[] findRoomNear(Level level, int[] spot) {
+        if (spot != null) {
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = spot[0] + dr;
+                    int c = spot[1] + dc;
+                    if (r < 0 || c < 0 || r >= level.getRowSize() || c >= level.getColumnSize()) {continue;}
+                    Tile tile = level.getTile(r, c);
+                    if (!tile.isWall() && !tile.hasCreature()) {return new int[] {r, c};}
+                }
+            }
+        }
+        return level.getEmptyTile();
     }
 
     /**
        Descend stairs.
-       Currently, this simply creates a new Level with a depth 1 greater than the current one, then moves the Hero there.
+       Moves the Hero to the Level with a depth 1 greater than the current one, creating it if he has not been there.
        @author Stephen S. Lee
      */
     public void descendStairs() {
+        inputs.descend();
         if (level.getTile(hero.getRow(), hero.getColumn()).hasDownStairs()) {
             if (depth >= MAX_LEVELS) {
-                messages.add("You are exiting the bottom level of the dungeon.");
-                messages.add("You have escaped!");
+                message("You are exiting the bottom level of the dungeon.");
+                message("You have escaped!");
                 escaped = true;
+            } else if (getLevelStore().contains(depth + 1)) {
+                message("You go down the staircase and return to a dungeon level you have visited before.");
+                changeLevel(depth + 1);
             } else {
-                depth++;
-                messages.add("You go down the staircase and emerge upon a new dungeon level.");
-                changeLevel(depth);
+                message("You go down the staircase and emerge upon a new dungeon level.");
+                changeLevel(depth + 1);
             }
         } else {
-            messages.add("There is no down staircase here.");
+            message("There is no down staircase here.");
+        }
+    }
+
+    /**
+       Ascend stairs.
+       Moves the Hero back to the Level with a depth 1 less than the current one.
+     */
+    public void ascendStairs() {
+        inputs.ascend();
+        if (level.getTile(hero.getRow(), hero.getColumn()).hasUpStairs() && depth > 1) {
+            message("You go up the staircase and return to a dungeon level you have visited before.");
+            changeLevel(depth - 1);
+        } else {
+            message("There is no up staircase here.");
         }
     }
 
     /**
        Moves all Monsters of the map.
        Each Monster is considered in turn, and tries to move toward and attack the Hero.
+       A single FlowField toward the Hero is computed first and shared by all of them, so each Monster's move is a
+         constant-time lookup that follows corridors around walls.
+       If an activity radius is set, only Monsters within it are considered, found through the spatial index; the
+         cost of a turn then depends on how crowded it is near the Hero, not on how many Monsters the Level holds.
+       A Monster only starts hunting the Hero once it has been in the Hero's field of view; until then it waits.
        @precondition    Creatures exist
        @precondition    level exists
      */
@@ -232,20 +697,74 @@ public class GamePlay implements Serializable {
         // Monsters always attempt to converge on the hero's location, which we need to know
         int heroRow = hero.getRow();
         int heroCol = hero.getColumn();
-
-        for (Monster mon : monsters) {
-            int monRow = mon.getRow();
-            int monCol = mon.getColumn();
-            int[] destination = level.suggestMove(monRow, monCol, heroRow, heroCol);
-            if (level.getTile(destination).getCreature() == hero) { // monster initiates fight with hero
-                initiateFight(level.getTile(monRow, monCol).getCreature(), hero);
-            } else { // monster moves towards the hero
-                placeCreature(level.getTile(monRow, monCol).getCreature(), destination[0], destination[1]);
+        turn++;
+
+        // The field covers the whole level, unless only monsters near the hero are active; then it needs to reach a
+        // little past them, to leave room for routes around walls
+        int flowRadius = (activityRadius > 0 ? 2 * activityRadius : Math.max(ROW_SIZE, COLUMN_SIZE));
+        if (flow == null || flow.getRadius() != flowRadius) {flow = new FlowField(flowRadius);}
+        flow.compute(level, heroRow, heroCol);
+        explore(); // who can see the hero, and what the hero sees
+        level.keepNear(heroRow, heroCol, Math.max(flowRadius, VIEW_RADIUS)); // on a chunked level, that is all
+
+        MonsterRegistry monsters = level.getMonsters();
+        if (activityRadius <= 0) { // everybody moves
+            for (int i = 0; i < monsters.size(); i++) {
+                moveMonster(monsters.get(i), heroRow, heroCol);
+            }
+        } else { // only monsters near the hero move
+            if (active == null) {active = new ArrayList<>();}
+            active.clear();
+            monsters.within(heroRow, heroCol, activityRadius, active);
+            for (Monster mon : active) {
+                catchUp(mon);
+                moveMonster(mon, heroRow, heroCol);
             }
         }
 
     } //end of method moveMonsters
 
+    /**
+       Gives a single Monster its move for the current turn.
+       @param mon Monster to be moved
+       @param heroRow row of the hero
+       @param heroCol column of the hero
+     */
+    private void moveMonster(Monster mon, int heroRow, int heroCol) {
+        int monRow = mon.getRow();
+        int monCol = mon.getColumn();
+        if (!mon.isAware()) {
+            if (!sight.isVisible(monRow, monCol)) { // hasn't noticed the hero yet
+                mon.setLastActiveTurn(turn);
+                return;
+            }
+            mon.setAware(true); // line of sight goes both ways
+        }
+        int[] destination = flow.suggestMove(level, monRow, monCol);
+        if (destination == null) { // monster can't reach the hero; just head in the general direction
+            destination = level.suggestMove(monRow, monCol, heroRow, heroCol);
+        }
+        if (level.getTile(destination).getCreature() == hero) { // monster initiates fight with hero
+            initiateFight(mon, hero);
+        } else { // monster moves towards the hero
+            placeCreature(mon, destination[0], destination[1]);
+        }
+        mon.setLastActiveTurn(turn);
+    }
+
+    /**
+       Brings a Monster that has been dormant up to date, by moving it along the FlowField for all the turns it
+         missed in a single step.  Dormant Monsters only ever close in on the Hero; they never attack while catching up.
+       @param mon Monster that is about to become active
+     */
+    private void catchUp(Monster mon) {
+        if (!mon.isAware()) {return;} // it would have been waiting all along
+        int missed = turn - mon.getLastActiveTurn() - 1;
+        if (missed <= 0) {return;}
+        int[] destination = flow.advance(level, mon.getRow(), mon.getColumn(), missed);
+        if (destination != null) {placeCreature(mon, destination[0], destination[1]);}
+    }
+
     /**
        Initiates a fight between an attacking Creature and a defending Creature.
        This method will adjudicate fights between any two creatures.
@@ -255,47 +774,17 @@ public class GamePlay implements Serializable {
      */
 
     public void initiateFight(Creature attacker, Creature defender) {
-        // Get creature names and add articles to monster names
-        String attackerName = attacker.getName();
-        killer = attackerName; // assign blame if the hero is killed
-        String defenderName = defender.getName();
-        if (attacker.isMonster()) {attackerName = "the " + attackerName;}
-        if (defender.isMonster()) {defenderName = "the " + defenderName;}
-
-        messages.add(attackerName + " is attacking " + defenderName);
-        int[] result = attacker.attack(defender); // this returns the results of the attack as defined in Creature.java
-        
-        // result[] is specified in Creature.java
-        // This should be rewritten to be more comprehensible but we only have so much time
-        // Also, a lot of these combat messages are more for debugging than for actual gameplay        
-        if (result[0] > result[1]) { // display combat results for a hit
-            messages.add(attackerName + " hits " + defenderName + ".");
-            messages.add("(Accuracy roll " + result[0] + "/" + attacker.getAccuracy()
-                       + " versus evasion roll " + result[1] + "/" + defender.getEvasion() + ")");
-            if (defender.getArmorClass() > 0) { // defender has armor
-                if (result[3] == 0) { // but it didn't help
-                    messages.add("The armor of " + defenderName + " fails to absorb any damage.");
-                } else {
-                    messages.add("The armor of " + defenderName + " absorbs " + result[3] + " damage.");
-                }
-            }
-            messages.add(defenderName + " takes " + (result[2] - result[3]) + " damage "
-                       + "(out of a maximum of " + attacker.getDamage() + ").");
-            if ((result[2] - result[3]) > 0) {
-                messages.add(defenderName + " has " + defender.getHealth() + " hit points remaining.");
-            }
-        } else { // display combat results for a miss
-            messages.add(attackerName + " misses " + defenderName + ".");
-            messages.add("(Accuracy roll " + result[0] + "/" + attacker.getAccuracy()
-                       + " versus evasion roll " + result[1] + "/" + defender.getEvasion() + ")");
-        }
-        
-        if (defender.isDead()) {
-            messages.add(defenderName + " has been killed!");
+        killer = attacker.getName(); // assign blame if the hero is killed
+        if (attackResult == null) {attackResult = new AttackResult();}
+        attacker.attack(defender, random, attackResult); // this fills in the results of the attack
 
-            // We need to now delete the defender both from the level and the list of monsters
+        // The attack is reported as a single event, only turned into text if somebody is listening
+        if (messages != null) {messages.add(new CombatEvent(attacker, defender, attackResult));}
+
+        if (defender.isDead()) {
+            // We need to now delete the defender both from the level and the registry of monsters
             level.getTile(defender.getRow(), defender.getColumn()).setCreature(null); // removed from level
-            if (defender.isMonster()) {monsters.remove(defender);} // removed from internal monster list
+            if (defender.isMonster()) {level.getMonsters().remove((Monster) defender);} // removed from registry
         }
     }	//end of fight_sequence method
 
@@ -307,14 +796,15 @@ public class GamePlay implements Serializable {
        @param cChange change in columns
      */
     public void moveHero(int rChange, int cChange) {
+        inputs.move(rChange, cChange);
         int destRow   = hero.getRow() + rChange;         // row of destination Tile
         int destCol   = hero.getColumn() + cChange;      // column of destination Tile
         Tile destTile = level.getTile(destRow, destCol); // actual destination Tile
 
         if (destTile.isWall()) { // you are not allowed to walk into a wall
-            messages.add("You cannot walk there; there is a wall in your way.");
+            message("You cannot walk there; there is a wall in your way.");
         } else if (rChange == 0 && cChange == 0) { // hero is passing a turn, the monsters do get to move
-            messages.add("You rest for a moment.");
+            message("You rest for a moment.");
             moveMonsters();
         } else if (destTile.hasCreature()) { // hero is moving onto a tile with a monster
             initiateFight(hero, destTile.getCreature());
@@ -324,16 +814,18 @@ public class GamePlay implements Serializable {
             
             // Describe what the hero sees on that tile
             if (destTile.hasGold()) {
-                messages.add("You see " + destTile.getGold() + " gold pieces here.");
+                message("You see " + destTile.getGold() + " gold pieces here.");
             }
             if (destTile.hasItem()) {
-                messages.add("There is a " + destTile.getItem().getName() + " here.");
+                message("There is a " + destTile.getItem().getName() + " here.");
                 if (destTile.getItem().isEquippable() && hero.hasItem(destTile.getItem())) {
-                    messages.add("You already have one of those, however.");
+                    message("You already have one of those, however.");
                 }
             }
             if (destTile.hasDownStairs()) { // inform player that there are stairs here
-                messages.add("You see a staircase leading down here.");
+                message("You see a staircase leading down here.");
+            } else if (destTile.hasUpStairs()) {
+                message("You see a staircase leading up here.");
             }
             moveMonsters();
         }
@@ -346,26 +838,27 @@ public class GamePlay implements Serializable {
        @return boolean true if anything was actually picked up, false if not
      */
     public boolean pickUpStuff() {
+        inputs.pickUp();
         Tile here = level.getTile(hero.getRow(), hero.getColumn());
         if (!(here.hasGold() || here.hasItem())) {
-            messages.add("There is nothing to pick up here.");
+            message("There is nothing to pick up here.");
             return false;
         } else { // pick up gold and items at the same time
             boolean pickedUp = false;
             if (here.hasGold()) {
                 int goldAdded = here.getGold();
-                messages.add("You pick up " + goldAdded + " gold pieces.");
+                message("You pick up " + goldAdded + " gold pieces.");
                 hero.addGold(goldAdded);
                 here.setGold(0);
                 pickedUp = true;
             }
             if (here.hasItem()) {
                 if (hero.addItem(here.getItem())) {
-                    messages.add("You pick up the " + here.getItem().getName() + ".");
+                    message("You pick up the " + here.getItem().getName() + ".");
                     pickedUp = true;
                     here.setItem(null); // delete item from the Tile
                 } else {
-                    messages.add("You have no space in your backpack for the " + here.getItem().getName() + ".");
+                    message("You have no space in your backpack for the " + here.getItem().getName() + ".");
                 }
             }
             if (pickedUp) {moveMonsters();} // if we picked up stuff here, it takes a move and the monsters also get to move
@@ -381,18 +874,19 @@ public class GamePlay implements Serializable {
        @return true if drop was successful, false if it wasn't
      */
     public boolean dropItem(int index) {
+        inputs.drop(index);
         Tile here = level.getTile(hero.getRow(), hero.getColumn());
         if (here.hasItem()) { // dropping an Item on a Tile that already has an Item isn't supported
-            messages.add("There is already an item on the floor here.");
+            message("There is already an item on the floor here.");
             return false;
         } else if (hero.getItem(index) == null) { // empty slot check
-            messages.add("You aren't holding anything in that slot.");
+            message("You aren't holding anything in that slot.");
             return false;
         } else {
             Item dropped = hero.getItem(index);
             hero.setItem(index, null);
             here.setItem(dropped);
-            messages.add("You drop the " + dropped.getName() + " on the floor.");
+            message("You drop the " + dropped.getName() + " on the floor.");
             return true;
         }
     }
@@ -404,18 +898,19 @@ public class GamePlay implements Serializable {
        @return true if equip was successful, false if it wasn't
      */
     public boolean equipItem(int index) {
+        inputs.equip(index);
         if (hero.getItem(index) == null) {
-            messages.add("You aren't holding anything in that inventory slot.");
+            message("You aren't holding anything in that inventory slot.");
             return false;
         } else if (!hero.getItem(index).isEquippable()) {
-            messages.add("You cannot equip that item.");
+            message("You cannot equip that item.");
             return false;
         } else if (hero.getItem(index).isWeapon()) {
             hero.equipWeapon(index);
-            messages.add("You wield the " + hero.getWeapon().getName() + ".");
+            message("You wield the " + hero.getWeapon().getName() + ".");
         } else if (hero.getItem(index).isArmor()) {
             hero.equipArmor(index);
-            messages.add("You put on the " + hero.getArmor().getName() + ".");
+            message("You put on the " + hero.getArmor().getName() + ".");
         } else {
             System.err.println("ERROR: tried to equip unknown type of item");
             return false;
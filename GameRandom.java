@@ -0,0 +1,105 @@
+/**
+   GameRandom
+   Random number stream owned by a single game session.
+   Every GamePlay gets its own stream, so sessions running side by side never share (or contend for) random state.
+   This is a SplitMix64 generator; it is small, fast, and its whole state is one long.
+ */
+
+import java.io.Serializable;
+
+public class GameRandom implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; // SplitMix64 increment
+
+    private long state; // current position in the stream
+
+    /**
+       Constructor.
+       @param seed Starting seed; equal seeds produce equal streams.
+     */
+    public GameRandom(long seed) {
+        state = seed;
+    }
+
+    /**
+       Returns the current position in the stream.
+       A new GameRandom seeded with this value continues the stream exactly where this one is.
+       @return current state
+     */
+    public long getState() {return state;}
+
+    /**
+       Scrambles a 64-bit value (the SplitMix64 finalizer).
+       Also useful for deriving independent seeds from a base seed.
+       @param z value to scramble
+       @return scrambled value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+       Returns the next 64 random bits.
+       @return random long
+     */
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+       Returns a random int in [0, bound).
+       @param bound upper bound (exclusive); must be positive
+       @return random int in [0, bound)
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        // rejection sampling on the top 31 bits avoids modulo bias
+        int bits;
+        int value;
+        do {
+            bits = (int) (nextLong() >>> 33);
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    /**
+       Returns a random boolean (a coin flip).
+       @return true or false with equal probability
+     */
+    public boolean nextBoolean() {return nextLong() < 0;}
+
+    /**
+       Returns a random double in [0, 1).
+       @return random double
+     */
+    public double nextDouble() {return (nextLong() >>> 11) * 0x1.0p-53;}
+
+    /**
+       Returns a random int in an inclusive range.
+       @param low lowest possible value
+       @param high highest possible value
+       @return random int in [low, high]
+     */
+    public int randRange(int low, int high) {return low + nextInt(high - low + 1);}
+
+    /**
+       Rolls a number of dice and totals them.
+       @param dice number of dice to roll
+       @param sides number of sides on each die
+       @return total of all the dice rolled
+     */
+    public int rollDice(int dice, int sides) {
+        int total = 0;
+        for (int i = 0; i < dice; i++) {
+            total += randRange(1, sides);
+        }
+        return total;
+    }
+}
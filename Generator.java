@@ -6,139 +6,292 @@
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import static utils.GameFunctions.*;
 import static utils.RandomGen.*;
 
 public class Generator implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     // Instance variables that influence what can be generated
     // Depth is currently the only supported variable
     private int depth;
+    private GameRandom random; // random stream of the game session doing the generating
 
     private static ArrayList<PossibleMonster> monsterList; // list of possible monsters
     private static ArrayList<PossibleWeapon> weaponList;   // list of possible weapons
     private static ArrayList<PossibleArmor> armorList;     // list of possible armors
 
+    // the same possible monsters, weapons, and armors, by name and statistics (see the key methods), for finding
+    // the templates of things read from a save
+    private static HashMap<String, PossibleMonster> monsterIndex;
+    private static HashMap<String, PossibleWeapon> weaponIndex;
+    private static HashMap<String, PossibleArmor> armorIndex;
+
+    // spawn tables built from the lists, by depth; built when first needed, and shared by every session
+    private static final ConcurrentHashMap<Integer, SpawnTable<PossibleMonster>> monsterTables
+        = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, SpawnTable<PossibleWeapon>> weaponTables
+        = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, SpawnTable<PossibleArmor>> armorTables
+        = new ConcurrentHashMap<>();
+
     /**
        Constructor.
        Supplied parameters affect the context in which Monsters, Items, etc. are created.
        @param depth Depth of the dungeon the Hero is currently on.
      */
     public Generator(int depth) {
+        this(depth, new GameRandom(rand.nextLong()));
+    }
+
+    /**
+       Constructor for a Generator that draws from a given random stream.
+       @param depth Depth of the dungeon the Hero is currently on.
+       @param random Random stream owned by the game session.
+     */
+    public Generator(int depth, GameRandom random) {
         this.depth = depth;
+        this.random = random;
+    }
+
+    /**
+       Puts a Catalog to use: from now on, everything generated comes from it.
+       @param catalog possible monsters, weapons, and armors; null to go back to having no lists read in
+     */
+    public static void useCatalog(Catalog catalog) {
+        monsterList = (catalog == null ? null : new ArrayList<>(catalog.getMonsters()));
+        weaponList = (catalog == null ? null : new ArrayList<>(catalog.getWeapons()));
+        armorList = (catalog == null ? null : new ArrayList<>(catalog.getArmors()));
+        indexMonsters();
+        indexItems();
+        monsterTables.clear();
+        weaponTables.clear();
+        armorTables.clear();
+    }
+
+    /**
+       Returns the Catalog in use, such as to put it back with useCatalog after trying out another.
+       @return possible monsters, weapons, and armors; null if the lists haven't both been read in yet
+     */
+    public static Catalog getCatalog() {
+        if (monsterList == null || weaponList == null || armorList == null) {return null;}
+        return new Catalog(monsterList, weaponList, armorList);
     }
 
     /**
        Read monster list text into monsterList.
-       This makes no attempt to trap errors in the input.
+       See CatalogLoader, which does the reading, for the syntax.
        @author Stephen S. Lee
        @param input Strings with comma-delimited monster information
+       @throws IllegalArgumentException if a line is not right; the message says which line, and what is wrong
      */
     public static void readMonsters(List<String> input) {
-        monsterList = new ArrayList<>();
-        for (String i : input) {
-            // Lines that begin with a '#' are comments; skip them
-            if (i.length() > 0 && i.charAt(0) == '#') {continue;}
-
-            String[] tokens = i.split(",");
-            PossibleMonster pm = new PossibleMonster(tokens[0],                    // name
-                                                     Integer.parseInt(tokens[1]),  // accuracy
-                                                     Integer.parseInt(tokens[2]),  // damage
-                                                     Integer.parseInt(tokens[3]),  // armor class
-                                                     Integer.parseInt(tokens[4]),  // health
-                                                     tokens[5].charAt(0));         // symbol
-            monsterList.add(pm);
+        CatalogLoader loader = new CatalogLoader();
+        try {
+            loader.readMonsters(input, "monster list");
+        } catch (CatalogException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
         }
+        monsterList = new ArrayList<>(loader.getCatalog().getMonsters());
+        indexMonsters();
+        monsterTables.clear();
     }
 
     /**
        Read item list text into the lists of possible different items.
-       This makes no attempt to trap errors in the input.
+       See CatalogLoader, which does the reading, for the syntax.
        @author Stephen S. Lee
        @param input Strings with comma-delimited item information
+       @throws IllegalArgumentException if a line is not right; the message says which line, and what is wrong
      */
     public static void readItems(List<String> input) {
-        // Initialize item lists
-        weaponList = new ArrayList<>();
-        armorList = new ArrayList<>();
-        
-        for (String i : input) {
-            // Lines that begin with a '#' are comments; skip them
-            if (i.length() > 0 && i.charAt(0) == '#') {continue;}
-
-            String[] tokens = i.split(",");
-            switch (tokens[0]) { // the first entry will say what kind of item this is
-                case "weapon":
-                    addPossibleWeapon(i);
-                break;
-                case "armor":
-                    addPossibleArmor(i);
-                break;
-                default:
-                    System.err.println("ERROR: unrecognized item type in items list");
-                break;
+        CatalogLoader loader = new CatalogLoader();
+        try {
+            loader.readItems(input, "item list");
+        } catch (CatalogException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+        weaponList = new ArrayList<>(loader.getCatalog().getWeapons());
+        armorList = new ArrayList<>(loader.getCatalog().getArmors());
+        indexItems();
+        weaponTables.clear();
+        armorTables.clear();
+    }
+
+    /**
+       Returns the spawn table for a depth, building it if it hasn't been built yet.
+       @param cache spawn tables already built, by depth
+       @param list list the table is built from
+       @param depth depth of the dungeon
+       @return the table
+     */
+    private static <T extends Spawnable> SpawnTable<T> table(ConcurrentHashMap<Integer, SpawnTable<T>> cache,
+                                                             List<T> list, int depth) {
+        SpawnTable<T> table = cache.get(depth);
+        if (table == null) { // two threads may both build it; they build the same table, and one is kept
+            table = new SpawnTable<>(list, depth);
+            SpawnTable<T> earlier = cache.putIfAbsent(depth, table);
+            if (earlier != null) {table = earlier;}
+        }
+        return table;
+    }
+
+    /**
+       Computes a fingerprint of the monster and item lists currently read in.
+       Replaying a game only reproduces it if the lists are the same as when it was played; this tells whether they are.
+       @return a number that changes (almost certainly) whenever anything in the lists changes
+     */
+    public static long getCatalogFingerprint() {
+        long h = 0;
+        for (PossibleMonster pm : monsterList) {
+            h = GameRandom.mix(h ^ pm.getName().hashCode());
+            h = GameRandom.mix(h ^ pm.getAccuracy() ^ ((long) pm.getDamage() << 16) ^ ((long) pm.getArmorClass() << 32)
+                                 ^ ((long) pm.getHealth() << 48) ^ pm.getSymbol());
+            h = spawning(h, pm);
+        }
+        for (PossibleWeapon pw : weaponList) {
+            h = GameRandom.mix(h ^ pw.getName().hashCode());
+            h = GameRandom.mix(h ^ pw.getAccuracy() ^ ((long) pw.getDamage() << 32) ^ pw.getSymbol());
+            h = spawning(h, pw);
+        }
+        for (PossibleArmor pa : armorList) {
+            h = GameRandom.mix(h ^ pa.getName().hashCode());
+            h = GameRandom.mix(h ^ pa.getArmorClass() ^ ((long) pa.getSymbol() << 32));
+            h = spawning(h, pa);
+        }
+        return h;
+    }
+
+    /**
+       Indexes the monster list by name and statistics.  Where two entries are the same, the first is found.
+     */
+    private static void indexMonsters() {
+        if (monsterList == null) {
+            monsterIndex = null;
+            return;
+        }
+        HashMap<String, PossibleMonster> index = new HashMap<>();
+        for (PossibleMonster pm : monsterList) {
+            String key = monsterKey(pm.getName(), pm.getAccuracy(), pm.getDamage(), pm.getArmorClass(), pm.getHealth(),
+                                    pm.getSymbol());
+            if (!index.containsKey(key)) {index.put(key, pm);}
+        }
+        monsterIndex = index;
+    }
+
+    /**
+       Indexes the weapon and armor lists by name and statistics.  Where two entries are the same, the first is found.
+     */
+    private static void indexItems() {
+        if (weaponList == null) {
+            weaponIndex = null;
+        } else {
+            HashMap<String, PossibleWeapon> index = new HashMap<>();
+            for (PossibleWeapon pw : weaponList) {
+                String key = weaponKey(pw.getName(), pw.getAccuracy(), pw.getDamage(), pw.getSymbol());
+                if (!index.containsKey(key)) {index.put(key, pw);}
             }
+            weaponIndex = index;
+        }
+        if (armorList == null) {
+            armorIndex = null;
+        } else {
+            HashMap<String, PossibleArmor> index = new HashMap<>();
+            for (PossibleArmor pa : armorList) {
+                String key = armorKey(pa.getName(), pa.getArmorClass(), pa.getSymbol());
+                if (!index.containsKey(key)) {index.put(key, pa);}
+            }
+            armorIndex = index;
         }
     }
 
+    // keys for the indexes: the name and statistics, laid out as in the lists (so a comma can't be part of a name)
+    private static String monsterKey(String name, int accuracy, int damage, int armorClass, int health, char symbol) {
+        return name + "," + accuracy + "," + damage + "," + armorClass + "," + health + "," + symbol;
+    }
+    private static String weaponKey(String name, int accuracy, int damage, char symbol) {
+        return name + "," + accuracy + "," + damage + "," + symbol;
+    }
+    private static String armorKey(String name, int armorClass, char symbol) {
+        return name + "," + armorClass + "," + symbol;
+    }
+
     /**
-       Adds a weapon to weaponList.
-       @author Stephen S. Lee
-       @param weapon Original unparsed String from the item list
+       Finds the possible monster in the monster list with the given statistics, so a Monster read from a save shares
+       its template with Monsters generated afterwards.
+       @return the possible monster from the list, or a new one with those statistics if the list has none
      */
-    private static void addPossibleWeapon(String weapon) {
-        String[] tokens = weapon.split(",");      // tokens[0] just says this is a weapon
-        PossibleWeapon pw = new PossibleWeapon(tokens[1],                    // name
-                                               Integer.parseInt(tokens[2]),  // accuracy
-                                               Integer.parseInt(tokens[3]),  // damage
-                                               tokens[4].charAt(0));         // symbol
-        weaponList.add(pw);
+    public static PossibleMonster findMonster(String name, int accuracy, int damage, int armorClass, int health,
+                                              char symbol) {
+        HashMap<String, PossibleMonster> index = monsterIndex;
+        PossibleMonster pm = (index == null ? null
+                              : index.get(monsterKey(name, accuracy, damage, armorClass, health, symbol)));
+        return (pm != null ? pm : new PossibleMonster(name, accuracy, damage, armorClass, health, symbol));
     }
 
     /**
-       Adds an armor to armorList.
-       @author Stephen S. Lee
-       @param armor Original unparsed String from the item list
+       Finds the possible weapon in the weapon list with the given statistics, so a Weapon read from a save is the same
+       kind of Weapon as one generated afterwards.
+       @return the possible weapon from the list, or a new one with those statistics if the list has none
+     */
+    public static PossibleWeapon findWeapon(String name, int accuracy, int damage, char symbol) {
+        HashMap<String, PossibleWeapon> index = weaponIndex;
+        PossibleWeapon pw = (index == null ? null : index.get(weaponKey(name, accuracy, damage, symbol)));
+        return (pw != null ? pw : new PossibleWeapon(name, accuracy, damage, symbol));
+    }
+
+    /**
+       Finds the possible armor in the armor list with the given statistics, so an Armor read from a save is the same
+       kind of Armor as one generated afterwards.
+       @return the possible armor from the list, or a new one with those statistics if the list has none
+     */
+    public static PossibleArmor findArmor(String name, int armorClass, char symbol) {
+        HashMap<String, PossibleArmor> index = armorIndex;
+        PossibleArmor pa = (index == null ? null : index.get(armorKey(name, armorClass, symbol)));
+        return (pa != null ? pa : new PossibleArmor(name, armorClass, symbol));
+    }
+
+    /**
+       Adds where and how often an entry turns up to a fingerprint.
+       @param h fingerprint so far
+       @param entry entry of a list
+       @return new fingerprint
      */
-    private static void addPossibleArmor(String armor) {
-        String[] tokens = armor.split(",");      // tokens[0] just says this is a armor
-        PossibleArmor pa = new PossibleArmor(tokens[1],                    // name
-                                             Integer.parseInt(tokens[2]),  // armor class
-                                             tokens[3].charAt(0));         // symbol
-        armorList.add(pa);
+    private static long spawning(long h, Spawnable entry) {
+        return GameRandom.mix(h ^ entry.getWeight() ^ ((long) entry.getMinDepth() << 32))
+               ^ GameRandom.mix(entry.getMaxDepth());
     }
 
     /**
        Factory method for selecting and creating a monster.
-       A monster is chosen randomly from the list of possible monsters.
-       This should eventually support increasing difficulty by parameters, which isn't currently implemented.
+       A monster is chosen randomly from the monsters that turn up at this depth, in proportion to their weights.
        @return Monster with the statistics of the chosen monster
      */
     public Monster generateMonster() {
-        PossibleMonster pm = monsterList.get(rand.nextInt(monsterList.size())); // Pick a random monster from monsterList
+        PossibleMonster pm = table(monsterTables, monsterList, depth).next(random);
         return Monster.createMonster(pm);
     }
 
     /**
        Factory method for selecting and creating a weapon.
-       A weapon is chosen randomly from the list of possible weapons.
-       This should eventually support increasing difficulty by parameters, which isn't currently implemented.
+       A weapon is chosen randomly from the weapons that turn up at this depth, in proportion to their weights.
        @return Weapon with the statistics of the chosen weapon
      */
     public Weapon generateWeapon() {
-        PossibleWeapon pw = weaponList.get(rand.nextInt(weaponList.size()));// Pick a random weapon from weaponList
+        PossibleWeapon pw = table(weaponTables, weaponList, depth).next(random);
         return Weapon.createWeapon(pw);
     }
 
     /**
        Factory method for selecting and creating an armor.
-       An armor is chosen randomly from the list of possible armors.
-       This should eventually support increasing difficulty by parameters, which isn't currently implemented.
+       An armor is chosen randomly from the armors that turn up at this depth, in proportion to their weights.
        @return Armor with the statistics of the chosen armor
      */
     public Armor generateArmor() {
-        PossibleArmor pa = armorList.get(rand.nextInt(armorList.size())); // Pick a random armor from armorList
+        PossibleArmor pa = table(armorTables, armorList, depth).next(random);
         return Armor.createArmor(pa);
     }
 
@@ -150,7 +303,7 @@ public class Generator implements Serializable {
      */
     public Item generateItem() {
         // select an item type to generate (currently very simple)
-        int type = rand.nextInt(MAX_TYPES);
+        int type = random.nextInt(MAX_TYPES);
 
         Item item = null;
         switch (type) {
@@ -173,6 +326,6 @@ public class Generator implements Serializable {
        @return int with amount of gold to be created
      */
     public int generateGold() {
-        return rollDice(depth * 2 + 2, 10);
+        return random.rollDice(depth * 2 + 2, 10);
     }
 }
\ No newline at end of file
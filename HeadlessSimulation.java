@@ -0,0 +1,179 @@
+/**
+   HeadlessSimulation
+   Runs many independent game sessions without a user interface, spread across all available cores.
+   Each session gets its own GamePlay (and therefore its own Hero, Generator, and random stream), so sessions never
+   share mutable state; the only shared data are the read-only monster and item lists in Generator.
+
+   Usage: java HeadlessSimulation [games] [threads] [max turns per game] [base seed] [activity radius]
+ */
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class HeadlessSimulation {
+
+    private static final String MONSTER_LIST = "monster-list.txt";
+    private static final String ITEM_LIST    = "item-list.txt";
+    private static final String CATALOG_CACHE = "catalog.cache";
+
+    private static final int DEFAULT_GAMES     = 10000; // sessions to run if not specified
+    private static final int DEFAULT_MAX_TURNS = 5000;  // turn cap for a single session
+
+    // outcomes of a single session
+    public static final int OUTCOME_DIED    = 0;
+    public static final int OUTCOME_ESCAPED = 1;
+    public static final int OUTCOME_TIMEOUT = 2;
+
+    /**
+       Decides what the Hero does on each turn of a headless session.
+       Implementations must only touch the GamePlay and random stream they are handed.
+     */
+    public interface Policy {
+        /**
+           Issues exactly one command to the game.
+           @param game The session to act in
+           @param random Random stream belonging to this session
+         */
+        void act(GamePlay game, GameRandom random);
+    }
+
+    /**
+       Default policy: take the stairs when standing on them, pick up anything lying around, otherwise wander randomly.
+     */
+    public static class RandomWalk implements Policy {
+        public void act(GamePlay game, GameRandom random) {
+            Tile here = game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn());
+            if (here.hasDownStairs()) {
+                game.descendStairs();
+            } else if (here.hasGold() || here.hasItem()) {
+                if (!game.pickUpStuff()) {wander(game, random);} // backpack full, move on
+            } else {
+                wander(game, random);
+            }
+        }
+
+        private void wander(GamePlay game, GameRandom random) {
+            int rChange;
+            int cChange;
+            do { // walking into walls is legal but wastes a command
+                rChange = random.randRange(-1, 1);
+                cChange = random.randRange(-1, 1);
+            } while (game.getLevel().getTile(game.getHeroRow() + rChange, game.getHeroColumn() + cChange).isWall());
+            game.moveHero(rChange, cChange);
+        }
+    }
+
+    private final int threads;
+    private final int maxTurns;
+    private final Policy policy;
+    private int activityRadius; // see GamePlay.setActivityRadius
+
+    /**
+       Constructor.
+       The monster and item lists must already have been read into Generator.
+       @param threads Number of worker threads
+       @param maxTurns Turn cap for a single session
+       @param policy Policy driving every Hero
+     */
+    public HeadlessSimulation(int threads, int maxTurns, Policy policy) {
+        this.threads = threads;
+        this.maxTurns = maxTurns;
+        this.policy = policy;
+    }
+
+    /**
+       Sets the activity radius used by every session.
+       @param radius greatest distance from the Hero at which Monsters move; 0 to move all of them
+     */
+    public void setActivityRadius(int radius) {activityRadius = radius;}
+
+    /**
+       Plays a single session to completion (or to the turn cap).
+       @param seed Seed for the session's random stream
+       @return one of the OUTCOME constants
+     */
+    public int playOne(long seed) {
+        GameRandom random = new GameRandom(seed);
+        GameRandom policyRandom = new GameRandom(GameRandom.mix(seed)); // decisions don't disturb the game's stream
+        GamePlay game = new GamePlay("Simulated Hero", random);
+        game.setActivityRadius(activityRadius);
+        for (int turn = 0; turn < maxTurns; turn++) {
+            policy.act(game, policyRandom);
+            if (game.isHeroDead()) {return OUTCOME_DIED;}
+            if (game.hasHeroEscaped()) {return OUTCOME_ESCAPED;}
+        }
+        return OUTCOME_TIMEOUT;
+    }
+
+    /**
+       Plays a batch of sessions across the worker threads.
+       Session i is seeded with baseSeed + i, so a batch is reproducible regardless of thread count.
+       @param games Number of sessions to play
+       @param baseSeed Seed of the first session
+       @return counts of each outcome, indexed by the OUTCOME constants
+     */
+    public long[] run(final int games, final long baseSeed) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int first = t;
+                results.add(pool.submit(new Callable<long[]>() {
+                    public long[] call() {
+                        long[] outcomes = new long[3];
+                        for (int i = first; i < games; i += threads) { // strided split keeps workers evenly loaded
+                            outcomes[playOne(baseSeed + i)]++;
+                        }
+                        return outcomes;
+                    }
+                }));
+            }
+            long[] total = new long[3];
+            for (Future<long[]> f : results) {
+                long[] outcomes = f.get();
+                for (int i = 0; i < total.length; i++) {total[i] += outcomes[i];}
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games    = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES);
+        int threads  = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+        int maxTurns = (args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_TURNS);
+        long seed    = (args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime());
+        int radius   = (args.length > 4 ? Integer.parseInt(args[4]) : 0);
+
+        readLists();
+
+        HeadlessSimulation sim = new HeadlessSimulation(threads, maxTurns, new RandomWalk());
+        sim.setActivityRadius(radius);
+        long start = System.nanoTime();
+        long[] outcomes = sim.run(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("Played " + games + " games on " + threads + " threads in "
+                         + String.format("%.2f", seconds) + " s (" + String.format("%.1f", games / seconds)
+                         + " games/s), base seed " + seed);
+        System.out.println("  died: " + outcomes[OUTCOME_DIED] + ", escaped: " + outcomes[OUTCOME_ESCAPED]
+                         + ", hit turn cap: " + outcomes[OUTCOME_TIMEOUT]);
+    }
+
+    /**
+       Reads the monster and item lists into Generator, from the current directory (or from the cache kept there).
+       @return the lists read
+     */
+    public static Catalog readLists() throws IOException {
+        Catalog catalog = CatalogLoader.load(Paths.get(MONSTER_LIST), Paths.get(ITEM_LIST), Paths.get(CATALOG_CACHE));
+        Generator.useCatalog(catalog);
+        return catalog;
+    }
+}
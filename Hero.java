@@ -1,12 +1,13 @@
 /**
    This is the Creature that is controlled by the game player.
-   There can only be one Hero.
+   There is one Hero per game session (GamePlay); several sessions may run side by side.
  */
 
 import java.io.Serializable;
 import static utils.GameFunctions.*;
  
 public class Hero extends Creature implements Serializable {
+    private static final long serialVersionUID = 1L;
     
     private static final int STARTING_HEALTH    = 300; // hero starting hit points
     private static final int STARTING_ACCURACY  = 80;  // hero starting accuracy
@@ -15,11 +16,15 @@ public class Hero extends Creature implements Serializable {
     
     public static final char SYMBOL_HERO = '@';
     
-    private static boolean exists = false; // prevent instantiation of more than one hero
-    
+    private String name;
+    private int maxHealth;
+    private int accuracy;        // base accuracy, before the weapon's modifier
+    private int damage;
+    private int evasion;
+    private int armorClass;
     private Weapon weapon;       // weapon currently equipped by the hero
     private Armor armor;         // armor currently equipped by the hero
-    private Item[] inv;          // hero inventory of items
+    private Inventory inv;       // hero inventory of items
     private int gold;            // treasure carried by the hero
 
     /**
@@ -28,10 +33,6 @@ public class Hero extends Creature implements Serializable {
        @param health Hero's starting maximum health.
      */
 	public Hero(String name) {
-        if (exists) {
-            System.err.println("ERROR: cannot create more than one hero");
-            throw new Error(); // this is very clumsy and should be rewritten
-        }
         setName(name);
         setHealth(STARTING_HEALTH);
         setMaxHealth(STARTING_HEALTH);
@@ -41,34 +42,43 @@ public class Hero extends Creature implements Serializable {
         setEvasion(50); // variable evasion not yet implemented
         armor = null;
         setArmorClass();
-        inv = new Item[HERO_MAX_ITEMS];
-        for (int i = 0; i < HERO_MAX_ITEMS; i++) { // generate empty inventory
-            inv[i] = null;
-        }
+        inv = new Inventory(HERO_MAX_ITEMS); // generate empty inventory
         gold = 0;
 	}
 
     // getters
+    public String getName() {return name;}
+    public int getMaxHealth() {return maxHealth;}
+    public int getDamage() {return damage;}
+    public int getEvasion() {return evasion;}
+    public int getArmorClass() {return armorClass;}
     public int getGold() {return gold;}
     public Weapon getWeapon() {return weapon;}
     public boolean hasWeapon() {return (weapon != null);}
     public Armor getArmor() {return armor;}
     public boolean hasArmor() {return (armor != null);}
-    public Item getItem(int index) {return inv[index];} // individual item from inventory
-    @Override public int getAccuracy() {
-        // This version of getAccuracy instead returns it with the hero's modifiers
+    public Item getItem(int index) {return inv.getItem(index);} // individual item from inventory
+    public int getBaseAccuracy() {return accuracy;} // accuracy without the weapon's modifier
+    public int getAccuracy() {
+        // This returns accuracy with the hero's modifiers
         int weaponMod = (weapon == null ? 0
                                         : weapon.getAccuracy());
-        return super.getAccuracy() + weaponMod;
+        return accuracy + weaponMod;
     }
     
     // setters
+    public void setName(String name) {this.name = name;}
+    public void setMaxHealth(int maxHealth) {this.maxHealth = maxHealth;}
+    public void setAccuracy(int accuracy) {this.accuracy = accuracy;} // base accuracy
+    public void setDamage(int damage) {this.damage = damage;}
+    public void setEvasion(int evasion) {this.evasion = evasion;}
+    public void setArmorClass(int armorClass) {this.armorClass = armorClass;}
     public void setWeapon(Weapon weapon) {this.weapon = weapon;}
-    public void setItem(int index, Item item) {inv[index] = item;} // individual item from inventory
+    public void setArmor(Armor armor) {this.armor = armor;}
+    public void setItem(int index, Item item) {inv.setItem(index, item);} // individual item from inventory
     
     /**
        Sets damage rating, corresponding to the equipped weapon (if any).
-       This overloads setDamage() from Creature.
        @author Stephen S. Lee
      */
     public void setDamage() {
@@ -81,7 +91,6 @@ public class Hero extends Creature implements Serializable {
     
     /**
        Sets armor class rating, corresponding to the equipped armor (if any).
-       This overloads setArmorClass() from Creature.
        @author Stephen S. Lee
      */
     public void setArmorClass() {
@@ -98,11 +107,7 @@ public class Hero extends Creature implements Serializable {
        @return true if hero has the indicated item in inventory or equipped, false otherwise
      */
     public boolean hasItem(Item item) {
-        for (int i = 0; i < HERO_MAX_ITEMS; i++) {
-            if (!(inv[i] == null)) { // there is an item in this slot
-                if (inv[i].equals(item)) {return true;} // we found the same item, let
-            }
-        }
+        if (inv.contains(item)) {return true;} // item in inventory
         if (hasWeapon() && weapon.equals(item)) {return true;} // item in weapon slot
         if (hasArmor() && armor.equals(item)) {return true;} // item in armor slot
         return false; // no such item
@@ -113,38 +118,13 @@ public class Hero extends Creature implements Serializable {
        @author Stephen S. Lee
        @return String representation of playing inventory, with a newline after every entry.
      */
-    public String getInventory() {
-        StringBuilder output = new StringBuilder();
-        for (int i = 0; i < HERO_MAX_ITEMS; i++) {
-            if (!(inv[i] == null)) { // there is an item in this slot
-                output.append(getLetter(i) + " - " + inv[i].getName() + "\n");
-            }
-        }
-        if (output.length() == 0) {
-            output.append("Your backpack is currently empty.");
-        } else {
-            output.insert(0, "You are carrying the following items:\n");
-        }
-        return output.toString();
-    }
+    public String getInventory() {return inv.getText();}
     
     /**
        Returns symbol for the hero.  Currently '@', as is traditional.
      */
     public char getSymbol() {return SYMBOL_HERO;}
         
-    /**
-       Returns the index corresponding to the first empty inventory slot.
-       @author Stephen S. Lee
-       @return index for the first empty inventory slot, or -1 if no such slot exists
-     */
-    private int emptySlot() {
-        for (int i = 0; i < HERO_MAX_ITEMS; i++) {
-            if (inv[i] == null) {return i;}
-        }
-        return -1;
-    }
-    
     /**
        Adds gold to hero's purse.
        @author Stephen S. Lee
@@ -159,13 +139,7 @@ public class Hero extends Creature implements Serializable {
        @return true if the item was successfully added to inventory, else false
      */
     public boolean addItem(Item item) {
-       int index = emptySlot(); // get a slot to place the Item in
-       if (index != -1) {
-           inv[index] = item; // place item in slot
-           return true;
-       } else { // no slot to place Item in
-           return false;
-       }
+       return inv.add(item); // place item in the first empty slot, if there is one
     }
     
     /**
@@ -176,12 +150,13 @@ public class Hero extends Creature implements Serializable {
        @return true if equip was successful, false if it wasn't (because it isn't a weapon)
      */
      public boolean equipWeapon(int index) {
-         if (inv[index] == null) {
+         Item item = inv.getItem(index);
+         if (item == null) {
              return false; // you can't equip a nonexistent item
-         } else if (inv[index].isWeapon()) {
+         } else if (item.isWeapon()) {
              Weapon oldweapon = weapon; // remember what the old weapon was
-             weapon = (Weapon) inv[index]; // equip the item in that slot
-             inv[index] = null;   // delete the item from that slot
+             weapon = (Weapon) item; // equip the item in that slot
+             inv.setItem(index, null); // delete the item from that slot
              addItem(oldweapon); // put old weapon in inventory; there must be at least one empty inventory slot now
              setDamage(); // establish damage for the new weapon
              return true;    
@@ -197,12 +172,13 @@ public class Hero extends Creature implements Serializable {
        @return true if equip was successful, false if it wasn't (because it isn't an armor)
      */
      public boolean equipArmor(int index) {
-         if (inv[index] == null) {
+         Item item = inv.getItem(index);
+         if (item == null) {
              return false; // you can't equip a nonexistent item
-         } else if (inv[index].isArmor()) {
+         } else if (item.isArmor()) {
              Armor oldarmor = armor; // remember what the old armor was
-             armor = (Armor) inv[index]; // equip the item in that slot
-             inv[index] = null;   // delete the item from that slot
+             armor = (Armor) item; // equip the item in that slot
+             inv.setItem(index, null); // delete the item from that slot
              addItem(oldarmor); // put old armor in inventory; there must be at least one empty inventory slot now
              setArmorClass(); // establish damage for the new weapon
              return true;    
@@ -0,0 +1,149 @@
+/**
+   InputLog
+   Every command given to a game session, in order, stored compactly (usually one byte per command).
+
+   A session's random stream is seeded once, and nothing else outside the session affects it, so the seed plus this
+   log is enough to play the whole session again from the start and end up in exactly the same state.  This is what
+   replay saves are made of, and what makes a reported bug reproducible.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class InputLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // commands; moves use codes 0 to 8, one per direction (including staying put)
+    private static final int MOVE_LAST = 8;
+    private static final int PICK_UP   = 9;
+    private static final int DROP      = 10; // followed by the inventory index
+    private static final int EQUIP     = 11; // followed by the inventory index
+    private static final int DESCEND   = 12;
+    private static final int RADIUS    = 13; // followed by the activity radius
+    private static final int ASCEND    = 14;
+
+    private byte[] data = new byte[64];
+    private int length;   // bytes of data in use
+    private int commands; // number of commands recorded
+
+    // getters
+    public int size() {return commands;}
+    public int getByteCount() {return length;}
+
+    // recording commands; these mirror the GamePlay methods of the same purpose
+
+    /**
+       Records a move (or an attack, or resting in place).
+       @param rChange change in rows, from -1 to 1
+       @param cChange change in columns, from -1 to 1
+     */
+    public void move(int rChange, int cChange) {
+        if (rChange < -1 || rChange > 1 || cChange < -1 || cChange > 1) {
+            throw new IllegalArgumentException("not a single-step move: " + rChange + " " + cChange);
+        }
+        append((rChange + 1) * 3 + (cChange + 1));
+    }
+
+    public void pickUp() {append(PICK_UP);}
+    public void drop(int index) {append(DROP, index);}
+    public void equip(int index) {append(EQUIP, index);}
+    public void descend() {append(DESCEND);}
+    public void ascend() {append(ASCEND);}
+    public void radius(int radius) {append(RADIUS, radius);}
+
+    /**
+       Gives every recorded command, in order, to a game session.
+       The session should be freshly created from the same seed as the one the log was recorded from.
+       @param game session to play the commands in
+     */
+    public void replay(GamePlay game) {
+        int i = 0;
+        while (i < length) {
+            int command = data[i++];
+            if (command <= MOVE_LAST) {
+                game.moveHero(command / 3 - 1, command % 3 - 1);
+                continue;
+            }
+            int argument = 0;
+            if (command == DROP || command == EQUIP || command == RADIUS) { // read the argument
+                for (int shift = 0; ; shift += 7) {
+                    int b = data[i++];
+                    argument |= (b & 0x7f) << shift;
+                    if ((b & 0x80) == 0) {break;}
+                }
+            }
+            switch (command) {
+                case PICK_UP: game.pickUpStuff(); break;
+                case DROP:    game.dropItem(argument); break;
+                case EQUIP:   game.equipItem(argument); break;
+                case DESCEND: game.descendStairs(); break;
+                case ASCEND:  game.ascendStairs(); break;
+                case RADIUS:  game.setActivityRadius(argument); break;
+                default:
+                    throw new IllegalStateException("unknown command " + command + " in input log");
+            }
+        }
+    }
+
+    /**
+       Writes the log to a save.
+       @param out where to write it
+       @throws IOException if the log cannot be written
+     */
+    public void write(SaveWriter out) throws IOException {
+        out.writeVarInt(commands);
+        out.writeVarInt(length);
+        out.writeBytes(data, 0, length);
+    }
+
+    /**
+       Reads a log written by write().
+       @param in where to read it from
+       @return the log
+       @throws IOException if the log cannot be read
+     */
+    public static InputLog read(SaveReader in) throws IOException {
+        InputLog log = new InputLog();
+        log.commands = in.readVarInt();
+        log.length = in.readVarInt();
+        log.data = new byte[Math.max(64, log.length)];
+        in.readBytes(log.data, 0, log.length);
+        return log;
+    }
+
+    /**
+       Appends a command with no argument.
+       @param command command to append
+     */
+    private void append(int command) {
+        ensure(1);
+        data[length++] = (byte) command;
+        commands++;
+    }
+
+    /**
+       Appends a command with a non-negative argument, written in as few bytes as it needs.
+       @param command command to append
+       @param argument argument of the command
+     */
+    private void append(int command, int argument) {
+        if (argument < 0) {throw new IllegalArgumentException("negative argument " + argument);}
+        ensure(6);
+        data[length++] = (byte) command;
+        while ((argument & ~0x7f) != 0) {
+            data[length++] = (byte) ((argument & 0x7f) | 0x80);
+            argument >>>= 7;
+        }
+        data[length++] = (byte) argument;
+        commands++;
+    }
+
+    /**
+       Makes room for more bytes.
+       @param bytes number of bytes about to be appended
+     */
+    private void ensure(int bytes) {
+        if (length + bytes > data.length) {data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));}
+    }
+}
@@ -0,0 +1,128 @@
+/**
+   Inventory
+   The Hero's backpack: a fixed number of slots, each holding at most one Item.
+   Alongside the slots, it keeps which slots are free and how many Items of each kind it holds, so finding a free slot
+   or checking for an Item takes the same time however big the backpack is.  Its text, as shown to the player, is only
+   rebuilt after the contents change.
+ */
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import static utils.GameFunctions.*;
+
+public class Inventory implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Item[] slots;
+    private final BitSet free;                     // set for every empty slot
+    private final HashMap<Item, Integer> counts;   // number held of each kind of Item (Items are equal by template)
+    private transient String text;                 // shown to the player; null after a change, until rebuilt
+
+    /**
+       Constructor for an empty Inventory.
+       @param size number of slots
+     */
+    public Inventory(int size) {
+        slots = new Item[size];
+        free = new BitSet(size);
+        free.set(0, size);
+        counts = new HashMap<>();
+    }
+
+    // getters
+    public int getSize() {return slots.length;}
+    public Item getItem(int index) {return slots[index];}
+    public boolean isFull() {return free.isEmpty();}
+
+    /**
+       Puts an Item in a slot, replacing whatever was there.
+       @param index slot
+       @param item Item to put there, or null to empty the slot
+     */
+    public void setItem(int index, Item item) {
+        Item old = slots[index];
+        if (old == item) {return;}
+        if (old != null) {count(old, -1);}
+        slots[index] = item;
+        if (item != null) {
+            count(item, 1);
+            free.clear(index);
+        } else {
+            free.set(index);
+        }
+        text = null;
+    }
+
+    /**
+       Adjusts the number held of a kind of Item.
+       @param item Item of that kind
+       @param change amount to adjust by
+     */
+    private void count(Item item, int change) {
+        Integer n = counts.get(item);
+        int total = (n == null ? 0 : n) + change;
+        if (total == 0) {
+            counts.remove(item);
+        } else {
+            counts.put(item, total);
+        }
+    }
+
+    /**
+       Returns the first empty slot.
+       @return index of the first empty slot, or -1 if there is none
+     */
+    public int emptySlot() {
+        int index = free.nextSetBit(0);
+        return (index < slots.length ? index : -1);
+    }
+
+    /**
+       Puts an Item in the first empty slot.
+       @param item Item to add
+       @return true if it was added, false if there was no room
+     */
+    public boolean add(Item item) {
+        int index = emptySlot();
+        if (index == -1) {return false;}
+        setItem(index, item);
+        return true;
+    }
+
+    /**
+       Checks whether the Inventory holds an Item of the same kind as the one given.
+       @param item Item to look for
+       @return true if an equal Item is in one of the slots
+     */
+    public boolean contains(Item item) {return counts.containsKey(item);}
+
+    /**
+       Returns how many Items of the same kind as the one given the Inventory holds.
+       @param item Item to count
+       @return number of equal Items in the slots
+     */
+    public int count(Item item) {
+        Integer n = counts.get(item);
+        return (n == null ? 0 : n);
+    }
+
+    /**
+       Gets a String representation of the Inventory, rebuilding it only if the contents changed since last time.
+       @return String representation of the Inventory, with a newline after every entry
+     */
+    public String getText() {
+        if (text == null) {
+            if (free.cardinality() == slots.length) {
+                text = "Your backpack is currently empty.";
+            } else {
+                StringBuilder output = new StringBuilder("You are carrying the following items:\n");
+                for (int i = free.nextClearBit(0); i < slots.length; i = free.nextClearBit(i + 1)) {
+                    output.append(getLetter(i)).append(" - ").append(slots[i].getName()).append('\n');
+                }
+                text = output.toString();
+            }
+        }
+        return text;
+    }
+}
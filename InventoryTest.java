@@ -0,0 +1,62 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for Inventory.
+ */
+public class InventoryTest
+{
+    private final PossibleWeapon club = new PossibleWeapon("club", -5, 15, ')');
+    private final PossibleArmor robe = new PossibleArmor("robe", 1, '[');
+
+    @Test
+    public void testSlotsFillInOrderAndReopen()
+    {
+        Inventory inv = new Inventory(300);
+        for (int i = 0; i < 300; i++) {
+            assertTrue(inv.add(Weapon.createWeapon(club)));
+        }
+        assertTrue(inv.isFull());
+        assertEquals(-1, inv.emptySlot());
+        assertFalse(inv.add(Armor.createArmor(robe)));
+
+        inv.setItem(123, null);
+        inv.setItem(7, null);
+        assertEquals(7, inv.emptySlot());
+        assertTrue(inv.add(Armor.createArmor(robe)));
+        assertEquals(123, inv.emptySlot());
+    }
+
+    @Test
+    public void testCountsFollowChanges()
+    {
+        Inventory inv = new Inventory(10);
+        Weapon weapon = Weapon.createWeapon(club);
+        inv.add(weapon);
+        inv.add(Weapon.createWeapon(club));
+        assertTrue(inv.contains(Weapon.createWeapon(club)));
+        assertEquals(2, inv.count(weapon));
+        assertFalse(inv.contains(Armor.createArmor(robe)));
+
+        inv.setItem(0, Armor.createArmor(robe)); // replaces the first club
+        assertEquals(1, inv.count(weapon));
+        assertTrue(inv.contains(Armor.createArmor(robe)));
+        inv.setItem(1, null);
+        assertFalse(inv.contains(weapon));
+    }
+
+    @Test
+    public void testTextRebuiltOnlyAfterChanges()
+    {
+        Inventory inv = new Inventory(10);
+        assertEquals("Your backpack is currently empty.", inv.getText());
+        inv.add(Weapon.createWeapon(club));
+        inv.add(Armor.createArmor(robe));
+        String text = inv.getText();
+        assertTrue(text.contains("club") && text.contains("robe"));
+        assertSame(text, inv.getText());
+        inv.setItem(0, null);
+        assertFalse(inv.getText().contains("club"));
+        assertTrue(inv.getText().contains("robe"));
+    }
+}
@@ -1,20 +1,19 @@
 /**
    Item template class
+   An Item keeps no statistics of its own: they are those of the template (PossibleWeapon, PossibleArmor) it was created
+   from, which every Item of its kind shares.  Two Items are the same kind of Item exactly when they share a template.
  */
 
 import java.io.Serializable;
 import static utils.RandomGen.*;
 
 public abstract class Item implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-    private String name;
-    private char symbol;
-
-    // getters and setters
-    public String getName() {return name;}
-    public char getSymbol() {return symbol;}
-    public void setName(String name) {this.name = name;}
-    protected void setSymbol(char symbol) {this.symbol = symbol;}
+    // getters
+    public abstract String getName();
+    public abstract char getSymbol();
+    public abstract int getTemplateId(); // id of the template, unique among templates of the same class of Item
     
     // methods for identifying Items
     public boolean isWeapon() {return (this instanceof Weapon);}
@@ -23,29 +22,24 @@ public abstract class Item implements Serializable {
     
     /**
        Overridden equals() method.
-       Checks to make sure that object class, names, and symbols match.
+       Checks to make sure that object class and template match.
        @author Stephen S. Lee
-       @return true if and only if both objects are the same class, and have matching names and symbols
+       @return true if and only if both objects are the same class, created from the same template
      */
     @Override public boolean equals(Object obj) {
         if (obj == null) {return false;} // null check
         if (obj == this) {return true;} // reflexivity
         if (this.getClass() != obj.getClass()) {return false;} // items are of different types and can't be the same
-        
-        Item item = (Item) obj; // If we got this far, obj must be an Item
-        if (!(name.equals(item.getName()))) {return false;} // items with different names can't be the same
-        if (getSymbol() != item.getSymbol()) {return false;} // items with different symbols can't be the same
-        return true; // if we got here, they're the same
+        return getTemplateId() == ((Item) obj).getTemplateId(); // if we got this far, obj must be an Item
     }
     
     /**
        Overridden hashCode() method.
-       Currently hashes only the name of the item and returns that.
        @author Stephen S. Lee
-       @return name.hashCode()
+       @return the template id
      */
     @Override public int hashCode() {
-       return name.hashCode();
+       return getTemplateId();
     }
      
 }
@@ -48,6 +48,19 @@ public class ItemArmorWeaponTest {
 	public void WeaponCreationTest(){
 		assertNotNull(Weapon.createWeapon(weapon));
 	}
+	
+	@Test
+	public void SharedTemplateTest(){
+		Weapon first = Weapon.createWeapon(weapon);
+		Weapon second = Weapon.createWeapon(weapon);
+		Weapon other = Weapon.createWeapon(new PossibleWeapon("Chainsaw", 25, 50, ']'));
+		
+		assertSame(weapon, first.getTemplate());
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		assertFalse(first.equals(other)); // same statistics, but a different kind of weapon
+		assertFalse(first.equals(Armor.createArmor(armor)));
+	}
 
 	public static void main(String[] args) {
 		Result result = JUnitCore.runClasses(ItemArmorWeaponTest.class);
@@ -5,67 +5,115 @@
  */
 
 import java.io.Serializable;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import static utils.RandomGen.*;
 import static utils.GameFunctions.*;
 
 public class Level implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-    // A level is a 2-dimensional matrix of Tiles
-    private Tile matrix[][];
+    // A level is a 2-dimensional matrix of Tiles, stored compactly; see LevelGrid
+    private LevelGrid grid;
+    private MonsterRegistry monsters; // every Monster on this level, with a spatial index
+    private GameRandom random; // random stream used to lay out and fill this level
+    private ExploredMap explored; // what the hero remembers of this level
 
     /**
        Constructor for creating lLvel.
+       The level draws its random numbers from a stream seeded off the shared generator.
        @param rows    Number of rows for the level
        @param columns Number of columns for the level
      */
     public Level(int rows, int columns) {
+        this(rows, columns, new GameRandom(rand.nextLong()));
+    }
+
+    /**
+       Constructor for creating a Level from a given random stream.
+       @param rows    Number of rows for the level
+       @param columns Number of columns for the level
+       @param random  Random stream owned by the game session this level belongs to
+     */
+    public Level(int rows, int columns, GameRandom random) {
         // not allowed to create levels that are too small
         if (rows < (ROOM_MIN_HEIGHT + 2) || columns < (ROOM_MIN_WIDTH + 2)) {
             System.err.println("FATAL ERROR: attempted to create level that is too small");
             throw new IllegalArgumentException();
         }
 
-        matrix = new Tile[rows][columns];
-
-        // Create a wall in every location
-        for (int i = 0; i < getRowSize(); i++) {
-            for (int j = 0; j < getColumnSize(); j++) {
-                matrix[i][j] = new Tile();
-            }
-        }
+        this.random = random;
+        grid = new LevelGrid(rows, columns); // every location starts out as a wall
+        monsters = new MonsterRegistry(rows, columns);
+        explored = new ExploredMap(rows * columns);
 
         createRooms(); // "dig out" empty space on the level
 
     } //end of default constructor
 
+    /**
+       Constructor for a Level that has already been laid out, such as one being loaded from a save.
+       For LevelCodec use only; the Level starts out with no Monsters.
+       @param grid    Contents of the level
+       @param random  Random stream owned by the game session this level belongs to
+     */
+    Level(LevelGrid grid, GameRandom random) {
+        this.grid = grid;
+        this.random = random;
+        monsters = new MonsterRegistry(grid.getRows(), grid.getColumns());
+        explored = new ExploredMap(grid.getRows() * grid.getColumns());
+    }
+
+    /**
+       Creates a very large Level, which is only laid out a chunk at a time as it is used; see LevelGrid.
+       Its chunks are laid out by a RoomChunkSource, seeded from the given random stream.
+       @param rows    Number of rows for the level
+       @param columns Number of columns for the level
+       @param random  Random stream owned by the game session this level belongs to
+       @return the Level, with nothing laid out yet
+     */
+    public static Level createChunked(int rows, int columns, GameRandom random) {
+        return createChunked(rows, columns, random.nextLong(), random);
+    }
+
+    /**
+       Creates a very large Level laid out by a RoomChunkSource with a given seed, such as one being loaded from a save.
+       For LevelCodec use only; the Level starts out with no Monsters.
+       @param rows    Number of rows for the level
+       @param columns Number of columns for the level
+       @param seed    Seed of the RoomChunkSource
+       @param random  Random stream owned by the game session this level belongs to
+       @return the Level, with nothing laid out yet
+     */
+    static Level createChunked(int rows, int columns, long seed, GameRandom random) {
+        return new Level(new LevelGrid(rows, columns, new RoomChunkSource(seed, rows, columns)), random);
+    }
+
     /**
        Takes a freshly generated level (all walls) and creates room for Creatures, Items, and other features.
        @author Stephen S. Lee
      */
     private void createRooms() {
         // Pick a number of rooms, and create array for level generation
-        int[][] room = new int[randRange(ROOMS_MIN, ROOMS_MAX)][];
+        int[][] room = new int[random.randRange(ROOMS_MIN, ROOMS_MAX)][];
         for (int i = 0; i < room.length; i++) {
             room[i] = defineRoom(); // pick room coordinates; room coordinates may or may not overlap
 
             // This clears the room
             for (int j = room[i][0]; j <= room[i][2]; j++) {
                 for (int k = room[i][1]; k <= room[i][3]; k++) {
-                    matrix[j][k].createSpace();
+                    createSpace(j, k);
                 }
             }
 
             // Guarantee the room is connected to at least one of the other rooms by generating corridors
             if (i > 0) { // don't generate a corridor if there is just one room
-                int d  = randRange(0, i - 1);               // pick a random destination room
-                int r1 = randRange(room[d][0], room[d][2]); // pick a row in destination room
-                int c1 = randRange(room[d][1], room[d][3]); // pick a column in destination room
-                int r2 = randRange(room[i][0], room[i][2]); // pick a row in the just-generated room
-                int c2 = randRange(room[i][1], room[i][3]); // pick a column in the just-generated room
+                int d  = random.randRange(0, i - 1);               // pick a random destination room
+                int r1 = random.randRange(room[d][0], room[d][2]); // pick a row in destination room
+                int c1 = random.randRange(room[d][1], room[d][3]); // pick a column in destination room
+                int r2 = random.randRange(room[i][0], room[i][2]); // pick a row in the just-generated room
+                int c2 = random.randRange(room[i][1], room[i][3]); // pick a column in the just-generated room
 
-                if (rand.nextBoolean()) { // flip a coin to select one of two different ways to connect the two locations
+                if (random.nextBoolean()) { // flip a coin to select one of two different ways to connect the two locations
                     createSpaceRow(r1, c1, c2);
                     createSpaceColumn(c2, r1, r2);
                 } else {
@@ -89,12 +137,12 @@ public class Level implements Serializable {
     private int[] defineRoom() {
         int[] c = new int[4];
         
-        int height = randRange(ROOM_MIN_HEIGHT, ROOM_MAX_HEIGHT); // room height
-        int width  = randRange(ROOM_MIN_WIDTH, ROOM_MAX_WIDTH);   // room width
+        int height = random.randRange(ROOM_MIN_HEIGHT, ROOM_MAX_HEIGHT); // room height
+        int width  = random.randRange(ROOM_MIN_WIDTH, ROOM_MAX_WIDTH);   // room width
         
         // Row/column index cannot be 0 or maximum, as the edge of the level is surrounded by walls
-        c[0] = randRange(1, getRowSize() - height - 1);
-        c[1] = randRange(1, getColumnSize() - width - 1);
+        c[0] = random.randRange(1, getRowSize() - height - 1);
+        c[1] = random.randRange(1, getColumnSize() - width - 1);
         c[2] = c[0] + height - 1;
         c[3] = c[1] + width - 1;
         return c;
@@ -114,7 +162,7 @@ public class Level implements Serializable {
             c2 = temp;
         }
         for (int i = c1; i <= c2; i++) {
-            matrix[r][i].createSpace();
+            createSpace(r, i);
         }
     }
 
@@ -132,10 +180,20 @@ public class Level implements Serializable {
             r2 = temp;
         }
         for (int i = r1; i <= r2; i++) {
-            matrix[i][c].createSpace();
+            createSpace(i, c);
         }
     }
 
+    /**
+       Clears the wall at a location, if there is one.
+       @param r row to create space in
+       @param c column to create space in
+     */
+    private void createSpace(int r, int c) {
+        int index = r * getColumnSize() + c;
+        if (grid.isWall(index)) {grid.setFeature(index, LevelGrid.FEATURE_NONE);}
+    }
+
     /**
        Returns a String representation of the currently visible part of the Level.
        The view is centered at the supplied coordinates; the rest of the Level is not visible.
@@ -157,7 +215,7 @@ public class Level implements Serializable {
                 if (rRep < 0 || rRep >= getRowSize() || cRep < 0 || cRep >= getColumnSize()) {
                     representation.append(' '); // a blank space is space off the map
                 } else { // get appropriate tile symbol
-                    representation.append(matrix[rRep][cRep].getSymbol());
+                    representation.append(grid.getSymbol(rRep * getColumnSize() + cRep));
                 }
             } //end of inner for loop
             representation.append("\n");
@@ -166,33 +224,123 @@ public class Level implements Serializable {
     }//end of method viewMap
 
 
+    /**
+       Returns the registry of all Monsters on this level.
+       @return registry of Monsters
+     */
+    public MonsterRegistry getMonsters() {return monsters;}
+
+    /**
+       Hands the level over to another random stream, such as that of the game session once a level created with a
+         stream of its own is put in play.  For GamePlay use only.
+       @param random  Random stream owned by the game session this level belongs to
+     */
+    void setRandom(GameRandom random) {this.random = random;}
+
+    /**
+       Finds the first location (in reading order) with a staircase of a given kind.
+       The grid keeps track of its stairs, so this takes no longer on a huge level than on a small one.
+       @param feature LevelGrid.FEATURE_STAIRS_DOWN or LevelGrid.FEATURE_STAIRS_UP
+       @return {row, column} of the location, or null if the level has no such stairs
+       @throws IllegalArgumentException if the feature is not stairs
+     */
+    public int[] findFeature(byte feature) {
+        int index = grid.findStairs(feature);
+        if (index < 0) {return null;}
+        return new int[] {index / getColumnSize(), index % getColumnSize()};
+    }
+
+    /**
+       Lets go of the parts of a chunked level far from a location, so that only the part around it takes up memory.
+       From then on, getEmptyTile picks from the part kept.  Does nothing on an ordinary level.
+       @param r row of the location, normally the hero's
+       @param c column of the location
+       @param distance how far from the location (in rows and columns) the level is still being used, such as by
+              the hero's field of view and the Monsters' flow field; everything within it stays in memory
+     */
+    public void keepNear(int r, int c, int distance) {grid.keepNear(r, c, distance);}
+
+    /**
+       Checks if this is a chunked level (see createChunked).
+       @return true if it is chunked
+     */
+    public boolean isChunked() {return grid.isChunked();}
+
+    /**
+       Returns the storage behind this level, for LevelCodec use only.
+       @return the LevelGrid
+     */
+    LevelGrid getGrid() {return grid;}
+
+    /**
+       Returns what the hero remembers of this level.
+       @return the ExploredMap of this level
+     */
+    public ExploredMap getExploredMap() {return explored;}
+
+    /**
+       Returns the symbol shown at a location, without creating a Tile for it.
+       @param r row of the location
+       @param c column of the location
+       @return The character that the location should display.
+     */
+    public char getSymbol(int r, int c) {return grid.getSymbol(r * getColumnSize() + c);}
+
+    /**
+       Starts (or stops) keeping track of which locations change, for the benefit of a display.
+       @param track true to keep track of changes, false to stop
+     */
+    public void setTrackChanges(boolean track) {grid.setTrackChanges(track);}
+
+    /**
+       Returns the number of locations that have changed since changes were last cleared.
+       @return number of changed locations
+     */
+    public int getChangeCount() {return grid.getChangeCount();}
+
+    /**
+       Returns one of the locations that have changed, as row * getColumnSize() + column.
+       @param i which change, from 0 to getChangeCount() - 1
+       @return the changed location
+     */
+    public int getChange(int i) {return grid.getChange(i);}
+
+    /**
+       Forgets the locations that have changed so far.
+     */
+    public void clearChanges() {grid.clearChanges();}
+
     /**
        Returns the number of rows in the level.
        @return rows in Tile matrix
      */
-    public int getRowSize() {return matrix.length;}
+    public int getRowSize() {return grid.getRows();}
 
     /**
        Returns the number of columns in the level.
        @return columns in Tile matrix
      */
-    public int getColumnSize() {return matrix[0].length;}
+    public int getColumnSize() {return grid.getColumns();}
 
     /**
        Finds a random empty tile on the current level.
-       This is going to be really inefficient if the level is nearly full, and there is no support for the case in which the
-         level actually IS full
+       On an ordinary level, this takes constant time however crowded the level is, since the grid keeps an index of
+         its empty tiles.  A chunked level has no such index: random tiles of the part kept by the last keepNear are
+         tried instead, and if none of the tries is empty, no tile is found even though there may be room.
        @author Stephen S. Lee
-       @return {row, column} of a location that does not have a wall, creature, or item
+       @return {row, column} of a location that does not have a wall, creature, or item,
+               or null if the level is full (or, on a chunked level, none was found)
      */
     public int[] getEmptyTile() {
-       int[] c = new int[2];
-       int tries = 0;
-       do {
-           c[0] = rand.nextInt(getRowSize());
-           c[1] = rand.nextInt(getColumnSize());
-       } while (!matrix[c[0]][c[1]].isEmpty());
-       return c;
+       int index = grid.randomEmpty(random);
+       if (index == LevelGrid.EMPTY_NOT_FOUND) {
+           System.err.println("ERROR: no empty tile found on the level");
+           return null;
+       } else if (index < 0) {
+           System.err.println("ERROR: no empty tile left on the level");
+           return null;
+       }
+       return new int[] {index / getColumnSize(), index % getColumnSize()};
     }
 
     /**
@@ -201,14 +349,14 @@ public class Level implements Serializable {
        @param c column of matrix
        @return Tile that was requested
      */
-    public Tile getTile(int r, int c) {return matrix[r][c];}
+    public Tile getTile(int r, int c) {return new Tile(grid, grid.index(r, c));}
 
     /**
        Another version of getTile
        @param {row, column} of matrix
        @return Tile that was requested
      */
-    public Tile getTile(int[] location) {return matrix[location[0]][location[1]];}
+    public Tile getTile(int[] location) {return getTile(location[0], location[1]);}
 
     /**
        Returns a number representing the square of the distance between two locations.
@@ -222,8 +370,35 @@ public class Level implements Serializable {
      */
     private static int distance(int r1, int c1, int r2, int c2) {return (r1 - r2) * (r1 - r2) + (c1 - c2) * (c1 - c2);}
 
+    /**
+       Returns a counter that changes whenever a wall is created or removed on this Level.
+       @return current terrain version
+     */
+    public int getTerrainVersion() {return grid.getTerrainVersion();}
+
+    /**
+       Checks if a location holds a wall, without creating a Tile for it.
+       @param r row of the location
+       @param c column of the location
+       @return true if there is a wall there, else false
+     */
+    public boolean isWall(int r, int c) {return grid.isWall(r * getColumnSize() + c);}
+
+    /**
+       Checks if a location holds a Monster, without creating a Tile for it.
+       @param r row of the location
+       @param c column of the location
+       @return true if there is a Monster there, else false
+     */
+    public boolean hasMonster(int r, int c) {
+        int index = r * getColumnSize() + c;
+        return grid.hasCreature(index) && grid.getCreature(index).isMonster();
+    }
+
     /**
        Suggests a 1-square move for a monster.  Returns the current square if no move is chosen.
+       This greedily picks the neighbouring square closest to the target, so it can get stuck behind walls; a FlowField
+         finds real routes, and this is the fallback for monsters outside of one.
        Prints an error if the origin tile does not actually contain a monster.
        Walls and other monsters may not be moved onto.
        Heroes CAN be moved onto; this represents an attack.
@@ -237,22 +412,20 @@ public class Level implements Serializable {
     public int[] suggestMove(int r1, int c1, int r2, int c2) {
        int[] move = {r1, c1};
        int distance = Integer.MAX_VALUE;
-       if (!matrix[r1][c1].hasMonster()) {
+       if (!hasMonster(r1, c1)) {
            System.err.println("FATAL ERROR: suggestMove called without a monster");
            return move; // panic default to origin square
        }
 
        // Iterate through all locations adjacent to origin
-       try {
-       Method isWall = Tile.class.getMethod("isWall"); // Includes completely gratuitous use of reflection
        for (int dR = -1; dR <= 1; dR++) {
            for (int dC = -1; dC <= 1; dC++) {
                int pR = r1 + dR; // possible destination row
                int pC = c1 + dC; // possible destination column
-               if ((Boolean) isWall.invoke(matrix[pR][pC]) ||     // skip walls
-                   matrix[pR][pC].hasMonster()) { // skip monsters
+               if (isWall(pR, pC) ||     // skip walls
+                   hasMonster(pR, pC)) { // skip monsters
                    continue;
-               };
+               }
                int pD = distance(pR, pC, r2, c2); // ok, we can move there, but is it a better place to move to?
                if (pD < distance) { // it is!
                    distance = pD;
@@ -261,9 +434,6 @@ public class Level implements Serializable {
                }
            }
        }
-       } catch (Exception ex) {
-           System.err.println(ex);
-       }
 
        return move;
     }
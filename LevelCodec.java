@@ -0,0 +1,353 @@
+/**
+   LevelCodec
+   Writes a Level to a save (and reads it back) in the compact binary format of SaveWriter and SaveReader.
+
+   A level is mostly walls and floor in long stretches, so the terrain is written as runs: a feature, and how many
+   cells in a row have it.  The terrain of a chunked level is instead the seed it is laid out from, followed by the
+   chunks that have been changed since, each written as runs; so saving one costs nothing for the parts left alone.
+   Gold, Items, and Monsters are rare, so they are written as lists, each entry giving the distance (in cells) from
+   the previous entry followed by what is there.  What the Hero remembers of the level (its ExploredMap) comes last,
+   written as runs like the terrain.
+   The Hero is not part of the Level as far as saves are concerned; it is saved with the rest of the game.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LevelCodec {
+
+    // kinds of Item
+    private static final int ITEM_WEAPON = 1;
+    private static final int ITEM_ARMOR  = 2;
+
+    private static final int MAX_CELLS         = 1 << 24; // most cells a saved level may have; far beyond any real one
+    private static final int MAX_CHUNKED_CELLS = 1 << 28; // the same, for a chunked level
+
+    /**
+       Not to be instantiated.
+     */
+    private LevelCodec() {}
+
+    /**
+       Writes a Level.
+       @param level Level to write
+       @param out where to write it
+       @throws IOException if the Level cannot be written, or is chunked but not laid out by a RoomChunkSource
+     */
+    public static void write(Level level, SaveWriter out) throws IOException {
+        LevelGrid grid = level.getGrid();
+        int size = grid.getRows() * grid.getColumns();
+        out.writeVarInt(grid.getRows());
+        out.writeVarInt(grid.getColumns());
+        out.writeBoolean(grid.isChunked());
+
+        if (grid.isChunked()) { // the seed, where the level is in use, and the chunks changed since they were laid out
+            if (!(grid.getSource() instanceof RoomChunkSource)) {
+                throw new IOException("cannot save a level laid out by " + grid.getSource().getClass().getName());
+            }
+            out.writeLong(((RoomChunkSource) grid.getSource()).getSeed());
+            out.writeVarInt(grid.getFocusRow());
+            out.writeVarInt(grid.getFocusColumn());
+            out.writeVarInt(grid.getFocusDistance());
+            int count = 0;
+            for (int id = grid.nextChangedChunk(0); id >= 0; id = grid.nextChangedChunk(id + 1)) {count++;}
+            out.writeVarInt(count);
+            byte[] features = new byte[LevelGrid.CHUNK_CELLS];
+            for (int id = grid.nextChangedChunk(0), previous = 0; id >= 0; id = grid.nextChangedChunk(id + 1)) {
+                out.writeVarInt(id - previous);
+                grid.getChunkFeatures(id, features);
+                for (int start = 0; start < features.length; ) {
+                    int end = start + 1;
+                    while (end < features.length && features[end] == features[start]) {end++;}
+                    out.writeByte(features[start]);
+                    out.writeVarInt(end - start);
+                    start = end;
+                }
+                previous = id;
+            }
+        } else { // terrain, as runs of the same feature
+            for (int start = 0; start < size; ) {
+                byte feature = grid.getFeature(start);
+                int end = start + 1;
+                while (end < size && grid.getFeature(end) == feature) {end++;}
+                out.writeByte(feature);
+                out.writeVarInt(end - start);
+                start = end;
+            }
+        }
+
+        // gold
+        int[] cells = grid.getGoldCells();
+        out.writeVarInt(cells.length);
+        for (int n = 0, previous = 0; n < cells.length; n++) {
+            out.writeVarInt(cells[n] - previous);
+            out.writeVarInt(grid.getGold(cells[n]));
+            previous = cells[n];
+        }
+
+        // items
+        cells = grid.getItemCells();
+        out.writeVarInt(cells.length);
+        for (int n = 0, previous = 0; n < cells.length; n++) {
+            out.writeVarInt(cells[n] - previous);
+            writeItem(grid.getItem(cells[n]), out);
+            previous = cells[n];
+        }
+
+        // monsters, in registry order so they go on taking their turns in the same order
+        MonsterRegistry monsters = level.getMonsters();
+        out.writeVarInt(monsters.size());
+        for (int i = 0; i < monsters.size(); i++) {
+            writeMonster(monsters.get(i), out);
+        }
+
+        // what the hero remembers, as runs of the same code
+        ExploredMap explored = level.getExploredMap();
+        for (int start = 0; start < size; ) {
+            int code = explored.getCode(start);
+            int end = explored.getRunEnd(start);
+            out.writeByte(code);
+            out.writeVarInt(end - start);
+            start = end;
+        }
+    }
+
+    /**
+       Reads a Level.
+       @param in where to read it from
+       @param random Random stream owned by the game session the Level belongs to
+       @return the Level
+       @throws IOException if the Level cannot be read, or is malformed
+     */
+    public static Level read(SaveReader in, GameRandom random) throws IOException {
+        int rows = in.readVarInt();
+        int columns = in.readVarInt();
+        boolean chunked = in.readBoolean();
+        if (rows < 1 || columns < 1 || (long) rows * columns > (chunked ? MAX_CHUNKED_CELLS : MAX_CELLS)) {
+            throw new IOException("malformed saved game: level is " + rows + " x " + columns); // before allocating it
+        }
+        int size = rows * columns;
+
+        Level level;
+        LevelGrid grid;
+        int focusRow = 0;
+        int focusColumn = 0;
+        int focusDistance = 0;
+        if (chunked) {
+            level = Level.createChunked(rows, columns, in.readLong(), random);
+            grid = level.getGrid();
+            focusRow = in.readVarInt();
+            focusColumn = in.readVarInt();
+            focusDistance = in.readVarInt();
+            if (focusRow >= rows || focusColumn >= columns) {throw new IOException("malformed saved game: bad focus");}
+            int count = in.readVarInt();
+            byte[] features = new byte[LevelGrid.CHUNK_CELLS];
+            for (int n = 0, id = 0; n < count; n++) {
+                id += in.readVarInt();
+                if (id < 0 || id >= grid.getChunkCount()) {
+                    throw new IOException("malformed saved game: chunk " + id + " is off the level");
+                }
+                readRuns(in, features, features.length);
+                grid.setChunkFeatures(id, features);
+                grid.keepNear(focusRow, focusColumn, focusDistance); // so they don't all stay in use
+            }
+        } else {
+            grid = new LevelGrid(rows, columns); // every cell starts out as a wall
+            level = new Level(grid, random);
+            byte[] features = new byte[size];
+            readRuns(in, features, size);
+            for (int i = 0; i < size; i++) {
+                if (features[i] != LevelGrid.FEATURE_WALL) {grid.setFeature(i, features[i]);}
+            }
+        }
+
+        int count = in.readVarInt();
+        for (int n = 0, i = 0; n < count; n++) {
+            i = cell(i + in.readVarInt(), size);
+            grid.setGold(i, in.readVarInt());
+        }
+
+        count = in.readVarInt();
+        for (int n = 0, i = 0; n < count; n++) {
+            i = cell(i + in.readVarInt(), size);
+            grid.setItem(i, readItem(in));
+        }
+
+        count = in.readVarInt();
+        for (int n = 0; n < count; n++) {
+            Monster monster = readMonster(in);
+            int i = cell(monster.getRow() * columns + monster.getColumn(), size);
+            if (monster.getColumn() >= columns || grid.hasCreature(i) || grid.isWall(i)) {
+                throw new IOException("malformed saved game: misplaced monster");
+            }
+            grid.setCreature(i, monster);
+            level.getMonsters().add(monster);
+        }
+
+        ExploredMap explored = level.getExploredMap();
+        for (int start = 0; start < size; ) {
+            int code = in.readByte();
+            int end = start + in.readVarInt();
+            if (end > size || end <= start || code >= ExploredMap.CODES) {
+                throw new IOException("malformed saved game: bad explored map");
+            }
+            if (code != ExploredMap.UNSEEN) {
+                for (int i = start; i < end; i++) {
+                    explored.remember(i, code);
+                }
+            }
+            start = end;
+        }
+        if (chunked) {grid.keepNear(focusRow, focusColumn, focusDistance);}
+        return level;
+    }
+
+    /**
+       Reads terrain written as runs of the same feature.
+       @param in where to read it from
+       @param features where to put the features read
+       @param size number of features the runs must add up to
+       @throws IOException if the terrain cannot be read, or is malformed
+     */
+    private static void readRuns(SaveReader in, byte[] features, int size) throws IOException {
+        for (int start = 0; start < size; ) {
+            int feature = in.readByte();
+            int end = start + in.readVarInt();
+            if (end > size || end <= start || feature > LevelGrid.FEATURE_STAIRS_UP) {
+                throw new IOException("malformed saved game: bad terrain");
+            }
+            Arrays.fill(features, start, end, (byte) feature);
+            start = end;
+        }
+    }
+
+    /**
+       Checks that a cell read from a save is on the level.
+       @param i cell index
+       @param size number of cells on the level
+       @return the same cell index
+       @throws IOException if it is not on the level
+     */
+    private static int cell(int i, int size) throws IOException {
+        if (i < 0 || i >= size) {throw new IOException("malformed saved game: cell " + i + " is off the level");}
+        return i;
+    }
+
+    /**
+       Writes an Item.  The template it was created from is written only the first time it comes up in the save.
+       @param item Item to write; must be a Weapon or an Armor
+       @param out where to write it
+       @throws IOException if the Item cannot be written
+     */
+    public static void writeItem(Item item, SaveWriter out) throws IOException {
+        if (item.isWeapon()) {
+            PossibleWeapon pw = ((Weapon) item).getTemplate();
+            out.writeByte(ITEM_WEAPON);
+            if (out.writeReference(pw)) {
+                out.writeName(pw.getName());
+                out.writeChar(pw.getSymbol());
+                out.writeSignedVarInt(pw.getAccuracy());
+                out.writeSignedVarInt(pw.getDamage());
+            }
+        } else if (item.isArmor()) {
+            PossibleArmor pa = ((Armor) item).getTemplate();
+            out.writeByte(ITEM_ARMOR);
+            if (out.writeReference(pa)) {
+                out.writeName(pa.getName());
+                out.writeChar(pa.getSymbol());
+                out.writeSignedVarInt(pa.getArmorClass());
+            }
+        } else {
+            throw new IllegalArgumentException("cannot save item " + item.getName());
+        }
+    }
+
+    /**
+       Reads an Item.
+       @param in where to read it from
+       @return the Item
+       @throws IOException if the Item cannot be read, or is malformed
+     */
+    public static Item readItem(SaveReader in) throws IOException {
+        int kind = in.readByte();
+        Object template = in.readReference();
+        switch (kind) {
+            case ITEM_WEAPON:
+                if (template == null) {
+                    String name = in.readName();
+                    char symbol = in.readChar();
+                    int accuracy = in.readSignedVarInt();
+                    template = Generator.findWeapon(name, accuracy, in.readSignedVarInt(), symbol);
+                    in.addReference(template);
+                } else if (!(template instanceof PossibleWeapon)) {
+                    throw new IOException("malformed saved game: weapon refers to something else");
+                }
+                return Weapon.createWeapon((PossibleWeapon) template);
+            case ITEM_ARMOR:
+                if (template == null) {
+                    String name = in.readName();
+                    char symbol = in.readChar();
+                    template = Generator.findArmor(name, in.readSignedVarInt(), symbol);
+                    in.addReference(template);
+                } else if (!(template instanceof PossibleArmor)) {
+                    throw new IOException("malformed saved game: armor refers to something else");
+                }
+                return Armor.createArmor((PossibleArmor) template);
+            default:
+                throw new IOException("malformed saved game: unknown kind of item " + kind);
+        }
+    }
+
+    /**
+       Writes a Monster, including its location.  The template it was created from is written only the first time it
+       comes up in the save.
+       @param monster Monster to write
+       @param out where to write it
+       @throws IOException if the Monster cannot be written
+     */
+    private static void writeMonster(Monster monster, SaveWriter out) throws IOException {
+        PossibleMonster pm = monster.getTemplate();
+        if (out.writeReference(pm)) {
+            out.writeName(pm.getName());
+            out.writeChar(pm.getSymbol());
+            out.writeSignedVarInt(pm.getHealth());
+            out.writeSignedVarInt(pm.getAccuracy());
+            out.writeSignedVarInt(pm.getDamage());
+            out.writeSignedVarInt(pm.getArmorClass());
+        }
+        out.writeVarInt(monster.getRow());
+        out.writeVarInt(monster.getColumn());
+        out.writeSignedVarInt(monster.getHealth());
+        out.writeInt(monster.getLastActiveTurn());
+        out.writeBoolean(monster.isAware());
+    }
+
+    /**
+       Reads a Monster, including its location.
+       @param in where to read it from
+       @return the Monster
+       @throws IOException if the Monster cannot be read, or is malformed
+     */
+    private static Monster readMonster(SaveReader in) throws IOException {
+        Object template = in.readReference();
+        if (template == null) {
+            String name = in.readName();
+            char symbol = in.readChar();
+            int maxHealth = in.readSignedVarInt();
+            int accuracy = in.readSignedVarInt();
+            int damage = in.readSignedVarInt();
+            int armorClass = in.readSignedVarInt();
+            template = Generator.findMonster(name, accuracy, damage, armorClass, maxHealth, symbol);
+            in.addReference(template);
+        } else if (!(template instanceof PossibleMonster)) {
+            throw new IOException("malformed saved game: monster refers to something else");
+        }
+        Monster monster = Monster.createMonster((PossibleMonster) template);
+        monster.setRow(in.readVarInt());
+        monster.setColumn(in.readVarInt());
+        monster.setHealth(in.readSignedVarInt());
+        monster.setLastActiveTurn(in.readInt());
+        monster.setAware(in.readBoolean());
+        return monster;
+    }
+}
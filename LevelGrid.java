@@ -0,0 +1,616 @@
+/**
+   LevelGrid
+   Compact storage for the contents of every position on a Level.
+   Each cell is a single byte: the low bits hold the terrain feature, the remaining bits flag whether the cell holds a
+   creature, an item, or gold.  The creatures, items, and gold themselves are rare, so they live in sparse maps keyed
+   by cell index and are only consulted when the cell's flag says they are there.
+   Cells are addressed by index (row * columns + column); Tile is a lightweight view onto a single cell.
+   The grid also keeps an index of its empty cells, so that a random empty cell can be picked in constant time, and
+   of where its stairs are, so they can be found without looking through every cell.
+   On request, it also keeps track of which cells have changed, so a display only needs to redraw those.
+
+   A very large grid can instead be chunked: its cells are split into square chunks of CHUNK_SIZE x CHUNK_SIZE, and a
+   chunk is only generated (by a ChunkSource) the first time one of its cells is used.  keepNear() lets go of the
+   chunks far from a given location: a chunk nothing has been changed in is dropped, to be generated again if it is
+   needed, and one that has been changed is kept compressed.  So memory use depends on how much of the grid is in
+   use (and has been changed), not on how big it is.  A chunked grid has no index of empty cells; random empty cells
+   are found by sampling the chunks kept by the last keepNear() instead, which can miss.
+   Only the chunks that have been changed need saving; the rest come from the ChunkSource (see LevelCodec).
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class LevelGrid implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // terrain features, held in the low bits of a cell
+    public static final byte FEATURE_NONE        = 0;
+    public static final byte FEATURE_WALL        = 1;
+    public static final byte FEATURE_STAIRS_DOWN = 2;
+    public static final byte FEATURE_STAIRS_UP   = 3;
+    private static final int FEATURE_MASK       = 0x03;
+
+    // flags for what else is in a cell
+    private static final int HAS_CREATURE = 0x04;
+    private static final int HAS_ITEM     = 0x08;
+    private static final int HAS_GOLD     = 0x10;
+    private static final int OCCUPIED     = HAS_CREATURE | HAS_ITEM; // things that make a cell non-empty
+
+    // chunks of a chunked grid
+    public static final int CHUNK_SHIFT  = 6;                // rows (and columns) per chunk: 64
+    public static final int CHUNK_SIZE   = 1 << CHUNK_SHIFT;
+    public static final int CHUNK_CELLS  = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int CHUNK_MASK  = CHUNK_SIZE - 1;
+    private static final int SAMPLE_TRIES = 10000;           // cells a chunked grid looks at for a random empty one
+
+    // what randomEmpty returns when it has no empty cell to give
+    public static final int NO_EMPTY_CELL    = -1; // there are none
+    public static final int EMPTY_NOT_FOUND  = -2; // a chunked grid looked, but found none; there may still be some
+
+    private final int rows;
+    private final int columns;
+    private final byte[] cells;          // every cell, row by row; null if the grid is chunked
+    private final ChunkSource source;    // generates the chunks of a chunked grid; null otherwise
+    private final int chunkColumns;      // chunks across a chunked grid
+    private final byte[][] chunks;       // cells of each chunk in use, row by row; null if it isn't in use
+    private final byte[][] packed;       // compressed cells of each changed chunk not in use; null otherwise
+    private int[] loaded;                // the chunks in use, in no particular order
+    private int loadedCount;
+    private int packedCount;
+    private final BitSet dirty;          // chunks changed since they were generated
+    private int focusRow;                // location and distance last given to keepNear, which random empty cells
+    private int focusColumn;             // of a chunked grid are picked around
+    private int focusDistance;
+    private final TreeSet<Integer> stairsDown = new TreeSet<>(); // cells with stairs down
+    private final TreeSet<Integer> stairsUp = new TreeSet<>();   // cells with stairs up
+    private final HashMap<Integer, Creature> creatures = new HashMap<>();
+    private final HashMap<Integer, Item> items = new HashMap<>();
+    private final HashMap<Integer, Integer> gold = new HashMap<>();
+    private int terrainVersion; // bumped whenever a wall is created or removed
+
+    // Index of empty cells, built on first use and kept up to date by every change to a cell after that.
+    // Removal swaps the last entry into the vacated slot, so both adding and removing take constant time.
+    private transient int[] free;     // indices of empty cells; only the first freeCount entries are meaningful
+    private transient int[] freeSlot; // position of each cell in free, or -1 if the cell isn't empty
+    private transient int freeCount;  // number of empty cells
+
+    // Cells changed since the last clearChanges(), kept only while somebody is interested
+    private transient BitSet changed; // which cells are already in the list
+    private transient int[] changes;  // the changed cells, in no particular order
+    private transient int changeCount;
+
+    /**
+       Constructor.
+       Every cell starts out as a wall with nothing else in it.
+       @param rows Number of rows
+       @param columns Number of columns
+     */
+    public LevelGrid(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        cells = new byte[rows * columns];
+        Arrays.fill(cells, FEATURE_WALL);
+        source = null;
+        chunkColumns = 0;
+        chunks = null;
+        packed = null;
+        dirty = null;
+    }
+
+    /**
+       Constructor for a chunked grid.
+       Nothing is generated until it is used; cells on the edge of the grid are always walls, whatever the source says.
+       Stairs have to be put in with setFeature, not by the source, so that they can be found.
+       @param rows Number of rows
+       @param columns Number of columns
+       @param source Generates each chunk the first time it is used
+     */
+    public LevelGrid(int rows, int columns, ChunkSource source) {
+        this.rows = rows;
+        this.columns = columns;
+        this.source = source;
+        cells = null;
+        chunkColumns = (columns + CHUNK_MASK) >> CHUNK_SHIFT;
+        int chunkCount = ((rows + CHUNK_MASK) >> CHUNK_SHIFT) * chunkColumns;
+        chunks = new byte[chunkCount][];
+        packed = new byte[chunkCount][];
+        dirty = new BitSet(chunkCount);
+        loaded = new int[16];
+        focusRow = rows / 2; // until keepNear is first called, the middle of the grid
+        focusColumn = columns / 2;
+    }
+
+    // dimensions
+    public int getRows() {return rows;}
+    public int getColumns() {return columns;}
+    public boolean isChunked() {return cells == null;}
+    public int getLoadedChunkCount() {return loadedCount;} // chunks of a chunked grid in use
+    public int getPackedChunkCount() {return packedCount;} // chunks of a chunked grid kept compressed
+    public int getChunkCount() {return (chunks == null ? 0 : chunks.length);}
+    public ChunkSource getSource() {return source;}
+
+    // getters for the location and distance last given to keepNear
+    public int getFocusRow() {return focusRow;}
+    public int getFocusColumn() {return focusColumn;}
+    public int getFocusDistance() {return focusDistance;}
+
+    /**
+       Returns a counter that changes whenever a wall is created or removed anywhere on the grid.
+       Anything computed from the layout of walls alone stays valid for as long as this doesn't change.
+       @return current terrain version
+     */
+    public int getTerrainVersion() {return terrainVersion;}
+
+    /**
+       Returns the index of a cell.
+       @param r row of the cell
+       @param c column of the cell
+       @return index of the cell
+       @throws IndexOutOfBoundsException if the coordinates are outside the grid
+     */
+    public int index(int r, int c) {
+        if (r < 0 || r >= rows || c < 0 || c >= columns) {
+            throw new IndexOutOfBoundsException("no cell at " + r + " " + c);
+        }
+        return r * columns + c;
+    }
+
+    /**
+       Returns the contents of a cell, generating its chunk first if need be.
+       @param index index of the cell
+       @return the cell's byte
+     */
+    private int cell(int index) {
+        if (cells != null) {return cells[index];}
+        int r = index / columns;
+        int c = index - r * columns;
+        return chunk(r, c)[((r & CHUNK_MASK) << CHUNK_SHIFT) | (c & CHUNK_MASK)];
+    }
+
+    /**
+       Changes the contents of a cell, generating its chunk first if need be.
+       @param index index of the cell
+       @param value the cell's new byte
+     */
+    private void setCell(int index, int value) {
+        if (cells != null) {
+            cells[index] = (byte) value;
+            return;
+        }
+        int r = index / columns;
+        int c = index - r * columns;
+        byte[] chunk = chunk(r, c);
+        int i = ((r & CHUNK_MASK) << CHUNK_SHIFT) | (c & CHUNK_MASK);
+        if (chunk[i] != (byte) value) {
+            chunk[i] = (byte) value;
+            dirty.set((r >> CHUNK_SHIFT) * chunkColumns + (c >> CHUNK_SHIFT));
+        }
+    }
+
+    // getters
+    public byte getFeature(int index) {return (byte) (cell(index) & FEATURE_MASK);}
+    public boolean isWall(int index) {return (cell(index) & FEATURE_MASK) == FEATURE_WALL;}
+    public boolean hasCreature(int index) {return (cell(index) & HAS_CREATURE) != 0;}
+    public boolean hasItem(int index) {return (cell(index) & HAS_ITEM) != 0;}
+    public boolean hasGold(int index) {return (cell(index) & HAS_GOLD) != 0;}
+    public Creature getCreature(int index) {return (hasCreature(index) ? creatures.get(index) : null);}
+    public Item getItem(int index) {return (hasItem(index) ? items.get(index) : null);}
+    public int getGold(int index) {return (hasGold(index) ? gold.get(index) : 0);}
+
+    /**
+       Checks if a cell is empty: no feature, creature, or item (gold does not count).
+       @param index index of the cell
+       @return true if the cell is empty
+     */
+    public boolean isEmpty(int index) {return (cell(index) & (FEATURE_MASK | OCCUPIED)) == FEATURE_NONE;}
+
+    // setters
+    public void setFeature(int index, byte feature) {
+        byte old = getFeature(index);
+        if ((feature == FEATURE_WALL) != (old == FEATURE_WALL)) {terrainVersion++;}
+        if (old != feature) {
+            if (stairs(old) != null) {stairs(old).remove(index);}
+            if (stairs(feature) != null) {stairs(feature).add(index);}
+        }
+        setCell(index, (cell(index) & ~FEATURE_MASK) | feature);
+        updateFree(index);
+        markChanged(index);
+    }
+
+    public void setCreature(int index, Creature creature) {
+        if (creature == null) {
+            creatures.remove(index);
+            setCell(index, cell(index) & ~HAS_CREATURE);
+        } else {
+            creatures.put(index, creature);
+            setCell(index, cell(index) | HAS_CREATURE);
+        }
+        updateFree(index);
+        markChanged(index);
+    }
+
+    public void setItem(int index, Item item) {
+        if (item == null) {
+            items.remove(index);
+            setCell(index, cell(index) & ~HAS_ITEM);
+        } else {
+            items.put(index, item);
+            setCell(index, cell(index) | HAS_ITEM);
+        }
+        updateFree(index);
+        markChanged(index);
+    }
+
+    public void setGold(int index, int amount) {
+        if (amount <= 0) {
+            gold.remove(index);
+            setCell(index, cell(index) & ~HAS_GOLD);
+        } else {
+            gold.put(index, amount);
+            setCell(index, cell(index) | HAS_GOLD);
+        }
+        markChanged(index);
+    }
+
+    /**
+       Returns the set of cells with one of the kinds of stairs.
+       @param feature FEATURE_STAIRS_DOWN or FEATURE_STAIRS_UP
+       @return the cells, or null for any other feature
+     */
+    private TreeSet<Integer> stairs(byte feature) {
+        if (feature == FEATURE_STAIRS_DOWN) {return stairsDown;}
+        if (feature == FEATURE_STAIRS_UP) {return stairsUp;}
+        return null;
+    }
+
+    /**
+       Finds the first stairs (in reading order) of a kind, without looking through the cells.
+       @param feature FEATURE_STAIRS_DOWN or FEATURE_STAIRS_UP
+       @return index of the cell, or -1 if there are no such stairs
+       @throws IllegalArgumentException if the feature is not stairs
+     */
+    public int findStairs(byte feature) {
+        TreeSet<Integer> found = stairs(feature);
+        if (found == null) {throw new IllegalArgumentException("not stairs: " + feature);}
+        return (found.isEmpty() ? -1 : found.first());
+    }
+
+    /**
+       Returns the cells with gold, without looking through the cells.
+       @return indices of the cells, in increasing order
+     */
+    public int[] getGoldCells() {return sorted(gold.keySet());}
+
+    /**
+       Returns the cells with an Item, without looking through the cells.
+       @return indices of the cells, in increasing order
+     */
+    public int[] getItemCells() {return sorted(items.keySet());}
+
+    /**
+       Sorts a set of cell indices.
+       @param keys the cells
+       @return the same cells, in increasing order
+     */
+    private static int[] sorted(Collection<Integer> keys) {
+        int[] sorted = new int[keys.size()];
+        int n = 0;
+        for (int index : keys) {sorted[n++] = index;}
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+       Picks an empty cell at random, in constant time.
+       A chunked grid instead looks at up to SAMPLE_TRIES random cells of the chunks kept by the last keepNear() until
+         it finds an empty one, so nothing far from there is generated.  The pick depends only on the contents of the
+         grid and where keepNear() was last called, never on which other chunks happen to be in use; but it can miss,
+         where there are few empty cells.
+       @param random random stream to pick with
+       @return index of a random empty cell; NO_EMPTY_CELL if there are no empty cells left, or EMPTY_NOT_FOUND if a
+               chunked grid found none
+     */
+    public int randomEmpty(GameRandom random) {
+        if (cells == null) {
+            int keep = keptChunks(focusDistance);
+            int top = Math.max(0, ((focusRow >> CHUNK_SHIFT) - keep) << CHUNK_SHIFT);
+            int bottom = Math.min(rows, ((focusRow >> CHUNK_SHIFT) + keep + 1) << CHUNK_SHIFT);
+            int left = Math.max(0, ((focusColumn >> CHUNK_SHIFT) - keep) << CHUNK_SHIFT);
+            int right = Math.min(columns, ((focusColumn >> CHUNK_SHIFT) + keep + 1) << CHUNK_SHIFT);
+            for (int i = 0; i < SAMPLE_TRIES; i++) {
+                int r = top + random.nextInt(bottom - top);
+                int index = r * columns + left + random.nextInt(right - left);
+                if (isEmpty(index)) {return index;}
+            }
+            return EMPTY_NOT_FOUND;
+        }
+        buildFree();
+        if (freeCount == 0) {return NO_EMPTY_CELL;}
+        return free[random.nextInt(freeCount)];
+    }
+
+    /**
+       Builds the index of empty cells, if it hasn't been built yet.
+       This is deferred until the index is first needed, so that carving out a fresh level doesn't pay for it.
+     */
+    private void buildFree() {
+        if (free != null) {return;}
+        free = new int[cells.length];
+        freeSlot = new int[cells.length];
+        freeCount = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (isEmpty(i)) {
+                freeSlot[i] = freeCount;
+                free[freeCount++] = i;
+            } else {
+                freeSlot[i] = -1;
+            }
+        }
+    }
+
+    /**
+       Brings the index of empty cells up to date after a cell has changed.
+       @param index index of the cell that changed
+     */
+    private void updateFree(int index) {
+        if (free == null) {return;} // not built yet; it will be built from scratch when needed
+        int slot = freeSlot[index];
+        if (isEmpty(index)) {
+            if (slot < 0) { // newly empty
+                freeSlot[index] = freeCount;
+                free[freeCount++] = index;
+            }
+        } else if (slot >= 0) { // no longer empty: move the last entry into its slot
+            int last = free[--freeCount];
+            free[slot] = last;
+            freeSlot[last] = slot;
+            freeSlot[index] = -1;
+        }
+    }
+
+    /**
+       Starts (or stops) keeping track of which cells change.
+       Starting always begins with an empty list of changes.
+       @param track true to keep track of changes, false to stop
+     */
+    public void setTrackChanges(boolean track) {
+        if (track) {
+            changed = (cells == null ? new BitSet() : new BitSet(cells.length)); // a chunked grid's grows as needed
+            changes = new int[64];
+            changeCount = 0;
+        } else {
+            changed = null;
+            changes = null;
+        }
+    }
+
+    // getters for the list of changed cells
+    public int getChangeCount() {return changeCount;}
+    public int getChange(int i) {return changes[i];}
+
+    /**
+       Empties the list of changed cells; usually done once a display has caught up with them.
+     */
+    public void clearChanges() {
+        if (changed == null) {return;}
+        for (int i = 0; i < changeCount; i++) {
+            changed.clear(changes[i]);
+        }
+        changeCount = 0;
+    }
+
+    /**
+       Adds a cell to the list of changed cells, if changes are being tracked and it isn't already there.
+       @param index index of the cell that changed
+     */
+    private void markChanged(int index) {
+        if (changed == null || changed.get(index)) {return;}
+        changed.set(index);
+        if (changeCount == changes.length) {changes = Arrays.copyOf(changes, changeCount * 2);}
+        changes[changeCount++] = index;
+    }
+
+    /**
+       Returns the symbol a cell should display.
+       A wall covers up anything else; then creatures, items, gold, and stairs (down or up), in that order.
+       @param index index of the cell
+       @return The character that the cell should display.
+     */
+    public char getSymbol(int index) {
+        int cell = cell(index);
+        int feature = cell & FEATURE_MASK;
+        if (feature == FEATURE_WALL) {
+            return Tile.SYMBOL_WALL;
+        } else if ((cell & HAS_CREATURE) != 0) {
+            return creatures.get(index).getSymbol();
+        } else if ((cell & HAS_ITEM) != 0) {
+            return items.get(index).getSymbol();
+        } else if ((cell & HAS_GOLD) != 0) {
+            return Tile.SYMBOL_GOLD;
+        } else if (feature == FEATURE_STAIRS_DOWN) {
+            return Tile.SYMBOL_STAIRS_DOWN;
+        } else if (feature == FEATURE_STAIRS_UP) {
+            return Tile.SYMBOL_STAIRS_UP;
+        }
+        return Tile.SYMBOL_FLOOR;
+    }
+
+    /**
+       Returns the cells of the chunk holding a location, putting the chunk in use first if it isn't.
+       @param r row of the location
+       @param c column of the location
+       @return cells of the chunk
+     */
+    private byte[] chunk(int r, int c) {
+        int id = (r >> CHUNK_SHIFT) * chunkColumns + (c >> CHUNK_SHIFT);
+        byte[] chunk = chunks[id];
+        return (chunk == null ? load(id) : chunk);
+    }
+
+    /**
+       Puts a chunk in use: unpacks it if it was changed before, generates it otherwise.
+       @param id number of the chunk (chunk row * chunk columns + chunk column)
+       @return cells of the chunk
+     */
+    private byte[] load(int id) {
+        byte[] chunk;
+        if (packed[id] != null) {
+            chunk = unpack(packed[id]);
+            packed[id] = null;
+            packedCount--;
+            dirty.set(id); // still not as generated
+        } else {
+            chunk = generate(id);
+            dirty.clear(id);
+        }
+        chunks[id] = chunk;
+        if (loadedCount == loaded.length) {loaded = Arrays.copyOf(loaded, loadedCount * 2);}
+        loaded[loadedCount++] = id;
+        return chunk;
+    }
+
+    /**
+       Generates the cells of a chunk, as they are before anything is changed.
+       @param id number of the chunk
+       @return cells of the chunk; any beyond the edge of the grid are walls
+     */
+    private byte[] generate(int id) {
+        int chunkRow = id / chunkColumns;
+        int chunkColumn = id - chunkRow * chunkColumns;
+        byte[] chunk = new byte[CHUNK_CELLS];
+        Arrays.fill(chunk, FEATURE_WALL);
+        source.generate(chunkRow, chunkColumn, chunk);
+
+        // keep the edges of the grid walled in, nothing but walls past them, and nothing but walls and floor at all
+        int top = chunkRow << CHUNK_SHIFT;
+        int left = chunkColumn << CHUNK_SHIFT;
+        for (int i = 0; i < CHUNK_CELLS; i++) {
+            int r = top + (i >> CHUNK_SHIFT);
+            int c = left + (i & CHUNK_MASK);
+            if (r <= 0 || r >= rows - 1 || c <= 0 || c >= columns - 1 || chunk[i] != FEATURE_NONE) {
+                chunk[i] = FEATURE_WALL;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+       Lets go of every chunk of a chunked grid with no cell within a given distance of a location.
+       A chunk nothing has been changed in is dropped; any other is compressed.  Either way, it comes back as it was
+         the next time one of its cells is used.  From then on, random empty cells are picked among the chunks kept.
+       Does nothing if the grid isn't chunked.
+       @param r row of the location
+       @param c column of the location
+       @param distance distance (in rows and columns) from the location within which chunks stay in use
+     */
+    public void keepNear(int r, int c, int distance) {
+        if (cells != null) {return;}
+        focusRow = r;
+        focusColumn = c;
+        focusDistance = distance;
+        int keep = keptChunks(distance);
+        int chunkRow = r >> CHUNK_SHIFT;
+        int chunkColumn = c >> CHUNK_SHIFT;
+        for (int i = loadedCount - 1; i >= 0; i--) {
+            int id = loaded[i];
+            int row = id / chunkColumns;
+            int column = id - row * chunkColumns;
+            if (Math.abs(row - chunkRow) <= keep && Math.abs(column - chunkColumn) <= keep) {continue;}
+
+            if (dirty.get(id)) {
+                packed[id] = pack(chunks[id]);
+                packedCount++;
+            }
+            chunks[id] = null;
+            loaded[i] = loaded[--loadedCount];
+        }
+    }
+
+    /**
+       Works out how many chunks on every side of a location's own chunk keepNear keeps in use.
+       @param distance distance (in rows and columns) from the location within which chunks stay in use
+       @return number of chunks
+     */
+    private static int keptChunks(int distance) {return (distance + CHUNK_MASK) >> CHUNK_SHIFT;}
+
+    /**
+       Finds the next chunk of a chunked grid that has been changed since it was generated.
+       @param id number of the chunk to start looking at
+       @return number of the chunk, or -1 if there are no more
+     */
+    public int nextChangedChunk(int id) {return dirty.nextSetBit(id);}
+
+    /**
+       Copies the terrain features of a chunk of a chunked grid, without putting the chunk in use.
+       @param id number of the chunk (chunk row * chunk columns + chunk column)
+       @param features where to copy them: CHUNK_CELLS of them, row by row; any beyond the edge of the grid are walls
+     */
+    public void getChunkFeatures(int id, byte[] features) {
+        byte[] chunk = chunks[id];
+        if (chunk == null) {chunk = (packed[id] != null ? unpack(packed[id]) : generate(id));}
+        for (int i = 0; i < CHUNK_CELLS; i++) {
+            features[i] = (byte) (chunk[i] & FEATURE_MASK);
+        }
+    }
+
+    /**
+       Sets the terrain features of a chunk of a chunked grid, as copied by getChunkFeatures.
+       Only the cells that come out different from the ChunkSource's count as changed.
+       @param id number of the chunk
+       @param features CHUNK_CELLS features, row by row; those beyond the edge of the grid are ignored
+     */
+    public void setChunkFeatures(int id, byte[] features) {
+        int chunkRow = id / chunkColumns;
+        int top = chunkRow << CHUNK_SHIFT;
+        int left = (id - chunkRow * chunkColumns) << CHUNK_SHIFT;
+        for (int i = 0; i < CHUNK_CELLS; i++) {
+            int r = top + (i >> CHUNK_SHIFT);
+            int c = left + (i & CHUNK_MASK);
+            if (r >= rows || c >= columns) {continue;}
+            int index = r * columns + c;
+            if (getFeature(index) != features[i]) {setFeature(index, features[i]);}
+        }
+    }
+
+    /**
+       Compresses the cells of a chunk.
+       @param chunk cells of the chunk
+       @return the compressed cells
+     */
+    private static byte[] pack(byte[] chunk) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(chunk);
+        deflater.finish();
+        byte[] buffer = new byte[CHUNK_CELLS + 64]; // enough even if the cells don't compress at all
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+       Uncompresses the cells of a chunk.
+       @param data compressed cells, from pack()
+       @return cells of the chunk
+     */
+    private static byte[] unpack(byte[] data) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        byte[] chunk = new byte[CHUNK_CELLS];
+        try {
+            if (inflater.inflate(chunk) != CHUNK_CELLS) {throw new IllegalStateException("truncated chunk");}
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("damaged chunk", e);
+        } finally {
+            inflater.end();
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+   LevelPregenerator
+   Creates the next dungeon Level on a worker thread while the Hero is still exploring the current one, so that going
+   down the stairs does not freeze the user interface while a Level is laid out and populated.
+
+   Levels below the first are made by GamePlay.generateLevel from the session's seed and their depth alone, so a Level
+   made here is exactly the one that would have been made on the spot.  A single low-priority daemon thread, shared by
+   every session, does the work.
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class LevelPregenerator {
+
+    private static ExecutorService worker; // shared by all sessions; created when first needed
+
+    private final long seed; // seed of the game session the Levels are for
+    private int depth;       // depth of the Level being made, if any
+    private Future<Level> pending; // the Level being made, or null
+
+    /**
+       Constructor.
+       @param seed Seed of the game session the Levels are for
+     */
+    public LevelPregenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+       Starts making the Level for a depth, unless it is being made already.  Any other Level being made is abandoned.
+       @param depth depth of the Level to make
+     */
+    public void start(final int depth) {
+        if (pending != null && this.depth == depth) {return;}
+        cancel();
+        this.depth = depth;
+        pending = getWorker().submit(new Callable<Level>() {
+            public Level call() {
+                return GamePlay.generateLevel(seed, depth);
+            }
+        });
+    }
+
+    /**
+       Checks if the Level for a depth is ready to be taken.
+       @param depth depth of the Level
+       @return true if it has been made
+     */
+    public boolean isReady(int depth) {return (pending != null && this.depth == depth && pending.isDone());}
+
+    /**
+       Takes the Level for a depth, if it is ready.
+       A Level that is not ready yet is abandoned: the caller is better off making it on the spot than waiting behind
+         whatever else the worker may be busy with.
+       @param depth depth of the Level wanted
+       @return the Level, or null if it is not ready (or was never asked for)
+     */
+    public Level take(int depth) {
+        if (pending == null || this.depth != depth) {return null;}
+        if (!pending.isDone()) {
+            cancel();
+            return null;
+        }
+        Future<Level> done = pending;
+        pending = null;
+        try {
+            return done.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) { // it will fail again on the spot, where it can be reported properly
+            return null;
+        }
+    }
+
+    /**
+       Abandons the Level being made, if any.
+     */
+    public void cancel() {
+        if (pending != null) {
+            pending.cancel(false); // the worker does not check for interrupts; let it finish and throw the Level away
+            pending = null;
+        }
+    }
+
+    /**
+       Returns the shared worker thread, starting it if need be.
+       @return the worker
+     */
+    private static synchronized ExecutorService getWorker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "level-pregenerator");
+                    t.setDaemon(true); // never keeps the game from exiting
+                    t.setPriority(Thread.MIN_PRIORITY); // never competes with the event thread
+                    return t;
+                }
+            });
+        }
+        return worker;
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for LevelPregenerator: a level made in the background must be the one that would be made on the spot.
+ */
+public class LevelPregeneratorTest
+{
+    private Catalog previous; // lists in use before the test
+
+    @Before
+    public void setUp()
+    {
+        previous = SampleLists.use();
+    }
+
+    @After
+    public void tearDown()
+    {
+        SampleLists.restore(previous);
+    }
+
+    @Test
+    public void testBackgroundLevelIsTheSameLevel() throws Exception
+    {
+        LevelPregenerator pregenerator = new LevelPregenerator(77);
+        pregenerator.start(2);
+        while (!pregenerator.isReady(2)) {Thread.sleep(1);}
+        assertNull(pregenerator.take(3));
+        Level background = pregenerator.take(2);
+        assertNotNull(background);
+        assertNull(pregenerator.take(2)); // it can only be taken once
+
+        Level spot = GamePlay.generateLevel(77, 2);
+        assertEquals(spot.viewMap(10, 10), background.viewMap(10, 10));
+        assertEquals(spot.getMonsters().size(), background.getMonsters().size());
+        assertNotNull(background.findFeature(LevelGrid.FEATURE_STAIRS_UP));
+        assertNotNull(background.findFeature(LevelGrid.FEATURE_STAIRS_DOWN));
+    }
+
+    @Test
+    public void testGamesPlayTheSameEitherWay() throws Exception
+    {
+        GamePlay plain = new GamePlay("PowerMan", 123);
+        GamePlay background = new GamePlay("PowerMan", 123);
+        background.setBackgroundGeneration(true);
+        Thread.sleep(50); // give the worker a chance, though the outcome must not depend on it
+
+        for (GamePlay game : new GamePlay[] {plain, background}) {
+            game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+            game.descendStairs();
+            assertEquals(2, game.getDepth());
+        }
+        assertEquals(plain.getView(), background.getView());
+
+        HeadlessSimulation.Policy policy = new HeadlessSimulation.RandomWalk();
+        GameRandom moves1 = new GameRandom(9);
+        GameRandom moves2 = new GameRandom(9);
+        for (int i = 0; i < 100 && !plain.isHeroDead(); i++) {
+            policy.act(plain, moves1);
+            policy.act(background, moves2);
+        }
+        assertEquals(plain.getView(), background.getView());
+        assertEquals(plain.getHeroHealth(), background.getHeroHealth());
+        background.setBackgroundGeneration(false);
+    }
+}
@@ -0,0 +1,203 @@
+/**
+   LevelStore
+   Keeps the dungeon Levels the Hero has left, so they are still there when the Hero comes back.
+
+   Only the few most recently used Levels are kept in memory.  Once there are more than that, the least recently used
+   one is written to a temporary file (in the compact format of LevelCodec) and dropped from memory; it is read back
+   when it is next asked for.  However deep the dungeon, memory use stays bounded.
+   The temporary files are deleted once they have been read back, and when the game exits.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LevelStore {
+
+    public static final int DEFAULT_CAPACITY = 3; // default number of Levels kept in memory
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, Level> memory = new LinkedHashMap<>(16, 0.75f, true); // by depth, in LRU order
+    private final HashMap<Integer, File> spilled = new HashMap<>(); // Levels written out to disk, by depth
+    private File directory; // where spilled Levels go; created when first needed
+
+    /**
+       Constructor.
+       @param capacity Number of Levels to keep in memory
+     */
+    public LevelStore(int capacity) {
+        if (capacity <= 0) {throw new IllegalArgumentException("capacity must be positive");}
+        this.capacity = capacity;
+    }
+
+    // getters
+    public int size() {return memory.size() + spilled.size();}
+    public int getMemoryCount() {return memory.size();}
+    public int getSpilledCount() {return spilled.size();}
+
+    /**
+       Checks if a Level is being kept for a depth.
+       @param depth depth of the Level
+       @return true if there is one, in memory or on disk
+     */
+    public boolean contains(int depth) {return memory.containsKey(depth) || spilled.containsKey(depth);}
+
+    /**
+       Returns the depths of every Level being kept, in increasing order.
+       @return list of depths
+     */
+    public List<Integer> getDepths() {
+        List<Integer> depths = new ArrayList<>(memory.keySet());
+        depths.addAll(spilled.keySet());
+        Collections.sort(depths);
+        return depths;
+    }
+
+    /**
+       Keeps a Level, replacing any Level already kept for the same depth.
+       If this puts too many Levels in memory, the least recently used is written to disk.
+       @param depth depth of the Level
+       @param level Level to keep; it should have no Hero on it
+       @throws IOException if a Level had to be written to disk and could not be
+     */
+    public void put(int depth, Level level) throws IOException {
+        File stale = spilled.remove(depth);
+        if (stale != null) {stale.delete();}
+        memory.put(depth, level);
+        if (memory.size() > capacity) {
+            Iterator<Map.Entry<Integer, Level>> eldest = memory.entrySet().iterator();
+            Map.Entry<Integer, Level> entry = eldest.next();
+            spill(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+       Gets a Level back, reading it from disk if it was written out.
+       The Level stays in the store (it counts as just used) until put() replaces it.
+       @param depth depth of the Level
+       @param random Random stream owned by the game session, for a Level that has to be read back
+       @return the Level, or null if none is being kept for that depth
+       @throws IOException if the Level had to be read from disk and could not be
+     */
+    public Level get(int depth, GameRandom random) throws IOException {
+        Level level = memory.get(depth);
+        if (level != null) {return level;}
+        File file = spilled.get(depth);
+        if (file == null) {return null;}
+        level = read(file, random);
+        spilled.remove(depth);
+        file.delete();
+        put(depth, level); // back in memory, which may push another Level out
+        return level;
+    }
+
+    /**
+       Takes a Level out of the store, reading it from disk if it was written out; normally done as the Hero arrives
+         on it, since the Level in play is not kept here.
+       @param depth depth of the Level
+       @param random Random stream owned by the game session, for a Level that has to be read back
+       @return the Level, or null if none is being kept for that depth
+       @throws IOException if the Level had to be read from disk and could not be
+     */
+    public Level take(int depth, GameRandom random) throws IOException {
+        Level level = memory.remove(depth);
+        if (level != null) {return level;}
+        File file = spilled.get(depth);
+        if (file == null) {return null;}
+        level = read(file, random);
+        spilled.remove(depth);
+        file.delete();
+        return level;
+    }
+
+    /**
+       Writes every Level being kept to a save, whether it is in memory or on disk.
+       @param out where to write them
+       @param random Random stream owned by the game session, for Levels that have to be read back to be written
+       @throws IOException if a Level cannot be read or written
+     */
+    public void write(SaveWriter out, GameRandom random) throws IOException {
+        List<Integer> depths = getDepths();
+        Map<Integer, Level> inMemory = new HashMap<>(memory); // so looking Levels up leaves the LRU order alone
+        out.writeVarInt(depths.size());
+        for (int depth : depths) {
+            out.writeVarInt(depth);
+            Level level = inMemory.get(depth);
+            LevelCodec.write(level != null ? level : read(spilled.get(depth), random), out);
+        }
+    }
+
+    /**
+       Reads Levels written by write() into this store.
+       @param in where to read them from
+       @param random Random stream owned by the game session the Levels belong to
+       @throws IOException if a Level cannot be read
+     */
+    public void read(SaveReader in, GameRandom random) throws IOException {
+        int count = in.readVarInt();
+        for (int i = 0; i < count; i++) {
+            int depth = in.readVarInt();
+            put(depth, LevelCodec.read(in, random));
+        }
+    }
+
+    /**
+       Forgets every Level, deleting any files written out.
+     */
+    public void clear() {
+        for (File file : spilled.values()) {file.delete();}
+        spilled.clear();
+        memory.clear();
+    }
+
+    /**
+       Writes a Level to a temporary file.
+       @param depth depth of the Level
+       @param level Level to write
+       @throws IOException if the Level cannot be written
+     */
+    private void spill(int depth, Level level) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("dungeon-levels").toFile();
+            directory.deleteOnExit(); // registered first, so it is deleted after the files in it
+        }
+        File file = new File(directory, "level-" + depth + ".bin");
+        file.deleteOnExit();
+        SaveWriter out = new SaveWriter(new FileOutputStream(file), false); // the terrain is run-length encoded already
+        try {
+            LevelCodec.write(level, out);
+            out.finish();
+        } finally {
+            out.close();
+        }
+        spilled.put(depth, file);
+    }
+
+    /**
+       Reads a Level from a temporary file.
+       @param file file the Level was written to
+       @param random Random stream owned by the game session
+       @return the Level
+       @throws IOException if the Level cannot be read
+     */
+    private static Level read(File file, GameRandom random) throws IOException {
+        SaveReader in = new SaveReader(new FileInputStream(file));
+        try {
+            Level level = LevelCodec.read(in, random);
+            in.finish();
+            return level;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static utils.GameFunctions.*;
+
+/**
+ * Tests for LevelStore, and for going back up and down stairs to levels kept in it.
+ */
+public class LevelStoreTest
+{
+    private Catalog previous; // lists in use before the test
+
+    @Before
+    public void setUp()
+    {
+        previous = SampleLists.use();
+    }
+
+    @After
+    public void tearDown()
+    {
+        SampleLists.restore(previous);
+    }
+
+    @Test
+    public void testEvictedLevelsComeBackUnchanged() throws Exception
+    {
+        GameRandom random = new GameRandom(5);
+        LevelStore store = new LevelStore(2);
+        String[] views = new String[6];
+        for (int depth = 1; depth <= 5; depth++) {
+            Level level = new Level(ROW_SIZE, COLUMN_SIZE, random);
+            Generator gen = new Generator(depth, random);
+            for (int i = 0; i < 10; i++) {
+                level.getTile(level.getEmptyTile()).setGold(gen.generateGold());
+                level.getTile(level.getEmptyTile()).setItem(gen.generateItem());
+            }
+            views[depth] = level.viewMap(ROW_SIZE / 2, COLUMN_SIZE / 2);
+            store.put(depth, level);
+        }
+        assertEquals(5, store.size());
+        assertEquals(2, store.getMemoryCount());
+        assertEquals(3, store.getSpilledCount());
+
+        for (int depth = 1; depth <= 5; depth++) {
+            assertTrue(store.contains(depth));
+            assertEquals(views[depth], store.get(depth, random).viewMap(ROW_SIZE / 2, COLUMN_SIZE / 2));
+            assertTrue(store.getMemoryCount() <= 2);
+        }
+        assertNull(store.get(6, random));
+        store.clear();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testStairsLeadBackToTheSameLevels()
+    {
+        GamePlay game = new GamePlay("PowerMan", new GameRandom(11));
+        game.ascendStairs(); // there is nothing above the first level
+        assertEquals(1, game.getDepth());
+
+        Level first = game.getLevel();
+        first.getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+        game.descendStairs();
+        assertEquals(2, game.getDepth());
+        Level second = game.getLevel();
+        assertNotSame(first, second);
+        assertTrue(second.getTile(game.getHeroRow(), game.getHeroColumn()).hasUpStairs());
+
+        game.ascendStairs();
+        assertEquals(1, game.getDepth());
+        assertSame(first, game.getLevel());
+        assertTrue(first.getTile(game.getHeroRow(), game.getHeroColumn()).hasDownStairs());
+        game.descendStairs();
+        assertEquals(2, game.getDepth());
+        assertSame(second, game.getLevel());
+        assertTrue(second.getTile(game.getHeroRow(), game.getHeroColumn()).hasUpStairs());
+    }
+
+    @Test
+    public void testLevelInPlayIsNotKept() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", new GameRandom(12));
+        game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+        game.descendStairs();
+        assertEquals(Arrays.asList(1), game.getLevelStore().getDepths());
+        game.ascendStairs();
+        assertEquals(Arrays.asList(2), game.getLevelStore().getDepths());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, true);
+        game.save(writer);
+        writer.close();
+        SaveReader reader = new SaveReader(new ByteArrayInputStream(bytes.toByteArray()));
+        GamePlay loaded = GamePlay.load(reader);
+        reader.close();
+        assertEquals(Arrays.asList(2), loaded.getLevelStore().getDepths());
+    }
+
+    @Test
+    public void testNoRoomToArrive() throws Exception
+    {
+        GameRandom random = new GameRandom(13);
+        GamePlay game = new GamePlay("PowerMan", random);
+        Level first = game.getLevel();
+        first.getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+        game.descendStairs();
+        Level second = game.getLevel();
+        game.ascendStairs();
+
+        // crowd the second level so there is nowhere left to stand
+        Generator gen = new Generator(2, random);
+        for (int r = 0; r < ROW_SIZE; r++) {
+            for (int c = 0; c < COLUMN_SIZE; c++) {
+                Tile tile = second.getTile(r, c);
+                if (!tile.isWall() && !tile.hasCreature()) {tile.setCreature(gen.generateMonster());}
+            }
+        }
+
+        game.descendStairs();
+        assertEquals(1, game.getDepth()); // the hero stays where he was
+        assertSame(first, game.getLevel());
+        assertTrue(first.getTile(game.getHeroRow(), game.getHeroColumn()).hasCreature());
+        assertEquals(Arrays.asList(2), game.getLevelStore().getDepths());
+    }
+}
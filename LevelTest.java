@@ -31,6 +31,23 @@ public class LevelTest {
         assertTrue(empty.isEmpty());
     }
 
+    @Test
+    public void testGetEmptyTileUntilFull() throws Exception
+    {
+        Level level = new Level(GameFunctions.COLUMN_SIZE, GameFunctions.ROW_SIZE);
+        PossibleWeapon protoSword = new PossibleWeapon("sword", 10, 10, ')');
+        int filled = 0;
+        int index[];
+        while ((index = level.getEmptyTile()) != null) {
+            Tile empty = level.getTile(index[0], index[1]);
+            assertTrue(empty.isEmpty());
+            empty.setItem(Weapon.createWeapon(protoSword));
+            filled++;
+        }
+        assertTrue(filled > 0);
+        assertNull(level.getEmptyTile());
+    }
+
     @Test
     public void testGetTile() throws Exception
     {
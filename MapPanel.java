@@ -0,0 +1,166 @@
+/**
+   MapPanel
+   Swing component that draws the map as a grid of characters.
+
+   Every symbol is rendered once, in its colour, into a small image (a glyph) that is kept in an atlas; drawing a
+   cell is then just copying its glyph into a back buffer.  Only the cells a Viewport reports as changed are copied,
+   and only their area of the screen is repainted, so there is no text layout, caret, or document to maintain.
+   Cells the Hero only remembers, rather than sees, are drawn dimmed.
+ */
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import javax.swing.JComponent;
+
+public class MapPanel extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    // colours of the things on the map
+    private static final Color COLOR_BACKGROUND = Color.BLACK;
+    private static final Color COLOR_HERO       = Color.WHITE;
+    private static final Color COLOR_MONSTER    = new Color(255, 80, 80);
+    private static final Color COLOR_ITEM       = new Color(90, 200, 255);
+    private static final Color COLOR_GOLD       = new Color(255, 215, 0);
+    private static final Color COLOR_STAIRS     = new Color(80, 255, 80);
+    private static final Color COLOR_WALL       = new Color(160, 160, 160);
+    private static final Color COLOR_FLOOR      = new Color(100, 100, 100);
+    private static final float DIMMED           = 0.4f; // brightness of remembered cells, relative to seen ones
+
+    // dimmed version of each colour above, worked out once
+    private static final HashMap<Color, Color> DIMMED_COLORS = new HashMap<>();
+    static {
+        for (Color color : new Color[] {COLOR_BACKGROUND, COLOR_HERO, COLOR_MONSTER, COLOR_ITEM, COLOR_GOLD,
+                                        COLOR_STAIRS, COLOR_WALL, COLOR_FLOOR}) {
+            DIMMED_COLORS.put(color, dim(color));
+        }
+    }
+
+    private final int size;         // number of rows and columns on the map
+    private final Font font;
+    private final int cellWidth;    // size of one cell, in pixels
+    private final int cellHeight;
+    private final int baseline;     // distance from the top of a cell to the baseline of its glyph
+    private final BufferedImage buffer; // the map as currently drawn
+    private final HashMap<Long, BufferedImage> glyphs = new HashMap<>(); // atlas, keyed by colour and symbol
+
+    /**
+       Constructor.
+       @param size Number of rows and columns on the map (normally MAP_SIZE)
+       @param font Font to draw symbols in; should be monospaced
+     */
+    public MapPanel(int size, Font font) {
+        this.size = size;
+        this.font = font;
+        FontMetrics metrics = getFontMetrics(font);
+        cellWidth = metrics.charWidth('W');
+        cellHeight = metrics.getHeight();
+        baseline = metrics.getAscent();
+        buffer = new BufferedImage(size * cellWidth, size * cellHeight, BufferedImage.TYPE_INT_RGB);
+        Dimension dimension = new Dimension(buffer.getWidth(), buffer.getHeight());
+        setPreferredSize(dimension);
+        setMinimumSize(dimension);
+        setOpaque(true);
+    }
+
+    /**
+       Redraws whatever changed in a Viewport since it was last shown.
+       @param view Viewport that has just been updated
+     */
+    public void update(Viewport view) {
+        Graphics g = buffer.getGraphics();
+        if (view.isFull()) {
+            for (int cell = 0; cell < size * size; cell++) {
+                drawCell(g, cell, view.getSymbol(cell), view.isRemembered(cell));
+            }
+            repaint();
+        } else {
+            for (int i = 0; i < view.getChangedCount(); i++) {
+                int cell = view.getChanged(i);
+                drawCell(g, cell, view.getSymbol(cell), view.isRemembered(cell));
+                repaint((cell % size) * cellWidth, (cell / size) * cellHeight, cellWidth, cellHeight);
+            }
+        }
+        g.dispose();
+    }
+
+    /**
+       Copies the glyph for a symbol into a cell of the back buffer.
+       @param g graphics of the back buffer
+       @param cell cell of the map, as row * size + column
+       @param symbol symbol to draw there
+       @param dimmed true to draw it dimmed, as a remembered cell
+     */
+    private void drawCell(Graphics g, int cell, char symbol, boolean dimmed) {
+        Color color = colorOf(symbol);
+        if (dimmed) {color = DIMMED_COLORS.get(color);}
+        g.drawImage(getGlyph(symbol, color), (cell % size) * cellWidth, (cell / size) * cellHeight, null);
+    }
+
+    /**
+       Dims a colour, for drawing remembered cells.
+       @param color colour of the symbol when seen
+       @return the same colour, darker
+     */
+    private static Color dim(Color color) {
+        return new Color(Math.round(color.getRed() * DIMMED), Math.round(color.getGreen() * DIMMED),
+                         Math.round(color.getBlue() * DIMMED));
+    }
+
+    /**
+       Gets the glyph for a symbol in a colour, rendering it into the atlas the first time it is asked for.
+       @param symbol symbol to draw
+       @param color colour to draw it in
+       @return image of a single cell showing the symbol
+     */
+    private BufferedImage getGlyph(char symbol, Color color) {
+        Long key = ((long) color.getRGB() << 16) | symbol;
+        BufferedImage glyph = glyphs.get(key);
+        if (glyph == null) {
+            glyph = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = glyph.createGraphics();
+            g.setColor(COLOR_BACKGROUND);
+            g.fillRect(0, 0, cellWidth, cellHeight);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(font);
+            g.setColor(color);
+            g.drawString(String.valueOf(symbol), 0, baseline);
+            g.dispose();
+            glyphs.put(key, glyph);
+        }
+        return glyph;
+    }
+
+    /**
+       Picks the colour of a symbol according to what it stands for.
+       Monsters are letters; anything that isn't a known map feature is an Item.
+       @param symbol symbol on the map
+       @return colour to draw it in
+     */
+    private static Color colorOf(char symbol) {
+        if (Character.isLetter(symbol)) {return COLOR_MONSTER;}
+        switch (symbol) {
+            case Hero.SYMBOL_HERO:         return COLOR_HERO;
+            case Tile.SYMBOL_WALL:         return COLOR_WALL;
+            case Tile.SYMBOL_FLOOR:        return COLOR_FLOOR;
+            case Tile.SYMBOL_GOLD:         return COLOR_GOLD;
+            case Tile.SYMBOL_STAIRS_DOWN:  return COLOR_STAIRS;
+            case Tile.SYMBOL_STAIRS_UP:    return COLOR_STAIRS;
+            case ' ':                      return COLOR_BACKGROUND;
+            default:                       return COLOR_ITEM;
+        }
+    }
+
+    /**
+       Paints the component by copying the back buffer to the screen.
+     */
+    @Override protected void paintComponent(Graphics g) {
+        g.drawImage(buffer, 0, 0, null);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+   MessageLog
+   History of the messages shown to the player, oldest first.
+
+   Messages are kept in a ring buffer of fixed capacity: adding a message takes constant time, and once the log is
+   full each new message simply overwrites the oldest one.  Nothing is ever copied or shifted, so a long history costs
+   memory but not time.
+ */
+
+public class MessageLog {
+
+    private final String[] lines; // ring buffer
+    private int start;            // position of the oldest message in lines
+    private int size;             // number of messages currently held
+    private long total;           // number of messages ever added, including those since overwritten
+
+    /**
+       Constructor.
+       @param capacity Greatest number of messages to keep
+     */
+    public MessageLog(int capacity) {
+        if (capacity <= 0) {throw new IllegalArgumentException("capacity must be positive");}
+        lines = new String[capacity];
+    }
+
+    // getters
+    public int getCapacity() {return lines.length;}
+    public int size() {return size;}
+    public long getTotal() {return total;}
+
+    /**
+       Adds a message to the end of the log, dropping the oldest message if the log is full.
+       @param line message to add
+     */
+    public void add(String line) {
+        if (size < lines.length) {
+            lines[(start + size++) % lines.length] = line;
+        } else {
+            lines[start] = line;
+            start = (start + 1) % lines.length;
+        }
+        total++;
+    }
+
+    /**
+       Returns a message from the log.
+       @param i which message, from 0 (the oldest still held) to size() - 1 (the newest)
+       @return the message
+       @throws IndexOutOfBoundsException if there is no such message
+     */
+    public String get(int i) {
+        if (i < 0 || i >= size) {throw new IndexOutOfBoundsException("no message " + i);}
+        return lines[(start + i) % lines.length];
+    }
+}
@@ -0,0 +1,105 @@
+/**
+   MessageLogPanel
+   Swing component that displays a MessageLog, meant to be placed in a JScrollPane.
+
+   However long the log is, only the rows that are actually visible are ever drawn: the component is as tall as the
+   whole log, and painting looks at the clip to find which messages fall inside it.  New messages are shown by
+   growing the component and scrolling to the bottom, with no text to rebuild.
+ */
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+public class MessageLogPanel extends JComponent implements Scrollable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MARGIN = 2; // space to the left of each message, in pixels
+
+    private final MessageLog log;
+    private final int visibleRows;  // number of rows shown at once
+    private final int width;        // preferred width, in pixels
+    private final int lineHeight;
+    private final int ascent;
+    private long shown;             // MessageLog.getTotal() when the panel was last brought up to date
+
+    /**
+       Constructor.
+       @param log MessageLog to display
+       @param rows Number of rows to show at once
+       @param columns Approximate number of characters to show on each row
+       @param font Font for the messages
+     */
+    public MessageLogPanel(MessageLog log, int rows, int columns, Font font) {
+        this.log = log;
+        visibleRows = rows;
+        setFont(font);
+        FontMetrics metrics = getFontMetrics(font);
+        lineHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        width = columns * metrics.charWidth('m');
+        setBackground(Color.WHITE);
+        setForeground(Color.BLACK);
+        setOpaque(true);
+    }
+
+    /**
+       Brings the display up to date after messages have been added to the log, and scrolls to the newest.
+       Does nothing if no messages have been added since the last call.
+     */
+    public void messagesAdded() {
+        if (log.getTotal() == shown) {return;}
+        shown = log.getTotal();
+        revalidate(); // the log may have grown
+        repaint();
+        scrollRectToVisible(new Rectangle(0, log.size() * lineHeight - lineHeight, 1, lineHeight));
+    }
+
+    /**
+       Returns the size of the whole log as displayed.
+       @return the preferred size
+     */
+    @Override public Dimension getPreferredSize() {
+        return new Dimension(width, Math.max(1, log.size()) * lineHeight);
+    }
+
+    /**
+       Paints the messages that fall inside the clip, and nothing else.
+     */
+    @Override protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {clip = new Rectangle(0, 0, getWidth(), getHeight());}
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        int first = Math.max(0, clip.y / lineHeight);
+        int last = Math.min(log.size() - 1, (clip.y + clip.height) / lineHeight);
+        for (int row = first; row <= last; row++) {
+            g.drawString(log.get(row), MARGIN, row * lineHeight + ascent);
+        }
+    }
+
+    // Scrollable: scroll by rows, and show a fixed number of them
+    @Override public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(width, visibleRows * lineHeight);
+    }
+
+    @Override public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL ? lineHeight : 10);
+    }
+
+    @Override public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL ? Math.max(lineHeight, visible.height - lineHeight)
+                                                       : visible.width);
+    }
+
+    @Override public boolean getScrollableTracksViewportWidth() {return true;}
+    @Override public boolean getScrollableTracksViewportHeight() {return false;}
+}
@@ -0,0 +1,41 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageLog: oldest messages drop out once it is full, and the rest stay in order.
+ */
+public class MessageLogTest
+{
+    @Test
+    public void testAddAndGet() throws Exception
+    {
+        MessageLog log = new MessageLog(5);
+        log.add("one");
+        log.add("two");
+        assertEquals(2, log.size());
+        assertEquals("one", log.get(0));
+        assertEquals("two", log.get(1));
+    }
+
+    @Test
+    public void testOldestDroppedWhenFull() throws Exception
+    {
+        MessageLog log = new MessageLog(3);
+        for (int i = 0; i < 10; i++) {
+            log.add("message " + i);
+        }
+        assertEquals(3, log.size());
+        assertEquals(10, log.getTotal());
+        assertEquals("message 7", log.get(0));
+        assertEquals("message 8", log.get(1));
+        assertEquals("message 9", log.get(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPastEnd() throws Exception
+    {
+        MessageLog log = new MessageLog(3);
+        log.add("only");
+        log.get(1);
+    }
+}
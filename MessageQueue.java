@@ -1,57 +1,192 @@
 /**
    MessageQueue
-   Queue of messages
- 
+   Queue of messages (GameEvents), passed from the game to the user interface.
+
+   Any number of threads may add messages; a single thread takes them out.  Adding never takes a lock.  The consumer
+   either takes what is there (drainTo, poll) or sleeps until something arrives (take) -- it never spins.  The queue
+   holds a bounded number of messages: put waits for room, while add (used by the game itself, which must never wait
+   on the thread that displays its messages) drops the message and counts it instead.
+
    @author Stephen S. Lee
  */
 
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class MessageQueue {
+
+    public static final int DEFAULT_CAPACITY = 10000; // default greatest number of messages waiting at once
 
-public class MessageQueue implements Runnable {
+    private final ConcurrentLinkedQueue<GameEvent> messages = new ConcurrentLinkedQueue<>(); // saved messages
+    private final AtomicInteger current = new AtomicInteger(); // current number of messages in (or entering) the queue
+    private final AtomicLong dropped = new AtomicLong();       // messages add() had to drop because the queue was full
+    private final int capacity;
 
-    private int current;                 // current number of messages in the queue
-    private LinkedList<String> messages; // saved messages
+    private volatile Thread consumer;         // consumer sleeping in take(), if any
+    private final Object notFull = new Object(); // producers sleeping in put() wait on this
+    private volatile int waitingProducers;    // number of them
 
     /**
        Constructor
      */
     public MessageQueue() {
-        current = 0;
-        messages = new LinkedList<String>();
+        this(DEFAULT_CAPACITY);
     }
-    
+
+    /**
+       Constructor
+       @param capacity Greatest number of messages that can be waiting at once
+     */
+    public MessageQueue(int capacity) {
+        if (capacity <= 0) {throw new IllegalArgumentException("capacity must be positive");}
+        this.capacity = capacity;
+    }
+
     /**
        Returns whether or not the queue is empty
        @return true if there are no messages in the queue, false otherwise
      */
-    public boolean isEmpty() {return current == 0;}
-    
+    public boolean isEmpty() {return messages.isEmpty();}
+
+    /**
+       Returns the number of messages waiting.
+       @return number of messages in the queue
+     */
+    public int size() {return current.get();}
+
+    /**
+       Returns the number of messages add() has dropped because the queue was full.
+       @return number of dropped messages
+     */
+    public long getDropped() {return dropped.get();}
+
     /**
-       Adds a message to the back of the queue.
+       Adds a message to the back of the queue, unless the queue is full.  Never waits.
+       @param s The GameEvent to be added to the message queue.
+       @return true if the message was added, false if the queue was full
+     */
+    public boolean offer(GameEvent s) {
+        if (s == null) {throw new NullPointerException("null message");}
+        int n;
+        do { // reserve room for the message
+            n = current.get();
+            if (n >= capacity) {return false;}
+        } while (!current.compareAndSet(n, n + 1));
+        messages.offer(s);
+        Thread waiter = consumer;
+        if (waiter != null) {LockSupport.unpark(waiter);}
+        return true;
+    }
+
+    /**
+       Adds a message to the back of the queue; if the queue is full, the message is dropped (and counted).
+       @param s The GameEvent to be added to the message queue.
+     */
+    public void add(GameEvent s) {
+        if (!offer(s)) {dropped.incrementAndGet();}
+    }
+
+    /**
+       Adds a line of text to the back of the queue, as a TextEvent that is always shown.
        @param s The String to be added to the message queue.
      */
-    public synchronized void add(String s) {
-        messages.addLast(s);
-        current++;
+    public void add(String s) {
+        add(new TextEvent(s));
     }
-     
+
     /**
-       Gets the first String in the list, and removes it from the list.
-       @return String at the front of the queue (null if it is empty)
+       Adds a message to the back of the queue, waiting for room if the queue is full.
+       Must not be called from the consumer's own thread.
+       @param s The GameEvent to be added to the message queue.
+       @throws InterruptedException if interrupted while waiting
      */
-    public synchronized String getFirst() {
-        current--;
-        return messages.pollFirst();
+    public void put(GameEvent s) throws InterruptedException {
+        while (!offer(s)) {
+            synchronized (notFull) {
+                waitingProducers++;
+                try {
+                    if (current.get() >= capacity) {notFull.wait();}
+                } finally {
+                    waitingProducers--;
+                }
+            }
+        }
+    }
+
+    /**
+       Gets the first GameEvent in the list, and removes it from the list.  Never waits.
+       @return GameEvent at the front of the queue (null if it is empty)
+     */
+    public GameEvent poll() {
+        GameEvent s = messages.poll();
+        if (s != null) {removed(1);}
+        return s;
+    }
+
+    /**
+       Same as poll().
+       @return GameEvent at the front of the queue (null if it is empty)
+     */
+    public GameEvent getFirst() {return poll();}
+
+    /**
+       Gets the first GameEvent in the list, and removes it from the list, sleeping until there is one if necessary.
+       @return GameEvent at the front of the queue
+       @throws InterruptedException if interrupted while waiting
+     */
+    public GameEvent take() throws InterruptedException {
+        GameEvent s;
+        while ((s = poll()) == null) {
+            consumer = Thread.currentThread();
+            s = poll(); // check again, in case a message arrived before the producer could see us
+            if (s != null) {
+                consumer = null;
+                return s;
+            }
+            LockSupport.park(this);
+            consumer = null;
+            if (Thread.interrupted()) {throw new InterruptedException();}
+        }
+        return s;
     }
-     
-    public void run() {
-        while (true) {
-            // try {
-            //     if (isEmpty()) {
-            //        wait();
-            //     }
-            // } catch (Exception ex) {
-            // }
+
+    /**
+       Removes every message currently in the queue, in order, and adds them to a collection.  Never waits.
+       @param sink collection to add the messages to
+       @return number of messages moved
+     */
+    public int drainTo(Collection<? super GameEvent> sink) {
+        return drainTo(sink, Integer.MAX_VALUE);
+    }
+
+    /**
+       Removes up to a given number of messages from the queue, in order, and adds them to a collection.  Never waits.
+       @param sink collection to add the messages to
+       @param max greatest number of messages to move
+       @return number of messages moved
+     */
+    public int drainTo(Collection<? super GameEvent> sink, int max) {
+        int n = 0;
+        GameEvent s;
+        while (n < max && (s = messages.poll()) != null) {
+            sink.add(s);
+            n++;
+        }
+        if (n > 0) {removed(n);}
+        return n;
+    }
+
+    /**
+       Gives back the room taken by messages that have been removed, waking any producers waiting for it.
+       @param n number of messages removed
+     */
+    private void removed(int n) {
+        current.addAndGet(-n);
+        if (waitingProducers > 0) {
+            synchronized (notFull) {notFull.notifyAll();}
         }
     }
 }
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MessageQueue: order, capacity, and waking a sleeping consumer.
+ */
+public class MessageQueueTest
+{
+    @Test
+    public void testEmptyQueue() throws Exception
+    {
+        MessageQueue queue = new MessageQueue();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.getFirst());
+        assertEquals(0, queue.size()); // polling an empty queue must not drive the count negative
+    }
+
+    @Test
+    public void testDrainInOrder() throws Exception
+    {
+        MessageQueue queue = new MessageQueue();
+        queue.add("one");
+        queue.add("two");
+        queue.add("three");
+        ArrayList<GameEvent> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals("one", drained.get(0).toString());
+        assertEquals("three", drained.get(2).toString());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testFullQueueDrops() throws Exception
+    {
+        MessageQueue queue = new MessageQueue(2);
+        assertTrue(queue.offer(new TextEvent("one")));
+        assertTrue(queue.offer(new TextEvent("two")));
+        assertFalse(queue.offer(new TextEvent("three")));
+        queue.add("four");
+        assertEquals(1, queue.getDropped());
+        assertEquals("one", queue.poll().toString());
+        assertTrue(queue.offer(new TextEvent("five"))); // room again
+    }
+
+    @Test
+    public void testTakeWaitsForProducers() throws Exception
+    {
+        final MessageQueue queue = new MessageQueue(4);
+        final int count = 1000;
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        queue.put(new TextEvent("message " + i)); // capacity is small, so this has to wait on the consumer
+                    }
+                } catch (InterruptedException ex) {
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++) {
+            assertEquals("message " + i, queue.take().toString());
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
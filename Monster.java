@@ -1,12 +1,20 @@
 /**
    Represents all Creatures opposing the protagonist Hero.
+   A Monster keeps only what changes in the course of play (health, location, and bookkeeping); its name and
+   statistics are those of the PossibleMonster it was created from, which every Monster of its kind shares.
  */
 
 import java.io.Serializable;
  
 public class Monster extends Creature implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-    private char symbol;   // what this Monster is represented by on the screen
+    public static final int EVASION = 50; // variable evasion not yet implemented
+
+    private PossibleMonster template; // kind of Monster this is
+    private int handle = -1; // handle in the MonsterRegistry of its Level, or -1 if not registered
+    private int lastActiveTurn; // last turn on which this Monster was moved
+    private boolean aware; // true once this Monster has seen the Hero; until then, it stays where it is
 
     /**
        Default constructor.
@@ -24,18 +32,24 @@ public class Monster extends Creature implements Serializable {
     public static Monster createMonster(PossibleMonster pm) {
         // Generate a Monster from the indicated PossibleMonster
         Monster monster = new Monster();
-        monster.setName(pm.getName());
-        monster.setAccuracy(pm.getAccuracy());
-        monster.setDamage(pm.getDamage());
-        monster.setEvasion(50); // variable evasion not yet implemented implemented
-        monster.setArmorClass(pm.getArmorClass());
+        monster.template = pm;
         monster.setHealth(pm.getHealth());
-        monster.setMaxHealth(pm.getHealth());
-        monster.setSymbol(pm.getSymbol());
         return monster;
     }
 
     // getters and setters
-    public char getSymbol() {return symbol;}
-    private void setSymbol(char symbol) {this.symbol = symbol;} // this should not be changeable, so it's private
+    public PossibleMonster getTemplate() {return template;}
+    public String getName() {return template.getName();}
+    public int getMaxHealth() {return template.getHealth();}
+    public int getAccuracy() {return template.getAccuracy();}
+    public int getDamage() {return template.getDamage();}
+    public int getEvasion() {return EVASION;}
+    public int getArmorClass() {return template.getArmorClass();}
+    public char getSymbol() {return template.getSymbol();}
+    public int getHandle() {return handle;}
+    public void setHandle(int handle) {this.handle = handle;} // for MonsterRegistry use only
+    public int getLastActiveTurn() {return lastActiveTurn;}
+    public void setLastActiveTurn(int turn) {lastActiveTurn = turn;}
+    public boolean isAware() {return aware;}
+    public void setAware(boolean aware) {this.aware = aware;}
 }
@@ -0,0 +1,235 @@
+/**
+   MonsterRegistry
+   Every Monster on a Level, kept in a dense array for fast iteration, with a spatial index on top.
+
+   Each Monster gets a handle when it is added.  A handle stays valid (and keeps referring to the same Monster) until
+   that Monster is removed, however the dense array gets shuffled in the meantime; a stale handle is recognized as
+   such rather than silently referring to some other Monster.  Removal swaps the last Monster into the vacated place,
+   so it takes constant time.
+
+   The spatial index divides the Level into square buckets, each holding a doubly linked list of the Monsters inside
+   it, so that "which Monsters are near this location" only looks at the buckets overlapping the area in question.
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+public class MonsterRegistry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BUCKET_SHIFT = 3; // buckets are 8 x 8 locations
+    private static final int SLOT_BITS    = 24;
+    private static final int SLOT_MASK    = (1 << SLOT_BITS) - 1;
+    private static final int GENERATIONS  = 0x7f; // generations wrap around, keeping handles positive
+    private static final int NONE         = -1;
+
+    // dense storage, in no particular order
+    private Monster[] monsters = new Monster[16];
+    private int size = 0;
+
+    // handle slots: a handle is a slot number in the low bits plus the slot's generation in the high bits
+    private int[] slotToDense = new int[16];  // where each slot's Monster is in monsters[], or NONE if the slot is free
+    private int[] slotGeneration = new int[16];
+    private int[] denseToSlot = new int[16];
+    private int[] freeSlots = new int[16];    // stack of free slots
+    private int freeCount = 0;
+    private int slotCount = 0;                // slots handed out so far
+
+    // spatial index, as doubly linked lists of slots
+    private final int bucketColumns;
+    private final int[] bucketHead;
+    private int[] nextInBucket = new int[16];
+    private int[] prevInBucket = new int[16];
+    private int[] bucketOf = new int[16];
+
+    /**
+       Constructor.
+       @param rows Number of rows on the Level
+       @param columns Number of columns on the Level
+     */
+    public MonsterRegistry(int rows, int columns) {
+        int bucketRows = (rows >> BUCKET_SHIFT) + 1;
+        bucketColumns = (columns >> BUCKET_SHIFT) + 1;
+        bucketHead = new int[bucketRows * bucketColumns];
+        Arrays.fill(bucketHead, NONE);
+    }
+
+    /**
+       Returns the number of Monsters.
+       @return number of Monsters in the registry
+     */
+    public int size() {return size;}
+
+    /**
+       Returns a Monster by its position in the dense array.
+       Positions change when Monsters are removed; use handles to refer to a particular Monster over time.
+       @param i position, from 0 to size() - 1
+       @return the Monster at that position
+     */
+    public Monster get(int i) {return monsters[i];}
+
+    /**
+       Looks up a Monster by handle.
+       @param handle handle given out when the Monster was added
+       @return the Monster, or null if it has since been removed
+     */
+    public Monster lookup(int handle) {
+        int slot = handle & SLOT_MASK;
+        if (handle < 0 || slot >= slotCount || slotToDense[slot] == NONE
+            || slotGeneration[slot] != (handle >>> SLOT_BITS)) {
+            return null;
+        }
+        return monsters[slotToDense[slot]];
+    }
+
+    /**
+       Adds a Monster, which must already know its location on the Level.
+       @param monster Monster to be added
+       @return handle for the Monster (also recorded in the Monster itself)
+     */
+    public int add(Monster monster) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount++;
+            if (slot > SLOT_MASK) {throw new IllegalStateException("too many monsters");}
+            growSlots(slotCount);
+        }
+        if (size == monsters.length) {
+            monsters = Arrays.copyOf(monsters, size * 2);
+            denseToSlot = Arrays.copyOf(denseToSlot, size * 2);
+        }
+        monsters[size] = monster;
+        denseToSlot[size] = slot;
+        slotToDense[slot] = size;
+        size++;
+
+        link(slot, bucket(monster.getRow(), monster.getColumn()));
+        int handle = (slotGeneration[slot] << SLOT_BITS) | slot;
+        monster.setHandle(handle);
+        return handle;
+    }
+
+    /**
+       Removes a Monster, in constant time.
+       Does nothing if the Monster isn't in the registry.
+       @param monster Monster to be removed
+     */
+    public void remove(Monster monster) {
+        if (lookup(monster.getHandle()) != monster) {return;}
+        int slot = monster.getHandle() & SLOT_MASK;
+        unlink(slot);
+
+        // move the last Monster into the vacated place
+        int dense = slotToDense[slot];
+        int last = --size;
+        monsters[dense] = monsters[last];
+        denseToSlot[dense] = denseToSlot[last];
+        slotToDense[denseToSlot[dense]] = dense;
+        monsters[last] = null;
+
+        // retire the slot; bumping its generation invalidates any outstanding handles
+        slotToDense[slot] = NONE;
+        slotGeneration[slot] = (slotGeneration[slot] + 1) & GENERATIONS;
+        if (freeCount == freeSlots.length) {freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);}
+        freeSlots[freeCount++] = slot;
+        monster.setHandle(NONE);
+    }
+
+    /**
+       Updates the spatial index after a Monster has changed location.
+       @param monster Monster that has moved (and already knows its new location)
+     */
+    public void moved(Monster monster) {
+        if (lookup(monster.getHandle()) != monster) {return;}
+        int slot = monster.getHandle() & SLOT_MASK;
+        int bucket = bucket(monster.getRow(), monster.getColumn());
+        if (bucket != bucketOf[slot]) {
+            unlink(slot);
+            link(slot, bucket);
+        }
+    }
+
+    /**
+       Finds all Monsters within a given distance of a location.
+       Distance is counted in moves, with diagonal moves allowed (so the area searched is a square).
+       @param r row of the location
+       @param c column of the location
+       @param radius greatest distance to include
+       @param result list the Monsters found are added to; it is not cleared first
+       @return number of Monsters found
+     */
+    public int within(int r, int c, int radius, List<Monster> result) {
+        int found = 0;
+        int bucketRows = bucketHead.length / bucketColumns;
+        int firstRow = Math.max(0, (r - radius) >> BUCKET_SHIFT);
+        int lastRow = Math.min(bucketRows - 1, (r + radius) >> BUCKET_SHIFT);
+        int firstColumn = Math.max(0, (c - radius) >> BUCKET_SHIFT);
+        int lastColumn = Math.min(bucketColumns - 1, (c + radius) >> BUCKET_SHIFT);
+        for (int br = firstRow; br <= lastRow; br++) {
+            for (int bc = firstColumn; bc <= lastColumn; bc++) {
+                for (int slot = bucketHead[br * bucketColumns + bc]; slot != NONE; slot = nextInBucket[slot]) {
+                    Monster monster = monsters[slotToDense[slot]];
+                    if (Math.abs(monster.getRow() - r) <= radius && Math.abs(monster.getColumn() - c) <= radius) {
+                        result.add(monster);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+       Returns the bucket a location belongs to.
+       @param r row of the location
+       @param c column of the location
+       @return bucket index
+     */
+    private int bucket(int r, int c) {return (r >> BUCKET_SHIFT) * bucketColumns + (c >> BUCKET_SHIFT);}
+
+    /**
+       Adds a slot to the front of a bucket's list.
+       @param slot slot to add
+       @param bucket bucket to add it to
+     */
+    private void link(int slot, int bucket) {
+        int head = bucketHead[bucket];
+        nextInBucket[slot] = head;
+        prevInBucket[slot] = NONE;
+        if (head != NONE) {prevInBucket[head] = slot;}
+        bucketHead[bucket] = slot;
+        bucketOf[slot] = bucket;
+    }
+
+    /**
+       Removes a slot from its bucket's list.
+       @param slot slot to remove
+     */
+    private void unlink(int slot) {
+        int next = nextInBucket[slot];
+        int prev = prevInBucket[slot];
+        if (prev == NONE) {
+            bucketHead[bucketOf[slot]] = next;
+        } else {
+            nextInBucket[prev] = next;
+        }
+        if (next != NONE) {prevInBucket[next] = prev;}
+    }
+
+    /**
+       Makes sure the per-slot arrays can hold the given number of slots.
+       @param count number of slots needed
+     */
+    private void growSlots(int count) {
+        if (count <= slotToDense.length) {return;}
+        int length = Math.max(count, slotToDense.length * 2);
+        slotToDense = Arrays.copyOf(slotToDense, length);
+        slotGeneration = Arrays.copyOf(slotGeneration, length);
+        nextInBucket = Arrays.copyOf(nextInBucket, length);
+        prevInBucket = Arrays.copyOf(prevInBucket, length);
+        bucketOf = Arrays.copyOf(bucketOf, length);
+    }
+}
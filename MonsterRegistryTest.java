@@ -0,0 +1,90 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MonsterRegistry: handles, constant-time removal, and the spatial index.
+ */
+public class MonsterRegistryTest
+{
+    private PossibleMonster protoRat = new PossibleMonster("rat", 10, 10, 10, 10, 'r');
+
+    private Monster ratAt(int row, int column)
+    {
+        Monster rat = Monster.createMonster(protoRat);
+        rat.setRow(row);
+        rat.setColumn(column);
+        return rat;
+    }
+
+    @Test
+    public void testAddAndLookup() throws Exception
+    {
+        MonsterRegistry registry = new MonsterRegistry(50, 50);
+        Monster rat = ratAt(3, 4);
+        int handle = registry.add(rat);
+        assertEquals(1, registry.size());
+        assertSame(rat, registry.get(0));
+        assertSame(rat, registry.lookup(handle));
+        assertEquals(handle, rat.getHandle());
+    }
+
+    @Test
+    public void testRemoveInvalidatesHandle() throws Exception
+    {
+        MonsterRegistry registry = new MonsterRegistry(50, 50);
+        Monster first = ratAt(1, 1);
+        Monster second = ratAt(2, 2);
+        Monster third = ratAt(3, 3);
+        int firstHandle = registry.add(first);
+        int secondHandle = registry.add(second);
+        int thirdHandle = registry.add(third);
+
+        registry.remove(first);
+        assertEquals(2, registry.size());
+        assertNull(registry.lookup(firstHandle));
+        assertSame(second, registry.lookup(secondHandle)); // other handles survive the shuffle
+        assertSame(third, registry.lookup(thirdHandle));
+
+        Monster fourth = ratAt(4, 4); // reuses the freed slot under a new generation
+        int fourthHandle = registry.add(fourth);
+        assertNull(registry.lookup(firstHandle));
+        assertSame(fourth, registry.lookup(fourthHandle));
+    }
+
+    @Test
+    public void testWithinMatchesBruteForce() throws Exception
+    {
+        MonsterRegistry registry = new MonsterRegistry(100, 100);
+        GameRandom random = new GameRandom(151);
+        List<Monster> all = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Monster rat = ratAt(random.nextInt(100), random.nextInt(100));
+            registry.add(rat);
+            all.add(rat);
+        }
+        for (int i = 0; i < 100; i++) { // move some, remove some
+            Monster rat = all.get(random.nextInt(all.size()));
+            if (random.nextBoolean()) {
+                rat.setRow(random.nextInt(100));
+                rat.setColumn(random.nextInt(100));
+                registry.moved(rat);
+            } else {
+                registry.remove(rat);
+                all.remove(rat);
+            }
+        }
+
+        List<Monster> found = new ArrayList<>();
+        registry.within(50, 40, 12, found);
+        int expected = 0;
+        for (Monster rat : all) {
+            if (Math.abs(rat.getRow() - 50) <= 12 && Math.abs(rat.getColumn() - 40) <= 12) {
+                expected++;
+                assertTrue(found.contains(rat));
+            }
+        }
+        assertEquals(expected, found.size());
+    }
+}
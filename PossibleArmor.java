@@ -1,25 +1,50 @@
 /**
    PossibleArmor
    immutable data structure for holding potential armors, straightforward
+   Every Armor created from one is a lightweight instance sharing it as a template (a flyweight).
    @author Stephen S. Lee
  */
 
-public class PossibleArmor {
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PossibleArmor implements Spawnable, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final int id = nextId.getAndIncrement(); // tells this template apart from every other PossibleArmor
     private final String name;
     private final int armorClass;
     private final char symbol;
+    private final int weight;   // relative chance of being picked
+    private final int minDepth; // shallowest depth it turns up at
+    private final int maxDepth; // deepest depth it turns up at
 
     /**
-       Constructor
+       Constructor, for an entry that turns up at every depth with the default weight
      */
     public PossibleArmor(String name, int armorClass, char symbol) {
+        this(name, armorClass, symbol, DEFAULT_WEIGHT, 1, NO_MAX_DEPTH);
+    }
+
+    /**
+       Constructor
+     */
+    public PossibleArmor(String name, int armorClass, char symbol, int weight, int minDepth, int maxDepth) {
         this.name = name;
         this.armorClass = armorClass;
         this.symbol = symbol;
+        this.weight = weight;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
     }
 
     // getters
+    public int getId() {return id;}
     public String getName() {return name;}
     public int getArmorClass() {return armorClass;}
     public char getSymbol() {return symbol;}
+    public int getWeight() {return weight;}
+    public int getMinDepth() {return minDepth;}
+    public int getMaxDepth() {return maxDepth;}
 }
@@ -1,34 +1,60 @@
 /**
    PossibleMonster
    immutable data structure for holding potential monsters, straightforward
+   Every Monster created from one is a lightweight instance sharing it as a template (a flyweight).
    @author Stephen S. Lee
  */
 
-public class PossibleMonster {
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PossibleMonster implements Spawnable, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final int id = nextId.getAndIncrement(); // tells this template apart from every other PossibleMonster
     private final String name;
     private final int accuracy;
     private final int damage;
     private final int armorClass;
     private final int health;
     private final char symbol;
+    private final int weight;   // relative chance of being picked
+    private final int minDepth; // shallowest depth it turns up at
+    private final int maxDepth; // deepest depth it turns up at
 
     /**
-       Constructor
+       Constructor, for an entry that turns up at every depth with the default weight
      */
     public PossibleMonster(String name, int accuracy, int damage, int armorClass, int health, char symbol) {
+        this(name, accuracy, damage, armorClass, health, symbol, DEFAULT_WEIGHT, 1, NO_MAX_DEPTH);
+    }
+
+    /**
+       Constructor
+     */
+    public PossibleMonster(String name, int accuracy, int damage, int armorClass, int health, char symbol,
+                           int weight, int minDepth, int maxDepth) {
         this.name = name;
         this.accuracy = accuracy;
         this.damage = damage;
         this.armorClass = armorClass;
         this.health = health;
         this.symbol = symbol;
+        this.weight = weight;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
     }
 
     // getters
+    public int getId() {return id;}
     public String getName() {return name;}
     public int getAccuracy() {return accuracy;}
     public int getDamage() {return damage;}
     public int getArmorClass() {return armorClass;}
     public int getHealth() {return health;}
     public char getSymbol() {return symbol;}
+    public int getWeight() {return weight;}
+    public int getMinDepth() {return minDepth;}
+    public int getMaxDepth() {return maxDepth;}
 }
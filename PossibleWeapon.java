@@ -1,28 +1,53 @@
 /**
    PossibleWeapon
    immutable data structure for holding potential weapons, straightforward
+   Every Weapon created from one is a lightweight instance sharing it as a template (a flyweight).
    @author Stephen S. Lee
  */
 
-public class PossibleWeapon {
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PossibleWeapon implements Spawnable, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final int id = nextId.getAndIncrement(); // tells this template apart from every other PossibleWeapon
     private final String name;
     private final int accuracy;
     private final int damage;
     private final char symbol;
+    private final int weight;   // relative chance of being picked
+    private final int minDepth; // shallowest depth it turns up at
+    private final int maxDepth; // deepest depth it turns up at
 
     /**
-       Constructor
+       Constructor, for an entry that turns up at every depth with the default weight
      */
     public PossibleWeapon(String name, int accuracy, int damage, char symbol) {
+        this(name, accuracy, damage, symbol, DEFAULT_WEIGHT, 1, NO_MAX_DEPTH);
+    }
+
+    /**
+       Constructor
+     */
+    public PossibleWeapon(String name, int accuracy, int damage, char symbol, int weight, int minDepth, int maxDepth) {
         this.name = name;
         this.accuracy = accuracy;
         this.damage = damage;
         this.symbol = symbol;
+        this.weight = weight;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
     }
 
     // getters
+    public int getId() {return id;}
     public String getName() {return name;}
     public int getAccuracy() {return accuracy;}
     public int getDamage() {return damage;}
     public char getSymbol() {return symbol;}
+    public int getWeight() {return weight;}
+    public int getMinDepth() {return minDepth;}
+    public int getMaxDepth() {return maxDepth;}
 }
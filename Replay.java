@@ -0,0 +1,74 @@
+/**
+   Replay
+   Plays a saved game again from its seed and input log, without a user interface, and checks that it ends up in
+   exactly the state that was saved.  This is how a bug report that comes with a save file is reproduced.
+   Optionally, it also writes a replay save (just the seed and input log) of the game, which is much smaller.
+
+   Usage: java Replay [save file] [replay save to write]
+   Run from the directory holding the monster and item lists.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class Replay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java Replay [save file] [replay save to write]");
+            System.exit(1);
+        }
+        HeadlessSimulation.readLists();
+
+        long start = System.nanoTime();
+        GamePlay saved;
+        SaveReader reader = new SaveReader(new FileInputStream(args[0]));
+        try {
+            saved = GamePlay.load(reader);
+        } finally {
+            reader.close();
+        }
+        GamePlay replayed = GamePlay.replay(saved.getHeroName(), saved.getSeed(), saved.getInputLog());
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        System.out.println("Seed " + saved.getSeed() + ", " + saved.getInputLog().size() + " commands ("
+                         + saved.getInputLog().getByteCount() + " bytes), loaded and replayed in "
+                         + String.format("%.1f", millis) + " ms");
+        System.out.println("Depth " + replayed.getDepth() + ", hit points " + replayed.getHeroHealth() + "/"
+                         + replayed.getHeroMaxHealth() + ", gold " + replayed.getHeroGold()
+                         + (replayed.isHeroDead() ? ", killed by " + replayed.getKiller() : ""));
+        System.out.print(replayed.getView());
+        if (Arrays.equals(snapshot(saved), snapshot(replayed))) {
+            System.out.println("Replay matches the saved game exactly.");
+        } else {
+            System.out.println("REPLAY DIFFERS from the saved game.");
+        }
+
+        if (args.length > 1) {
+            SaveWriter writer = new SaveWriter(new FileOutputStream(args[1]),
+                                               SaveWriter.FLAG_REPLAY | SaveWriter.FLAG_COMPRESSED);
+            try {
+                saved.saveReplay(writer);
+            } finally {
+                writer.close();
+            }
+            System.out.println("Replay save written to " + args[1]);
+        }
+    }
+
+    /**
+       Saves a game into memory, so that two games can be compared byte for byte.
+       @param game The game to be saved
+       @return the saved bytes
+     */
+    private static byte[] snapshot(GamePlay game) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, false);
+        game.save(writer);
+        writer.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+   RoomChunkSource
+   Lays out the chunks of a very large Level much as an ordinary Level is laid out: each chunk gets a few rooms of its
+   own, joined by corridors.  To join the chunks to each other, every chunk also has a corridor straight across its
+   middle in each direction, which lines up with those of the chunks beside it.
+   Each chunk is laid out with its own random stream, seeded from the Level's seed and where the chunk is, so a chunk
+   always comes out the same however many times it is generated, and in whatever order the chunks are.
+ */
+
+import static utils.GameFunctions.*;
+
+public class RoomChunkSource implements ChunkSource {
+    private static final long serialVersionUID = 1L;
+
+    private final long seed;
+    private final int rows;    // size of the whole Level
+    private final int columns;
+
+    /**
+       Constructor.
+       @param seed seed the chunks' random streams are derived from
+       @param rows Number of rows of the Level
+       @param columns Number of columns of the Level
+     */
+    public RoomChunkSource(long seed, int rows, int columns) {
+        this.seed = seed;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    // getter for the seed, which (with the size of the Level) is all it takes to make this source again
+    public long getSeed() {return seed;}
+
+    public void generate(int chunkRow, int chunkColumn, byte[] cells) {
+        // only part of a chunk on the bottom or right edge of the Level is on the Level
+        int height = Math.min(LevelGrid.CHUNK_SIZE, rows - (chunkRow << LevelGrid.CHUNK_SHIFT));
+        int width = Math.min(LevelGrid.CHUNK_SIZE, columns - (chunkColumn << LevelGrid.CHUNK_SHIFT));
+        GameRandom random = new GameRandom(GameRandom.mix(seed + ((long) chunkRow << 32) + chunkColumn));
+
+        // corridors across the middle; every chunk in a row (or column) of chunks has the same height (or width)
+        int middleRow = height / 2;
+        int middleColumn = width / 2;
+        carve(cells, middleRow, 0, middleRow, width - 1);
+        carve(cells, 0, middleColumn, height - 1, middleColumn);
+
+        // rooms, each joined to the middle; a chunk too small for a room has none
+        if (height < ROOM_MAX_HEIGHT + 2 || width < ROOM_MAX_WIDTH + 2) {return;}
+        int rooms = random.randRange(ROOMS_MIN, ROOMS_MAX);
+        for (int i = 0; i < rooms; i++) {
+            int roomHeight = random.randRange(ROOM_MIN_HEIGHT, ROOM_MAX_HEIGHT);
+            int roomWidth = random.randRange(ROOM_MIN_WIDTH, ROOM_MAX_WIDTH);
+            int top = random.randRange(1, height - roomHeight - 1);
+            int left = random.randRange(1, width - roomWidth - 1);
+            carve(cells, top, left, top + roomHeight - 1, left + roomWidth - 1);
+
+            int r = random.randRange(top, top + roomHeight - 1);
+            int c = random.randRange(left, left + roomWidth - 1);
+            if (random.nextBoolean()) { // flip a coin to choose which way the corridor bends
+                carve(cells, r, c, r, middleColumn);
+            } else {
+                carve(cells, middleRow, c, r, c);
+            }
+        }
+    }
+
+    /**
+       Clears every wall in a rectangle of a chunk.
+       @param cells cells of the chunk
+       @param r1 one row of the rectangle
+       @param c1 one column of the rectangle
+       @param r2 the opposite row
+       @param c2 the opposite column
+     */
+    private static void carve(byte[] cells, int r1, int c1, int r2, int c2) {
+        for (int r = Math.min(r1, r2); r <= Math.max(r1, r2); r++) {
+            for (int c = Math.min(c1, c2); c <= Math.max(c1, c2); c++) {
+                cells[(r << LevelGrid.CHUNK_SHIFT) + c] = LevelGrid.FEATURE_NONE;
+            }
+        }
+    }
+}
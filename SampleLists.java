@@ -0,0 +1,40 @@
+/**
+   SampleLists
+   A small monster list and item list, for tests that need the dungeon stocked with something.
+   use() puts them in place of whatever lists were read in before, and restore() puts those back, so a test does not
+   leave its lists behind for whatever runs after it.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SampleLists {
+
+    public static final List<String> MONSTERS = Collections.unmodifiableList(Arrays.asList(
+        "giant rat,20,4,0,20,r", "kobold,40,8,1,60,k"));
+    public static final List<String> ITEMS = Collections.unmodifiableList(Arrays.asList(
+        "weapon,club,-5,15,)", "weapon,dagger,8,25,)", "armor,robe,1,["));
+
+    /**
+       Not to be instantiated.
+     */
+    private SampleLists() {}
+
+    /**
+       Puts the sample lists to use.
+       @return the Catalog that was in use before, to hand to restore()
+     */
+    public static Catalog use() {
+        Catalog previous = Generator.getCatalog();
+        Generator.readMonsters(MONSTERS);
+        Generator.readItems(ITEMS);
+        return previous;
+    }
+
+    /**
+       Puts back the lists that were in use before use().
+       @param previous what use() returned
+     */
+    public static void restore(Catalog previous) {Generator.useCatalog(previous);}
+}
@@ -0,0 +1,251 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the save format (SaveWriter, SaveReader, LevelCodec): a loaded game must be the same game.
+ */
+public class SaveFileTest
+{
+    private Catalog previous; // lists in use before the test
+
+    @Before
+    public void setUp()
+    {
+        previous = SampleLists.use();
+    }
+
+    @After
+    public void tearDown()
+    {
+        SampleLists.restore(previous);
+    }
+
+    private static byte[] save(GamePlay game, boolean compress) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, compress);
+        game.save(writer);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static GamePlay load(byte[] save) throws IOException
+    {
+        SaveReader reader = new SaveReader(new ByteArrayInputStream(save));
+        GamePlay game = GamePlay.load(reader);
+        reader.close();
+        return game;
+    }
+
+    @Test
+    public void testLoadedGamePlaysOnIdentically() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", new GameRandom(42));
+        HeadlessSimulation.Policy policy = new HeadlessSimulation.RandomWalk();
+        GameRandom moves = new GameRandom(7);
+        for (int i = 0; i < 50 && !game.isHeroDead(); i++) {
+            policy.act(game, moves);
+        }
+
+        for (boolean compress : new boolean[] {false, true}) {
+            GamePlay loaded = load(save(game, compress));
+            assertEquals(game.getView(), loaded.getView());
+            assertEquals(game.getHeroHealth(), loaded.getHeroHealth());
+            assertEquals(game.getHeroAccuracy(), loaded.getHeroAccuracy());
+            assertEquals(game.getHeroInventory(), loaded.getHeroInventory());
+            assertEquals(game.getDepth(), loaded.getDepth());
+            assertEquals(game.getLevel().getMonsters().size(), loaded.getLevel().getMonsters().size());
+            ExploredMap explored = game.getLevel().getExploredMap();
+            assertTrue(explored.getSeenCount() > 0);
+            assertEquals(explored.getSeenCount(), loaded.getLevel().getExploredMap().getSeenCount());
+            for (int i = 0; i < explored.getSize(); i++) {
+                assertEquals(explored.getCode(i), loaded.getLevel().getExploredMap().getCode(i));
+            }
+        }
+
+        // the random stream and the order of the monsters are saved too, so both copies go on the same way
+        GamePlay loaded = load(save(game, true));
+        GameRandom moves1 = new GameRandom(99);
+        GameRandom moves2 = new GameRandom(99);
+        for (int i = 0; i < 50 && !game.isHeroDead(); i++) {
+            policy.act(game, moves1);
+            policy.act(loaded, moves2);
+            assertEquals(game.getView(), loaded.getView());
+        }
+        assertEquals(game.getHeroHealth(), loaded.getHeroHealth());
+    }
+
+    @Test
+    public void testReplayIsBitExact() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", 42L);
+        HeadlessSimulation.Policy policy = new HeadlessSimulation.RandomWalk();
+        GameRandom moves = new GameRandom(7);
+        game.setActivityRadius(8);
+        for (int i = 0; i < 300 && !game.isHeroDead() && !game.hasHeroEscaped(); i++) {
+            policy.act(game, moves);
+        }
+
+        GamePlay replayed = GamePlay.replay("PowerMan", game.getSeed(), game.getInputLog());
+        assertArrayEquals(save(game, false), save(replayed, false));
+
+        // a replay save holds only the seed and commands, and loads into the same game
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, SaveWriter.FLAG_REPLAY);
+        game.saveReplay(writer);
+        writer.close();
+        assertTrue(bytes.size() < save(game, false).length);
+        assertArrayEquals(save(game, false), save(load(bytes.toByteArray()), false));
+    }
+
+    @Test
+    public void testLevelsLeftBehindAreSaved() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", new GameRandom(3));
+        game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+        String first = game.getLevel().viewMap(game.getHeroRow(), game.getHeroColumn());
+        game.descendStairs();
+
+        GamePlay loaded = load(save(game, true));
+        assertEquals(2, loaded.getDepth());
+        assertEquals(1, loaded.getLevelStore().size());
+        loaded.ascendStairs();
+        assertEquals(1, loaded.getDepth());
+        assertEquals(first, loaded.getView());
+    }
+
+    @Test
+    public void testDamagedSaveRejected() throws Exception
+    {
+        byte[] save = save(new GamePlay("PowerMan", new GameRandom(42)), false);
+        save[save.length / 2] ^= 0x10;
+        try {
+            load(save);
+            fail("damaged save was loaded");
+        } catch (IOException ex) {
+            // expected
+        } catch (RuntimeException ex) {
+            fail("damaged save was not recognized as such: " + ex);
+        }
+    }
+
+    @Test
+    public void testGoingUpToLostLevel() throws Exception
+    {
+        GamePlay game = new GamePlay("PowerMan", new GameRandom(3));
+        for (int depth = 2; depth <= 3; depth++) {
+            game.getLevel().getTile(game.getHeroRow(), game.getHeroColumn()).setDownStairs();
+            game.descendStairs();
+            assertEquals(depth, game.getDepth());
+        }
+        game.getLevelStore().clear(); // as if the levels above could not be read back
+
+        game.ascendStairs(); // so a new one is made
+        assertEquals(2, game.getDepth());
+        Level level = game.getLevel();
+        assertTrue(level.getTile(game.getHeroRow(), game.getHeroColumn()).hasUpStairs());
+        int down = 0;
+        for (int r = 0; r < level.getRowSize(); r++) {
+            for (int c = 0; c < level.getColumnSize(); c++) {
+                if (level.getTile(r, c).hasDownStairs()) {down++;}
+            }
+        }
+        assertEquals(1, down);
+
+        game.ascendStairs(); // and on up from there
+        assertEquals(1, game.getDepth());
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadTerrainRejected() throws Exception
+    {
+        // a run of feature 0xFF covering a whole 3 x 3 level; rejected while parsing, before any checksum
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, false);
+        writer.writeVarInt(3);
+        writer.writeVarInt(3);
+        writer.writeBoolean(false); // not chunked
+        writer.writeByte(0xFF);
+        writer.writeVarInt(9);
+        writer.writeVarInt(0); // no gold, Items, or Monsters
+        writer.writeVarInt(0);
+        writer.writeVarInt(0);
+        writer.writeByte(ExploredMap.UNSEEN); // nothing remembered
+        writer.writeVarInt(9);
+        writer.finish();
+        writer.close();
+        LevelCodec.read(new SaveReader(new ByteArrayInputStream(bytes.toByteArray())), new GameRandom(1));
+    }
+
+    @Test
+    public void testTemplatesFoundInLists() throws Exception
+    {
+        Catalog catalog = Generator.getCatalog();
+        for (PossibleMonster pm : catalog.getMonsters()) {
+            assertSame(pm, Generator.findMonster(pm.getName(), pm.getAccuracy(), pm.getDamage(), pm.getArmorClass(),
+                                                 pm.getHealth(), pm.getSymbol()));
+        }
+        for (PossibleWeapon pw : catalog.getWeapons()) {
+            assertSame(pw, Generator.findWeapon(pw.getName(), pw.getAccuracy(), pw.getDamage(), pw.getSymbol()));
+        }
+        for (PossibleArmor pa : catalog.getArmors()) {
+            assertSame(pa, Generator.findArmor(pa.getName(), pa.getArmorClass(), pa.getSymbol()));
+        }
+
+        // one that isn't in the lists (here, by a single statistic) gets a template of its own
+        PossibleWeapon club = catalog.getWeapons().get(0);
+        PossibleWeapon other = Generator.findWeapon(club.getName(), club.getAccuracy(), club.getDamage() + 1,
+                                                    club.getSymbol());
+        assertNotSame(club, other);
+        assertEquals(club.getDamage() + 1, other.getDamage());
+    }
+
+    @Test
+    public void testHugeLevelRejected() throws Exception
+    {
+        // rows * columns would overflow an int; rejected before anything is allocated for it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, false);
+        writer.writeVarInt(1 << 20);
+        writer.writeVarInt(1 << 20);
+        writer.writeBoolean(true); // even as a chunked level
+        writer.finish();
+        writer.close();
+        try {
+            LevelCodec.read(new SaveReader(new ByteArrayInputStream(bytes.toByteArray())), new GameRandom(1));
+            fail("huge level was read");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMonsterInWallRejected() throws Exception
+    {
+        LevelGrid grid = new LevelGrid(3, 3); // all walls
+        Level level = new Level(grid, new GameRandom(1));
+        Monster monster = Monster.createMonster(Generator.getCatalog().getMonsters().get(0));
+        monster.setRow(1);
+        monster.setColumn(1);
+        grid.setCreature(grid.index(1, 1), monster);
+        level.getMonsters().add(monster);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, false);
+        LevelCodec.write(level, writer);
+        writer.finish();
+        writer.close();
+        LevelCodec.read(new SaveReader(new ByteArrayInputStream(bytes.toByteArray())), new GameRandom(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASave() throws Exception
+    {
+        load("this is not a saved game".getBytes("UTF-8"));
+    }
+}
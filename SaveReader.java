@@ -0,0 +1,212 @@
+/**
+   SaveReader
+   Reads a saved game written by SaveWriter, one field at a time, in the same order it was written.
+   The header is checked when the reader is created; the checksum is checked by finish(), once everything has been
+   read.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+
+public class SaveReader implements Closeable {
+
+    private final int flags;   // header flags, as in SaveWriter
+    private final BodyStream body;
+    private final DataInputStream in;
+    private final ArrayList<String> names = new ArrayList<>(); // names read so far, by number
+    private final ArrayList<Object> references = new ArrayList<>(); // shared objects read so far, by number
+
+    /**
+       Constructor.  Reads and checks the header straight away.
+       @param stream Stream to read the save from
+       @throws IOException if the stream is not a save this game can read
+     */
+    public SaveReader(InputStream stream) throws IOException {
+        InputStream raw = new BufferedInputStream(stream);
+        DataInputStream header = new DataInputStream(raw);
+        if (header.readInt() != SaveWriter.MAGIC) {throw new IOException("not a saved game");}
+        int version = header.readUnsignedShort();
+        if (version != SaveWriter.VERSION) {
+            throw new IOException("saved game has format version " + version + ", which this game does not understand");
+        }
+        flags = header.readUnsignedByte();
+        if ((flags & ~SaveWriter.KNOWN_FLAGS) != 0) {throw new IOException("saved game has unknown flags " + flags);}
+        body = new BodyStream((flags & SaveWriter.FLAG_COMPRESSED) != 0 ? new InflaterInputStream(raw) : raw);
+        in = new DataInputStream(body);
+    }
+
+    // checks whether this is a replay save (a seed and input log) rather than a snapshot of the game
+    public boolean isReplay() {return (flags & SaveWriter.FLAG_REPLAY) != 0;}
+
+    // fixed-size values
+    public boolean readBoolean() throws IOException {return in.readBoolean();}
+    public int readByte() throws IOException {return in.readUnsignedByte();}
+    public char readChar() throws IOException {return in.readChar();}
+    public int readInt() throws IOException {return in.readInt();}
+    public long readLong() throws IOException {return in.readLong();}
+    public void readBytes(byte[] b, int offset, int length) throws IOException {in.readFully(b, offset, length);}
+
+    /**
+       Reads a non-negative int written by SaveWriter.writeVarInt.
+       @return the value
+       @throws IOException if the value cannot be read, or is malformed
+     */
+    public int readVarInt() throws IOException {
+        int v = readUnsigned();
+        if (v < 0) {throw new IOException("malformed saved game: negative count");}
+        return v;
+    }
+
+    /**
+       Reads an int written by SaveWriter.writeSignedVarInt.
+       @return the value
+       @throws IOException if the value cannot be read, or is malformed
+     */
+    public int readSignedVarInt() throws IOException {
+        int v = readUnsigned();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+       Reads the 32 bits of an int written as an unsigned variable-length value.
+       @return the bits read
+       @throws IOException if the value cannot be read, or is malformed
+     */
+    private int readUnsigned() throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {return v;}
+        }
+        throw new IOException("malformed saved game: number too long");
+    }
+
+    /**
+       Reads a String written by SaveWriter.writeString.
+       @return the String, which may be null
+       @throws IOException if the String cannot be read
+     */
+    public String readString() throws IOException {
+        return (in.readBoolean() ? in.readUTF() : null);
+    }
+
+    /**
+       Reads a name written by SaveWriter.writeName.
+       @return the name
+       @throws IOException if the name cannot be read, or refers back to a name that was never read
+     */
+    public String readName() throws IOException {
+        int number = readVarInt();
+        if (number == 0) { // a name not seen before
+            String name = in.readUTF().intern();
+            names.add(name);
+            return name;
+        }
+        if (number > names.size()) {throw new IOException("malformed saved game: unknown name " + number);}
+        return names.get(number - 1);
+    }
+
+    /**
+       Reads a reference written by SaveWriter.writeReference.
+       @return the object referred back to, or null if the object itself follows; the caller must then read it, and
+               pass it to addReference
+       @throws IOException if the reference cannot be read, or refers back to an object that was never read
+     */
+    public Object readReference() throws IOException {
+        int number = readVarInt();
+        if (number == 0) {return null;}
+        if (number > references.size()) {throw new IOException("malformed saved game: unknown reference " + number);}
+        return references.get(number - 1);
+    }
+
+    /**
+       Remembers an object just read after readReference returned null, so later references can refer back to it.
+       @param o the object
+     */
+    public void addReference(Object o) {references.add(o);}
+
+    /**
+       Ends the body, checking that the checksum matches what was read.
+       @throws IOException if the save is damaged
+     */
+    public void finish() throws IOException {
+        int expected = body.getChecksum();
+        int stored = in.readInt(); // not part of its own checksum
+        if (stored != expected) {throw new IOException("saved game is damaged (checksum mismatch)");}
+    }
+
+    /**
+       Closes the underlying stream.
+       @throws IOException if the stream cannot be closed
+     */
+    public void close() throws IOException {in.close();}
+
+    /**
+       The body of a save, read ahead a block at a time.  The checksum covers only the bytes actually read out of it,
+       and is brought up to date a block at a time too, rather than byte by byte.
+     */
+    private static class BodyStream extends InputStream {
+        private final InputStream source;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[8192];
+        private int position; // next byte of the buffer to be read out
+        private int limit;    // end of the bytes in the buffer
+        private int checked;  // bytes of the buffer before this are in the checksum already
+
+        BodyStream(InputStream source) {this.source = source;}
+
+        public int read() throws IOException {
+            if (position == limit && !fill()) {return -1;}
+            return buffer[position++] & 0xff;
+        }
+
+        public int read(byte[] b, int offset, int length) throws IOException {
+            if (length == 0) {return 0;}
+            if (position == limit && !fill()) {return -1;}
+            int n = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, b, offset, n);
+            position += n;
+            return n;
+        }
+
+        public void close() throws IOException {source.close();}
+
+        /**
+           Returns the checksum of every byte read out so far.
+           @return the CRC-32
+         */
+        int getChecksum() {
+            update();
+            return (int) crc.getValue();
+        }
+
+        /**
+           Refills the buffer.
+           @return false if there is nothing more to read
+           @throws IOException if the source cannot be read
+         */
+        private boolean fill() throws IOException {
+            update();
+            int n = source.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(n, 0);
+            checked = 0;
+            return n > 0;
+        }
+
+        /**
+           Adds the bytes read out since the last time to the checksum.
+         */
+        private void update() {
+            crc.update(buffer, checked, position - checked);
+            checked = position;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+   SaveWriter
+   Writes a saved game, one field at a time, in the game's own binary format.
+
+   A save begins with a short header, written as is: a magic number identifying the file, the format version, and
+   flags.  Everything after that (the body) may be compressed, and ends with a CRC-32 of the uncompressed body so a
+   damaged or truncated file is recognized rather than loaded.
+   Names that repeat (many Monsters share one) are written in full only the first time; after that, a small number
+   referring back to the first time is written instead.  Shared objects (the templates Monsters and Items are created
+   from) are handled the same way by writeReference.
+   See SaveReader for reading saves back.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+public class SaveWriter implements Closeable {
+
+    public static final int MAGIC   = 0x43533135; // "CS15"
+    public static final int VERSION = 1;          // format version
+
+    // header flags
+    public static final int FLAG_COMPRESSED = 0x01; // body is deflated
+    public static final int FLAG_REPLAY     = 0x02; // body is a seed and input log to replay, rather than a snapshot
+    public static final int KNOWN_FLAGS     = FLAG_COMPRESSED | FLAG_REPLAY;
+
+    private final OutputStream body;          // where the body goes, compressed or not
+    private final DeflaterOutputStream deflater; // null if not compressing
+    private final CheckedOutputStream checked;
+    private final DataOutputStream out;
+    private final HashMap<String, Integer> names = new HashMap<>(); // names written so far, with their numbers
+    private final IdentityHashMap<Object, Integer> references = new IdentityHashMap<>(); // objects, with their numbers
+
+    /**
+       Constructor.  Writes the header straight away.
+       @param stream Stream to write the save to
+       @param compress true to compress the body
+       @throws IOException if the header cannot be written
+     */
+    public SaveWriter(OutputStream stream, boolean compress) throws IOException {
+        this(stream, (compress ? FLAG_COMPRESSED : 0));
+    }
+
+    /**
+       Constructor.  Writes the header straight away.
+       @param stream Stream to write the save to
+       @param flags any of the FLAG constants, combined with |
+       @throws IOException if the header cannot be written
+     */
+    public SaveWriter(OutputStream stream, int flags) throws IOException {
+        if ((flags & ~KNOWN_FLAGS) != 0) {throw new IllegalArgumentException("unknown flags " + flags);}
+        boolean compress = ((flags & FLAG_COMPRESSED) != 0);
+        OutputStream raw = new BufferedOutputStream(stream);
+        DataOutputStream header = new DataOutputStream(raw);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeByte(flags);
+        deflater = (compress ? new DeflaterOutputStream(raw) : null);
+        body = (compress ? deflater : raw);
+        checked = new CheckedOutputStream(body, new CRC32());
+        out = new DataOutputStream(new BufferedOutputStream(checked)); // so the checksum is updated in blocks
+    }
+
+    // fixed-size values
+    public void writeBoolean(boolean v) throws IOException {out.writeBoolean(v);}
+    public void writeByte(int v) throws IOException {out.writeByte(v);}
+    public void writeChar(char v) throws IOException {out.writeChar(v);}
+    public void writeInt(int v) throws IOException {out.writeInt(v);}
+    public void writeLong(long v) throws IOException {out.writeLong(v);}
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {out.write(b, offset, length);}
+
+    /**
+       Writes a non-negative int in as few bytes as it needs: 7 bits per byte, low bits first, with the top bit of
+       each byte set if more bytes follow.
+       @param v value to write; must not be negative
+       @throws IOException if the value cannot be written
+     */
+    public void writeVarInt(int v) throws IOException {
+        if (v < 0) {throw new IllegalArgumentException("negative value " + v);}
+        writeUnsigned(v);
+    }
+
+    /**
+       Writes an int that may be negative, as a variable-length value (small values, of either sign, are short).
+       @param v value to write
+       @throws IOException if the value cannot be written
+     */
+    public void writeSignedVarInt(int v) throws IOException {
+        writeUnsigned((v << 1) ^ (v >> 31)); // 0, -1, 1, -2, 2... become 0, 1, 2, 3, 4...
+    }
+
+    /**
+       Writes the 32 bits of an int as an unsigned variable-length value.
+       @param v bits to write
+       @throws IOException if the value cannot be written
+     */
+    private void writeUnsigned(int v) throws IOException {
+        while ((v & ~0x7f) != 0) {
+            out.writeByte((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+       Writes a String, which may be null.
+       @param s String to write
+       @throws IOException if the String cannot be written
+     */
+    public void writeString(String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {out.writeUTF(s);}
+    }
+
+    /**
+       Writes a name.  Each distinct name is written in full only once; repeats are written as a back-reference.
+       @param s name to write; must not be null
+       @throws IOException if the name cannot be written
+     */
+    public void writeName(String s) throws IOException {
+        Integer number = names.get(s);
+        if (number != null) {
+            writeVarInt(number + 1);
+        } else {
+            writeVarInt(0); // a name not seen before follows
+            out.writeUTF(s);
+            names.put(s, names.size());
+        }
+    }
+
+    /**
+       Writes a reference to a shared object.  The first time an object is written, this writes only a marker and
+       returns true: the caller must then write the object itself.  After that, a back-reference is written instead.
+       @param o object to refer to; must not be null
+       @return true if the object was not written before, and must be written now
+       @throws IOException if the reference cannot be written
+     */
+    public boolean writeReference(Object o) throws IOException {
+        Integer number = references.get(o);
+        if (number != null) {
+            writeVarInt(number + 1);
+            return false;
+        }
+        writeVarInt(0); // an object not seen before follows
+        references.put(o, references.size());
+        return true;
+    }
+
+    /**
+       Ends the body: writes the checksum and finishes compression.  Nothing more may be written afterwards.
+       @throws IOException if the end of the save cannot be written
+     */
+    public void finish() throws IOException {
+        out.flush();
+        new DataOutputStream(body).writeInt((int) checked.getChecksum().getValue()); // not part of its own checksum
+        if (deflater != null) {deflater.finish();}
+        body.flush();
+    }
+
+    /**
+       Closes the underlying stream.
+       @throws IOException if the stream cannot be closed
+     */
+    public void close() throws IOException {out.close();}
+}
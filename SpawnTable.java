@@ -0,0 +1,56 @@
+/**
+   SpawnTable
+   The entries of a catalog (monsters, weapons, armors) that can turn up at one depth, ready to be picked at random,
+   each with a chance in proportion to its weight.  Picking takes constant time, however long the catalog.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpawnTable<T extends Spawnable> {
+
+    private final List<T> entries;
+    private final AliasTable table;
+
+    /**
+       Constructor.
+       Entries that cannot turn up at the depth, or have no weight, are left out.  If that leaves nothing, every entry
+         with a weight is kept instead, so that there is always something to pick.
+       @param catalog every entry of the catalog
+       @param depth depth the table is for
+     */
+    public SpawnTable(List<T> catalog, int depth) {
+        List<T> chosen = new ArrayList<>();
+        for (T entry : catalog) {
+            if (entry.getWeight() > 0 && entry.getMinDepth() <= depth && depth <= entry.getMaxDepth()) {
+                chosen.add(entry);
+            }
+        }
+        if (chosen.isEmpty()) { // nothing is meant for this depth; better something than nothing
+            for (T entry : catalog) {
+                if (entry.getWeight() > 0) {chosen.add(entry);}
+            }
+        }
+        if (chosen.isEmpty()) {throw new IllegalArgumentException("no entry in the catalog has any weight");}
+
+        double[] weights = new double[chosen.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = chosen.get(i).getWeight();
+        }
+        entries = chosen;
+        table = new AliasTable(weights);
+    }
+
+    /**
+       Returns the number of entries that can be picked.
+       @return number of entries
+     */
+    public int size() {return entries.size();}
+
+    /**
+       Picks an entry at random.
+       @param random random stream to draw from
+       @return the entry
+     */
+    public T next(GameRandom random) {return entries.get(table.next(random));}
+}
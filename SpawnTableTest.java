@@ -0,0 +1,72 @@
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AliasTable and SpawnTable: picks must follow the weights, and respect depth ranges.
+ */
+public class SpawnTableTest
+{
+    @Test
+    public void testAliasTableFollowsWeights()
+    {
+        double[] weights = {1, 0, 3, 6};
+        AliasTable table = new AliasTable(weights);
+        GameRandom random = new GameRandom(1);
+        int[] counts = new int[weights.length];
+        int picks = 100000;
+        for (int i = 0; i < picks; i++) {
+            counts[table.next(random)]++;
+        }
+        assertEquals(0, counts[1]);
+        assertEquals(0.1, counts[0] / (double) picks, 0.01);
+        assertEquals(0.3, counts[2] / (double) picks, 0.01);
+        assertEquals(0.6, counts[3] / (double) picks, 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAliasTableNeedsWeight()
+    {
+        new AliasTable(new double[] {0, 0});
+    }
+
+    @Test
+    public void testSpawnTableRespectsDepth()
+    {
+        List<PossibleArmor> catalog = Arrays.asList(new PossibleArmor("robe", 1, '[', 10, 1, 2),
+                                                    new PossibleArmor("mail", 7, '[', 10, 3, Spawnable.NO_MAX_DEPTH),
+                                                    new PossibleArmor("nothing", 0, '[', 0, 1, 9));
+        GameRandom random = new GameRandom(2);
+        SpawnTable<PossibleArmor> shallow = new SpawnTable<>(catalog, 1);
+        SpawnTable<PossibleArmor> deep = new SpawnTable<>(catalog, 30);
+        assertEquals(1, shallow.size());
+        assertEquals(1, deep.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("robe", shallow.next(random).getName());
+            assertEquals("mail", deep.next(random).getName());
+        }
+
+        // nothing is meant for depth 0, so everything with a weight can turn up
+        assertEquals(2, new SpawnTable<>(catalog, 0).size());
+    }
+
+    @Test
+    public void testListColumnsAreOptional()
+    {
+        Catalog previous = Generator.getCatalog();
+        try {
+            Generator.readMonsters(Arrays.asList("giant rat,20,4,0,20,r,5,1,1", "kobold,40,8,1,60,k"));
+            Generator.readItems(Arrays.asList("weapon,club,-5,15,)", "armor,robe,1,[,,2"));
+            GameRandom random = new GameRandom(3);
+            Generator deep = new Generator(2, random);
+            for (int i = 0; i < 50; i++) {
+                assertEquals("kobold", deep.generateMonster().getName()); // the rat stays on the first level
+            }
+            assertEquals("robe", deep.generateArmor().getName());
+            assertEquals("robe", new Generator(1, random).generateArmor().getName()); // only armor there is
+        } finally {
+            Generator.useCatalog(previous);
+        }
+    }
+}
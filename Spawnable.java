@@ -0,0 +1,15 @@
+/**
+   Spawnable
+   Something listed in a spawn table: how often it turns up, relative to the others, and at which depths.
+ */
+
+public interface Spawnable {
+
+    int DEFAULT_WEIGHT = 10;              // weight of an entry that gives none
+    int NO_MAX_DEPTH = Integer.MAX_VALUE; // deepest depth of an entry that gives none
+
+    // getters
+    int getWeight();
+    int getMinDepth();
+    int getMaxDepth();
+}
@@ -0,0 +1,36 @@
+/**
+   TextEvent
+   A GameEvent that is simply a line of text.
+ */
+
+import java.util.List;
+
+public class TextEvent extends GameEvent {
+
+    private final String text;
+    private final int verbosity; // level of detail needed for this line to be shown
+
+    /**
+       Constructor, for a line that is always shown.
+       @param text Line of text
+     */
+    public TextEvent(String text) {
+        this(text, NORMAL);
+    }
+
+    /**
+       Constructor.
+       @param text Line of text
+       @param verbosity Level of detail needed for this line to be shown
+     */
+    public TextEvent(String text, int verbosity) {
+        this.text = text;
+        this.verbosity = verbosity;
+    }
+
+    public void render(int verbosity, List<String> lines) {
+        if (this.verbosity <= verbosity) {lines.add(text);}
+    }
+
+    @Override public String toString() {return text;}
+}
@@ -1,6 +1,7 @@
 /**
    This class represents the most basic position of an element in the game, each level is made up of an array of tiles,
    and any in-game element (player, item, bad guy, etc...) will stand/walk/sit on a tile.
+   The contents of a Tile are stored compactly in its Level's LevelGrid; a Tile is just a view onto one cell of it.
   
    @author Simranjit Singh
  */
@@ -8,77 +9,88 @@
 import java.io.Serializable;
  
 public class Tile implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     // character representations of features in a tile
     public static final char SYMBOL_FLOOR       = '.';
     public static final char SYMBOL_WALL        = '#';
     public static final char SYMBOL_STAIRS_DOWN = '>';
+    public static final char SYMBOL_STAIRS_UP   = '<';
     public static final char SYMBOL_GOLD        = '$';
 
-    // constants for what feature is in a tile
-    private static final int FEATURE_NONE        = 0;
-    private static final int FEATURE_WALL        = 1;
-    private static final int FEATURE_STAIRS_DOWN = 2;
-
-    // Instance variables
-    private int feature;
-    private Creature creature;
-    private Item item;
-    private int gold;
+    // Instance variables: the grid holding this Tile's contents, and where in that grid it is
+    private final LevelGrid grid;
+    private final int index;
 
     /**
        Default Constructor.
-       This will create a wall in a space by default; nothing else is placed.
+       This will create a stand-alone wall in a space by default; nothing else is placed.
      */
     public Tile() {
-        feature = FEATURE_WALL;
-        creature = null;
-        item = null;
-        gold = 0;
+        this(new LevelGrid(1, 1), 0);
     } //end of default constructor
 
+    /**
+       Constructor for a Tile that is part of a Level.
+       The Tile holds no state of its own; it reads and writes the given cell of the grid.
+       @param grid grid holding the contents of the Level
+       @param index index of this Tile's cell in the grid
+     */
+    public Tile(LevelGrid grid, int index) {
+        this.grid = grid;
+        this.index = index;
+    }
+
     // getters
-    public Creature getCreature() {return creature;}
-    public Item getItem() {return item;}
-    public int getGold() {return gold;}
+    public Creature getCreature() {return grid.getCreature(index);}
+    public Item getItem() {return grid.getItem(index);}
+    public int getGold() {return grid.getGold(index);}
 
     // setters
-    public void setCreature(Creature creature) {this.creature = creature;}
-    public void setItem(Item item) {this.item = item;}
-    public void setGold(int gold) {this.gold = gold;}
+    public void setCreature(Creature creature) {grid.setCreature(index, creature);}
+    public void setItem(Item item) {grid.setItem(index, item);}
+    public void setGold(int gold) {grid.setGold(index, gold);}
     public void setDownStairs() {
         if (!isWall()) {
-            feature = FEATURE_STAIRS_DOWN;
+            grid.setFeature(index, LevelGrid.FEATURE_STAIRS_DOWN);
         } else { // not allowed to put stairs on a tile with a wall
             System.err.println("ERROR: cannot place stairs down on the same square as a wall");
         }
     }
+    public void setUpStairs() {
+        if (!isWall()) {
+            grid.setFeature(index, LevelGrid.FEATURE_STAIRS_UP);
+        } else { // not allowed to put stairs on a tile with a wall
+            System.err.println("ERROR: cannot place stairs up on the same square as a wall");
+        }
+    }
 
     /**
        Checks if the current Tile contains a wall.
        @return true if Tile contains a wall, else false
      */
-    public boolean isWall() {return (feature == FEATURE_WALL);}
+    public boolean isWall() {return grid.isWall(index);}
 
     /**
        Checks if the current Tile contains stairs down.
        @return true if Tile contains stairs down, else false
      */
-    public boolean hasDownStairs() {return (feature == FEATURE_STAIRS_DOWN);}
+    public boolean hasDownStairs() {return (grid.getFeature(index) == LevelGrid.FEATURE_STAIRS_DOWN);}
+    public boolean hasUpStairs() {return (grid.getFeature(index) == LevelGrid.FEATURE_STAIRS_UP);}
 
     /**
        Checks if the current Tile contains a creature.
        @author Stephen S. Lee
        @return true if Tile contains a creature, else false
      */
-    public boolean hasCreature() {return creature != null;}
+    public boolean hasCreature() {return grid.hasCreature(index);}
 
     /**
        Checks if the current Tile contains an Item.
        @author Stephen S. Lee
        @return true if Tile contains an Item, else false
      */
-    public boolean hasItem() {return item != null;}
+    public boolean hasItem() {return grid.hasItem(index);}
 
     /**
        Checks if the current Tile contains a Monster.
@@ -87,7 +99,7 @@ public class Tile implements Serializable {
      */
     public boolean hasMonster() {
         if (!hasCreature()) {return false;}
-        return (creature.isMonster());
+        return (getCreature().isMonster());
     }
 
     /**
@@ -95,14 +107,14 @@ public class Tile implements Serializable {
        @author Stephen S. Lee
        @return false if this Tile contains any feature, monster, or item; else true
      */
-    public boolean isEmpty() {return (feature == FEATURE_NONE && creature == null && item == null);}
+    public boolean isEmpty() {return grid.isEmpty(index);}
     
     /**
        Checks if the current Tile has gold.
        @author Stephen S. Lee
        @return true if this Tile contains any gold; else false
      */
-    public boolean hasGold() {return (gold > 0);}
+    public boolean hasGold() {return grid.hasGold(index);}
     
     /**
        Clears the wall in the Tile if there is one
@@ -110,7 +122,7 @@ public class Tile implements Serializable {
        @author Stephen S. Lee
      */
     public void createSpace() {
-        if (feature == FEATURE_WALL) {feature = FEATURE_NONE;}
+        if (isWall()) {grid.setFeature(index, LevelGrid.FEATURE_NONE);}
     }
 
     /**
@@ -118,19 +130,18 @@ public class Tile implements Serializable {
        @author Stephen S. Lee
        @return The character that this Tile should display.
      */
-    public char getSymbol() {
-        if (isWall()) { // a wall covers up anything else in a Tile
-            return SYMBOL_WALL;
-        } else if (hasCreature()) { // a Creature stands on top of other stuff in a Tile
-            return creature.getSymbol();
-        } else if (hasItem()) { // an Item sits on top of gold and stairs
-            return item.getSymbol();
-        } else if (hasGold()) {
-            return SYMBOL_GOLD;
-        } else if (hasDownStairs()) {
-            return SYMBOL_STAIRS_DOWN;
-        }
-        return SYMBOL_FLOOR; // empty accessible ground
+    public char getSymbol() {return grid.getSymbol(index);}
+
+    /**
+       Two Tiles are equal if they are views of the same cell of the same Level.
+       @return true if and only if obj is a Tile for the same cell
+     */
+    @Override public boolean equals(Object obj) {
+        if (!(obj instanceof Tile)) {return false;}
+        Tile tile = (Tile) obj;
+        return (grid == tile.grid && index == tile.index);
     }
 
+    @Override public int hashCode() {return index;}
+
 }//end of class Tile
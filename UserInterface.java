@@ -6,7 +6,6 @@
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
@@ -17,10 +16,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.ArrayList;
 import javax.swing.AbstractAction;
 import javax.swing.ActionMap;
 import javax.swing.BoxLayout;
@@ -39,7 +35,7 @@ public class UserInterface extends JFrame {
     // Constants for UI
     private static final int MESSAGE_ROWS    = 10;  // height of message box
     private static final int MESSAGE_COLUMNS = 80;  // width of message box
-    private static final int MAX_MESSAGES    = 200; // maximum number of messages to be displayed in message box
+    private static final int MAX_MESSAGES    = 100000; // maximum number of messages kept in the message history
     private static final int TEXT_HEIGHT     = 20;  // height of a text box in the info area
     private static final int TEXT_WIDTH      = 340; // width of a text box in the info area
 
@@ -64,8 +60,9 @@ public class UserInterface extends JFrame {
     private static final int GAME_OVER_ESCAPED = 3; // hero escaped from the last level
 
     // These instance variables are here so methods can access and manipulate them
-    private JTextArea map;
-    private JTextArea messageText;
+    private MapPanel map;
+    private Viewport view; // what the map currently shows
+    private MessageLogPanel messageText;
     private JPanel info;
     private JTextField nameLine;
     private JTextField hpLine;
@@ -84,16 +81,18 @@ public class UserInterface extends JFrame {
 
     private int action; // remembering which current action the player is taking
     private transient MessageQueue messages; // message queue
-    private LinkedList<String> messagesDisplayed; // messages actually displayed
-    private int displayed; // number of messages currently displayed
+    private MessageLog messagesDisplayed; // history of messages displayed
+    private final ArrayList<GameEvent> incoming = new ArrayList<>(); // messages just taken from the queue
+    private final ArrayList<String> lines = new ArrayList<>(); // text of those messages
+    private int verbosity = GameEvent.NORMAL; // level of detail in messages
     private GamePlay gameplay; // gameplay object
 
     /**
        UserInterface constructor
        Instance variables:
          JPanel display            -- the entire window
-         JTextArea map             -- area for displaying the visible part of the current Level (in CENTER)
-         JTextArea messageText     -- area for displaying game messages (in SOUTH)
+         MapPanel map              -- grid for displaying the visible part of the current Level (in CENTER)
+         MessageLogPanel messageText -- area for displaying game messages (in SOUTH)
          JScrollPane messagePane   -- messageText wrapped in a JScrollPane
          JPanel info               -- area for displaying player information (in EAST)
          JTextArea helpText        -- area for displaying help (in WEST)
@@ -110,33 +109,26 @@ public class UserInterface extends JFrame {
          JTextArea inventoryText   -- area for playing inventory (in info)
          JScrollPane inventoryPane -- inventoryText wrapped in a JScrollPane
        @author Stephen S. Lee (ssjlee@rawbw.com, ID#010013627)
+       @precondition the monster and item lists have been read (see Generator.useCatalog)
        @param name The name of the player, from the introduction window
-       @param monsterList List of monster statistics, comma-delimited
-       @param itemList List of items statistics, comma-delimited
      */
-    public UserInterface(String name, List<String> monsterList, List<String> itemList) {
+    public UserInterface(String name) {
         action = ACTION_NONE; // no initial action
-        Generator.readMonsters(monsterList); // read monster list
-        Generator.readItems(itemList); // read item list
 
         // Create main display
         JPanel display = new JPanel();
         display.setLayout(new BorderLayout());
 
-        // Main display: text map (with monospaced text)
-        map = new JTextArea(MAP_SIZE, MAP_SIZE);
-        map.setEditable(false);
+        // Main display: grid of map symbols (monospaced, and larger than the other text)
+        map = new MapPanel(MAP_SIZE, new Font(Font.MONOSPACED, Font.PLAIN, 14));
         map.setFocusable(false); // corrects bug preventing keybinding from working
-        map.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14)); // make the symbols on the map larger
-        map.setBackground(Color.BLACK); // make the map a constrasting color
-        map.setForeground(Color.WHITE);
         display.add(map, BorderLayout.CENTER);
+        view = new Viewport(MAP_SIZE);
 
-        // Message display: text panel (with proportional text)
-        messageText = new JTextArea(MESSAGE_ROWS, MESSAGE_COLUMNS);
-        messageText.setEditable(false);
+        // Message display: message history (with proportional text); only the visible rows are drawn
+        messagesDisplayed = new MessageLog(MAX_MESSAGES);
+        messageText = new MessageLogPanel(messagesDisplayed, MESSAGE_ROWS, MESSAGE_COLUMNS, SANS_SERIF);
 		messageText.setFocusable(false); // corrects bug preventing keybinding from working
-        messageText.setFont(SANS_SERIF);
 
         // messagePane: messageText with vertical scroll bars
         JScrollPane messagePane = new JScrollPane(messageText);
@@ -207,23 +199,20 @@ public class UserInterface extends JFrame {
         setResizable(false);
         setTitle("CS 151 Game Project");
 
-        messages = new MessageQueue();              // message queue
-        Thread queueThread = new Thread(messages);  // thread for queue
-        queueThread.start();                        // start thread
-        
-        messagesDisplayed = new LinkedList<>(); // message currently actually displayed
-        displayed = 0;                          // size of messagesDisplayed
+        messages = new MessageQueue(); // message queue, drained into messagesDisplayed by updateUI
 
         final File savefile = new File(name + ".sav");
         if(savefile.exists() && !savefile.isDirectory()) { // a save file exists, load it
             try {
-                ObjectInputStream reader = new ObjectInputStream(
-                                           new FileInputStream(savefile));
-                gameplay = (GamePlay) reader.readObject();
-                reader.close();
+                SaveReader reader = new SaveReader(new FileInputStream(savefile));
+                try {
+                    gameplay = GamePlay.load(reader);
+                } finally {
+                    reader.close();
+                }
                 messages.add("Welcome back, " + gameplay.getHeroName() + "!");
             } catch (IOException ex) {
-                System.err.println("ERROR: cannot read save file, creating brand new character");
+                System.err.println("ERROR: cannot read save file (" + ex.getMessage() + "), creating brand new character");
                 gameplay = new GamePlay(name);
                 messages.add("Welcome, " + gameplay.getHeroName() + "!");
             } catch (Exception ex) {
@@ -237,6 +226,7 @@ public class UserInterface extends JFrame {
         }
 
         gameplay.setMessageQueue(messages);   // Share the message queue with gameplay
+        gameplay.setBackgroundGeneration(true); // have the next level ready by the time the stairs are found
 
         updateUI(); // Display starting map and other statistics
 
@@ -247,6 +237,7 @@ public class UserInterface extends JFrame {
                        + Tile.SYMBOL_FLOOR + " -- empty floor\n"
                        + Tile.SYMBOL_WALL + " -- a wall\n"
                        + Tile.SYMBOL_STAIRS_DOWN + " -- stairs to the next level\n"
+                       + Tile.SYMBOL_STAIRS_UP + " -- stairs back to the previous level\n"
                        + ") -- a weapon\n"
                        + "[ -- an armor\n"
                        + Tile.SYMBOL_GOLD + " -- a pile of gold pieces\n"
@@ -257,11 +248,13 @@ public class UserInterface extends JFrame {
                        + "(moving directly into a monster will perform an attack upon it)\n"
                        + ". (period) -- pass a turn\n"
                        + "> -- go down a staircase leading down\n"
+                       + "< -- go up a staircase leading up\n"
                        + ", (comma) -- pick up gold and items\n"
                        + "d -- drop an item from your backpack\n"
                        + "E -- equip a weapon or armor\n"
                        + "Q -- quit the game (confirm with '@')\n"
-                       + "S -- save the game (confirm with '@')");
+                       + "S -- save the game (confirm with '@')\n"
+                       + "V -- show or hide combat details");
 
         // Create keybinding maps: input map and action map
         imap = display.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
@@ -379,6 +372,15 @@ public class UserInterface extends JFrame {
                         messages.add("Do you really want to quit?  Type '@' to confirm.");
                         action = ACTION_QUIT;
                     break;
+                    case 'V':
+                        if (verbosity == GameEvent.NORMAL) {
+                            verbosity = GameEvent.VERBOSE;
+                            messages.add("Combat details will now be shown.");
+                        } else {
+                            verbosity = GameEvent.NORMAL;
+                            messages.add("Combat details will no longer be shown.");
+                        }
+                    break;
                     case 'S':
                         messages.add("Do you really want to save your game and leave?");
                         messages.add("Type '@' to confirm.");
@@ -452,6 +454,16 @@ public class UserInterface extends JFrame {
             }
         });
 
+        // '<' (go up stairs)
+        imap.put(getKey('<'), "ascend stairs");
+        amap.put("ascend stairs", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                gameplay.ascendStairs();
+                updateUI();
+                action = ACTION_NONE;
+            }
+        });
+
         // ',' (pick up stuff that's on the dungeon floor)
         imap.put(getKey(','), "get");
         amap.put("get", new AbstractAction() {
@@ -472,10 +484,12 @@ public class UserInterface extends JFrame {
                     break;
                     case ACTION_SAVE: // save command confirmed
                         try {
-                            ObjectOutputStream writer = new ObjectOutputStream(
-                                                        new FileOutputStream(savefile));
-                            writer.writeObject(gameplay);
-                            writer.close();
+                            SaveWriter writer = new SaveWriter(new FileOutputStream(savefile), true);
+                            try {
+                                gameplay.save(writer);
+                            } finally {
+                                writer.close();
+                            }
                             gameOver(GAME_OVER_SAVED);
                         } catch (FileNotFoundException ex) {
                             System.err.println("ERROR: " + ex);
@@ -527,34 +541,34 @@ public class UserInterface extends JFrame {
         inventoryText.setText(gameplay.getHeroInventory());
     }
 
+    /**
+       Updates the map display.
+       Only the cells that changed since the last update are redrawn.
+     */
+    public void updateMap() {
+        gameplay.updateView(view);
+        map.update(view);
+    }
+
     /**
        Updates both the info pane and the map display.
        Also ends the game if appropriate.
        @author Stephen S. Lee
      */
     public void updateUI() {
-        map.setText(gameplay.getView()); // update map
-        updateInfo();                    // update info panel
-
-        while (!messages.isEmpty()) {
-            messagesDisplayed.add(messages.getFirst());
-            if (++displayed > MAX_MESSAGES ) { // remove oldest messages from list of displayed messages once there are too many
-                messagesDisplayed.removeFirst();
-                displayed--;
-            }
-        }
+        updateMap();  // update map
+        updateInfo(); // update info panel
 
-        // Construct message window text
-        StringBuilder messageOutput = new StringBuilder(MAX_MESSAGES * 20);
-        for (String i : messagesDisplayed) {
-            messageOutput.append(i);
-            messageOutput.append("\n");
+        messages.drainTo(incoming); // take everything waiting in one go
+        for (GameEvent event : incoming) {
+            event.render(verbosity, lines); // messages only become text here
         }
-
-        messageText.setText(messageOutput.toString()); // let messageText know about it all
-
-        // This command causes the messagePane to automatically scroll to the bottom
-        messageText.setCaretPosition(messageText.getDocument().getLength());
+        for (String line : lines) { // the oldest messages drop out of the history once it is full
+            messagesDisplayed.add(line);
+        }
+        incoming.clear();
+        lines.clear();
+        messageText.messagesAdded(); // show the new messages, scrolling to the bottom
 
         if (gameplay.isHeroDead()) { // end the game if hero died
             gameOver(GAME_OVER_DIED);
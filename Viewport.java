@@ -0,0 +1,172 @@
+/**
+   Viewport
+   The part of a Level currently on display, remembered from one frame to the next so that a display only needs to
+   redraw what has actually changed.
+
+   Each update works out which cells of the view differ from the previous frame:
+     - if the view is still centered on the same location, only the locations the Level reports as changed are
+       looked at, so the cost of a frame depends on how much happened rather than on the size of the view;
+     - if the view has moved, every cell is recomputed (everything shifts), but only cells whose symbol actually
+       differs are reported, which leaves out the large stretches of wall and floor that look the same;
+     - if the Level itself is different (or this is the first frame), everything is reported.
+   If a FieldOfView is supplied, only what it marks as visible is shown as it is; elsewhere, what the Hero remembers
+   of the Level (its ExploredMap) is shown, marked as remembered so a display can dim it.  When what the FieldOfView
+   sees changes, every cell is compared again.
+ */
+
+public class Viewport {
+
+    private final int size;      // number of rows and columns of the view
+    private static final int REMEMBERED = 0x10000; // set in a cell of the frame if it shows a remembered symbol
+
+    private final int[] frame;   // symbols currently displayed, row by row, with the REMEMBERED flag
+    private final int[] changed; // cells of the view that changed in the last update
+    private int changedCount;
+    private boolean full;        // true if the last update redrew everything
+
+    // what the current frame shows
+    private Level level;
+    private int centerRow;
+    private int centerColumn;
+    private FieldOfView sight;   // null if everything is shown
+    private int sightVersion;
+
+    /**
+       Constructor.
+       @param size Number of rows and columns in the view (normally MAP_SIZE)
+     */
+    public Viewport(int size) {
+        this.size = size;
+        frame = new int[size * size];
+        changed = new int[size * size];
+    }
+
+    // getters
+    public int getSize() {return size;}
+    public char getSymbol(int cell) {return (char) frame[cell];}
+    public char getSymbol(int row, int column) {return (char) frame[row * size + column];}
+    public boolean isRemembered(int cell) {return (frame[cell] & REMEMBERED) != 0;} // out of sight, from memory
+
+    /**
+       Returns the number of cells of the view that changed in the last update.
+       @return number of changed cells
+     */
+    public int getChangedCount() {return changedCount;}
+
+    /**
+       Returns one of the cells that changed in the last update, as row * getSize() + column.
+       @param i which change, from 0 to getChangedCount() - 1
+       @return the changed cell
+     */
+    public int getChanged(int i) {return changed[i];}
+
+    /**
+       Checks if the last update redrew the whole view.
+       When this is true, a display should simply redraw everything.
+       @return true if every cell was reported as changed
+     */
+    public boolean isFull() {return full;}
+
+    /**
+       Brings the view up to date with a Level.
+       @param newLevel Level being displayed
+       @param r row to center the view around
+       @param c column to center the view around
+       @return number of cells that changed
+     */
+    public int update(Level newLevel, int r, int c) {return update(newLevel, r, c, null);}
+
+    /**
+       Brings the view up to date with a Level, showing only what can be seen.
+       @param newLevel Level being displayed
+       @param r row to center the view around
+       @param c column to center the view around
+       @param fov what can be seen, already computed; null to show everything
+       @return number of cells that changed
+     */
+    public int update(Level newLevel, int r, int c, FieldOfView fov) {
+        changedCount = 0;
+        full = false;
+        boolean sightChanged = (fov != sight || (fov != null && fov.getVersion() != sightVersion));
+        sight = fov;
+        if (fov != null) {sightVersion = fov.getVersion();}
+        if (newLevel != level) { // new level: start from scratch
+            if (level != null) {level.setTrackChanges(false);}
+            level = newLevel;
+            level.setTrackChanges(true);
+            centerRow = r;
+            centerColumn = c;
+            full = true;
+            for (int cell = 0; cell < frame.length; cell++) {
+                frame[cell] = cellAt(cell);
+                changed[changedCount++] = cell;
+            }
+        } else if (r != centerRow || c != centerColumn || sightChanged) { // view has shifted: compare every cell
+            centerRow = r;
+            centerColumn = c;
+            for (int cell = 0; cell < frame.length; cell++) {
+                refresh(cell);
+            }
+        } else { // same view: only look at what the level says has changed
+            int columns = level.getColumnSize();
+            int top = centerRow - (size / 2);
+            int left = centerColumn - (size / 2);
+            for (int i = 0; i < level.getChangeCount(); i++) {
+                int location = level.getChange(i);
+                int row = location / columns - top;
+                int column = location % columns - left;
+                if (row >= 0 && row < size && column >= 0 && column < size) {
+                    refresh(row * size + column);
+                }
+            }
+        }
+        level.clearChanges();
+        return changedCount;
+    }
+
+    /**
+       Recomputes a single cell of the view, and notes it if it changed.
+       @param cell cell of the view, as row * getSize() + column
+     */
+    private void refresh(int cell) {
+        int shown = cellAt(cell);
+        if (frame[cell] != shown) {
+            frame[cell] = shown;
+            changed[changedCount++] = cell;
+        }
+    }
+
+    /**
+       Works out what a cell of the view should show.
+       @param cell cell of the view, as row * getSize() + column
+       @return the symbol at that cell, with the REMEMBERED flag if it is out of sight; a blank space is space off the
+               map, or out of sight and never seen
+     */
+    private int cellAt(int cell) {
+        int r = centerRow - (size / 2) + cell / size;
+        int c = centerColumn - (size / 2) + cell % size;
+        if (r < 0 || r >= level.getRowSize() || c < 0 || c >= level.getColumnSize()) {
+            return ' ';
+        }
+        if (sight != null && !sight.isVisible(r, c)) { // out of sight
+            char remembered = level.getExploredMap().getSymbol(r * level.getColumnSize() + c);
+            return (remembered == ' ' ? ' ' : remembered | REMEMBERED);
+        }
+        return level.getSymbol(r, c);
+    }
+
+    /**
+       Returns the whole view as text, with a newline at the end of each row, the same as Level.viewMap.
+       @return String representation of the view
+     */
+    @Override public String toString() {
+        StringBuilder representation = new StringBuilder(size * (size + 1));
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                representation.append((char) frame[i * size + j]);
+            }
+            representation.append('\n');
+        }
+        return representation.toString();
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.Test;
+import utils.GameFunctions;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for Viewport: it must always agree with Level.viewMap, while reporting only what changed.
+ */
+public class ViewportTest
+{
+    @Test
+    public void testFirstUpdateIsFull() throws Exception
+    {
+        Level level = new Level(GameFunctions.ROW_SIZE, GameFunctions.COLUMN_SIZE);
+        int[] center = level.getEmptyTile();
+        Viewport view = new Viewport(GameFunctions.MAP_SIZE);
+        int changes = view.update(level, center[0], center[1]);
+        assertTrue(view.isFull());
+        assertEquals(GameFunctions.MAP_SIZE * GameFunctions.MAP_SIZE, changes);
+        assertEquals(level.viewMap(center[0], center[1]), view.toString());
+    }
+
+    @Test
+    public void testOnlyChangedCellsReported() throws Exception
+    {
+        Level level = new Level(GameFunctions.ROW_SIZE, GameFunctions.COLUMN_SIZE);
+        int[] center = level.getEmptyTile();
+        Viewport view = new Viewport(GameFunctions.MAP_SIZE);
+        view.update(level, center[0], center[1]);
+
+        assertEquals(0, view.update(level, center[0], center[1])); // nothing happened
+
+        level.getTile(center).setGold(10);
+        assertEquals(1, view.update(level, center[0], center[1]));
+        assertFalse(view.isFull());
+        int middle = (GameFunctions.MAP_SIZE / 2) * GameFunctions.MAP_SIZE + GameFunctions.MAP_SIZE / 2;
+        assertEquals(middle, view.getChanged(0));
+        assertEquals(Tile.SYMBOL_GOLD, view.getSymbol(middle));
+        assertEquals(level.viewMap(center[0], center[1]), view.toString());
+    }
+
+    @Test
+    public void testShiftedViewMatchesViewMap() throws Exception
+    {
+        Level level = new Level(GameFunctions.ROW_SIZE, GameFunctions.COLUMN_SIZE);
+        int[] center = level.getEmptyTile();
+        Viewport view = new Viewport(GameFunctions.MAP_SIZE);
+        view.update(level, center[0], center[1]);
+        view.update(level, center[0] + 1, center[1] - 1);
+        assertEquals(level.viewMap(center[0] + 1, center[1] - 1), view.toString());
+    }
+
+    @Test
+    public void testOnlyVisibleCellsShown() throws Exception
+    {
+        Level level = new Level(GameFunctions.ROW_SIZE, GameFunctions.COLUMN_SIZE);
+        int[] center = level.getEmptyTile();
+        FieldOfView fov = new FieldOfView(GameFunctions.MAP_SIZE / 2);
+        fov.compute(level, center[0], center[1]);
+        Viewport view = new Viewport(GameFunctions.MAP_SIZE);
+        view.update(level, center[0], center[1], fov);
+        int half = GameFunctions.MAP_SIZE / 2;
+        int hidden = 0;
+        for (int r = 0; r < GameFunctions.MAP_SIZE; r++) {
+            for (int c = 0; c < GameFunctions.MAP_SIZE; c++) {
+                int lr = center[0] - half + r;
+                int lc = center[1] - half + c;
+                boolean seen = fov.isVisible(lr, lc);
+                if (!seen) {hidden++;}
+                assertEquals((seen ? level.getSymbol(lr, lc) : ' '), view.getSymbol(r, c));
+            }
+        }
+        assertTrue(hidden > 0); // at the very least, the corners are out of sight
+    }
+}
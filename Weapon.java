@@ -6,9 +6,9 @@
 import java.io.Serializable;
  
 public class Weapon extends Item implements Equippable, Serializable {
+    private static final long serialVersionUID = 1L;
 
-	private int accuracy;
-	private int damage;
+	private PossibleWeapon template; // kind of Weapon this is
 
     /**
        Default constructor.
@@ -26,19 +26,16 @@ public class Weapon extends Item implements Equippable, Serializable {
     public static Weapon createWeapon(PossibleWeapon pw) {
         // Generate a Weapon from the indicated PossibleWeapon
         Weapon weapon = new Weapon();
-        weapon.setName(pw.getName());
-        weapon.setAccuracy(pw.getAccuracy());
-        weapon.setDamage(pw.getDamage());
-        weapon.setSymbol(pw.getSymbol());
+        weapon.template = pw;
         return weapon;
     }
 
     // getters
-	public int getAccuracy() {return accuracy;}
-    public int getDamage() {return damage;}
-
-    // setters - for factory use only
-    private void setAccuracy(int accuracy) {this.accuracy = accuracy;}
-    private void setDamage(int damage) {this.damage = damage;}
+    public PossibleWeapon getTemplate() {return template;}
+    public int getTemplateId() {return template.getId();}
+    public String getName() {return template.getName();}
+    public char getSymbol() {return template.getSymbol();}
+	public int getAccuracy() {return template.getAccuracy();}
+    public int getDamage() {return template.getDamage();}
 
 }
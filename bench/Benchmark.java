@@ -0,0 +1,85 @@
+/**
+   Benchmark
+   A small timing harness for the game's hot paths; see GameBenchmarks for the actual cases.
+   Each benchmark is warmed up first, then timed over several fixed-length iterations, reporting the average
+   time per operation and its spread across iterations.
+   Results of every operation are folded into a sink so the JIT cannot discard the work being measured.
+ */
+
+public abstract class Benchmark {
+
+    private static final int WARMUP_ITERATIONS  = 5;   // untimed iterations, to let the JIT settle
+    private static final int MEASURE_ITERATIONS = 10;  // timed iterations
+    private static final long ITERATION_NANOS   = 200L * 1000 * 1000; // length of one iteration (200 ms)
+
+    private static long sink; // everything measured ends up here
+
+    private final String name;
+
+    /**
+       Constructor.
+       @param name Name this benchmark is reported under
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {return name;}
+
+    /**
+       Prepares state for one iteration; not timed.
+       Override this if an operation consumes its state (for example, by killing a monster).
+     */
+    protected void setup() throws Exception {}
+
+    /**
+       The operation being measured.
+       @return any value derived from the work done, to be folded into the sink
+     */
+    protected abstract long op() throws Exception;
+
+    /**
+       Runs one iteration and returns its average time per operation.
+       @return nanoseconds per operation
+     */
+    private double iteration() throws Exception {
+        setup();
+        long ops = 0;
+        long start = System.nanoTime();
+        long deadline = start + ITERATION_NANOS;
+        long now;
+        do {
+            sink += op();
+            ops++;
+        } while ((now = System.nanoTime()) < deadline);
+        return (double) (now - start) / ops;
+    }
+
+    /**
+       Warms up and measures this benchmark.
+       @return {mean, standard deviation} of nanoseconds per operation over the measured iterations
+     */
+    public double[] measure() throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration();
+        }
+        double[] samples = new double[MEASURE_ITERATIONS];
+        double sum = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            samples[i] = iteration();
+            sum += samples[i];
+        }
+        double mean = sum / MEASURE_ITERATIONS;
+        double squares = 0;
+        for (double s : samples) {
+            squares += (s - mean) * (s - mean);
+        }
+        return new double[] {mean, Math.sqrt(squares / (MEASURE_ITERATIONS - 1))};
+    }
+
+    /**
+       Returns the sink, so that it is observably used.
+       @return the accumulated sink value
+     */
+    public static long getSink() {return sink;}
+}
@@ -0,0 +1,315 @@
+/**
+   GameBenchmarks
+   Timing coverage for the game's hot paths, to catch performance regressions before they ship.
+   Compile together with the game sources and run from the directory holding the monster and item lists:
+
+   javac -cp [path to utils] -d out *.java bench/*.java
+   java -cp out:[path to utils] GameBenchmarks [name filter]
+
+   Only benchmarks whose name contains the filter (if given) are run.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import static utils.GameFunctions.*;
+
+public class GameBenchmarks {
+
+    private static final String MONSTER_LIST = "monster-list.txt";
+    private static final String ITEM_LIST    = "item-list.txt";
+    private static final long SEED           = 151; // every benchmark starts from the same state
+
+    private static List<String> monsterLines;
+    private static List<String> itemLines;
+
+    /**
+       Builds the list of all benchmarks.
+       @return every benchmark, in reporting order
+     */
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<>();
+
+        list.add(new Benchmark("Level.<init>") {
+            private GameRandom random = new GameRandom(SEED);
+            protected long op() {
+                return new Level(ROW_SIZE, COLUMN_SIZE, random).getRowSize();
+            }
+        });
+
+        list.add(new Benchmark("Level.viewMap") {
+            private Level level;
+            private int[] center;
+            protected void setup() {
+                level = new Level(ROW_SIZE, COLUMN_SIZE, new GameRandom(SEED));
+                center = level.getEmptyTile();
+            }
+            protected long op() {
+                return level.viewMap(center[0], center[1]).length();
+            }
+        });
+
+        list.add(new Benchmark("Level.suggestMove") {
+            private Level level;
+            private int[] monster;
+            private int[] target;
+            protected void setup() {
+                level = new Level(ROW_SIZE, COLUMN_SIZE, new GameRandom(SEED));
+                monster = level.getEmptyTile();
+                level.getTile(monster).setCreature(new Generator(1, new GameRandom(SEED)).generateMonster());
+                target = level.getEmptyTile();
+            }
+            protected long op() {
+                return level.suggestMove(monster[0], monster[1], target[0], target[1])[0];
+            }
+        });
+
+        list.add(new Benchmark("Level.getEmptyTile") {
+            private Level level;
+            protected void setup() {
+                level = new Level(ROW_SIZE, COLUMN_SIZE, new GameRandom(SEED));
+            }
+            protected long op() {
+                return level.getEmptyTile()[0];
+            }
+        });
+
+        list.add(new Benchmark("FieldOfView.compute r=10") {
+            private Level level;
+            private FieldOfView fov = new FieldOfView(10, 0); // no cache: every call is worked out from scratch
+            private int[][] spots = new int[64][];
+            private int next;
+            protected void setup() {
+                level = new Level(ROW_SIZE, COLUMN_SIZE, new GameRandom(SEED));
+                for (int i = 0; i < spots.length; i++) {spots[i] = level.getEmptyTile();}
+            }
+            protected long op() {
+                int[] spot = spots[next++ & 63];
+                fov.compute(level, spot[0], spot[1]);
+                return fov.getVersion();
+            }
+        });
+
+        list.add(new Benchmark("FieldOfView.compute r=40") {
+            private Level level;
+            private FieldOfView fov = new FieldOfView(40, 0); // no cache: every call is worked out from scratch
+            private int[][] spots = new int[64][];
+            private int next;
+            protected void setup() {
+                level = new Level(ROW_SIZE, COLUMN_SIZE, new GameRandom(SEED));
+                for (int i = 0; i < spots.length; i++) {spots[i] = level.getEmptyTile();}
+            }
+            protected long op() {
+                int[] spot = spots[next++ & 63];
+                fov.compute(level, spot[0], spot[1]);
+                return fov.getVersion();
+            }
+        });
+
+        list.add(new Benchmark("Level chunked 10000x10000 walk") {
+            private static final int SIZE = 10000;
+            private final int row = 78 * LevelGrid.CHUNK_SIZE + LevelGrid.CHUNK_SIZE / 2; // corridor across the level
+            private Level level;
+            private FieldOfView fov = new FieldOfView(10, 0);
+            private int column;
+            protected void setup() {
+                level = Level.createChunked(SIZE, SIZE, new GameRandom(SEED));
+                column = 1;
+            }
+            protected long op() { // one step east: look around, and let go of what is left behind
+                if (++column == SIZE - 1) {column = 1;}
+                fov.compute(level, row, column);
+                level.keepNear(row, column, fov.getRadius());
+                return fov.getVisibleCount();
+            }
+        });
+
+        list.add(new Benchmark("GamePlay.moveMonsters") {
+            private GamePlay game;
+            protected void setup() {
+                game = new GamePlay("Benchmark Hero", new GameRandom(SEED));
+            }
+            protected long op() {
+                game.moveMonsters();
+                return game.getHeroHealth();
+            }
+        });
+
+        list.add(new Benchmark("GamePlay.moveMonsters r=10") {
+            private GamePlay game;
+            protected void setup() {
+                game = new GamePlay("Benchmark Hero", new GameRandom(SEED));
+                game.setActivityRadius(10);
+            }
+            protected long op() {
+                game.moveMonsters();
+                return game.getHeroHealth();
+            }
+        });
+
+        list.add(new Benchmark("Creature.attack") {
+            private GameRandom random = new GameRandom(SEED);
+            private Hero hero = new Hero("Benchmark Hero");
+            private Monster monster;
+            protected void setup() {
+                monster = new Generator(1, random).generateMonster();
+            }
+            protected long op() {
+                monster.setHealth(monster.getMaxHealth()); // keep the defender alive
+                return hero.attack(monster, random)[0];
+            }
+        });
+
+        list.add(new Benchmark("Creature.attack reused") {
+            private GameRandom random = new GameRandom(SEED);
+            private Hero hero = new Hero("Benchmark Hero");
+            private AttackResult result = new AttackResult();
+            private Monster monster;
+            protected void setup() {
+                monster = new Generator(1, random).generateMonster();
+            }
+            protected long op() {
+                monster.setHealth(monster.getMaxHealth()); // keep the defender alive
+                hero.attack(monster, random, result);
+                return result.getAccuracyRoll();
+            }
+        });
+
+        list.add(new Benchmark("Creature.attackAll 100") {
+            private GameRandom random = new GameRandom(SEED);
+            private Creature[] attackers = new Creature[100];
+            private Creature[] defenders = new Creature[100];
+            private int[] results = new int[100 * AttackResult.STRIDE];
+            protected void setup() {
+                Generator gen = new Generator(1, random);
+                for (int i = 0; i < 100; i++) {
+                    attackers[i] = new Hero("Benchmark Hero");
+                    defenders[i] = gen.generateMonster();
+                }
+            }
+            protected long op() {
+                for (int i = 0; i < 100; i++) {
+                    defenders[i].setHealth(defenders[i].getMaxHealth()); // keep the defenders alive
+                }
+                Creature.attackAll(attackers, defenders, 100, random, results);
+                return results[0];
+            }
+        });
+
+        list.add(new Benchmark("Hero.hasItem") {
+            private Hero hero = new Hero("Benchmark Hero");
+            private Item wanted;
+            protected void setup() {
+                Generator gen = new Generator(1, new GameRandom(SEED));
+                while (hero.addItem(gen.generateItem())) {} // fill the backpack
+                wanted = gen.generateItem();
+            }
+            protected long op() {
+                return (hero.hasItem(wanted) ? 1 : 0) + hero.getInventory().length();
+            }
+        });
+
+        list.add(new Benchmark("Generator.readMonsters") {
+            protected long op() {
+                Generator.readMonsters(monsterLines);
+                return 1;
+            }
+        });
+
+        list.add(new Benchmark("Generator.readItems") {
+            protected long op() {
+                Generator.readItems(itemLines);
+                return 1;
+            }
+        });
+
+        list.add(new Benchmark("CatalogLoader.load cached") {
+            private Path cache;
+            protected void setup() throws Exception {
+                cache = Files.createTempFile("catalog", ".cache");
+                cache.toFile().deleteOnExit();
+                Files.delete(cache); // so the first load writes it
+                CatalogLoader.load(Paths.get(MONSTER_LIST), Paths.get(ITEM_LIST), cache);
+            }
+            protected long op() throws Exception {
+                return CatalogLoader.load(Paths.get(MONSTER_LIST), Paths.get(ITEM_LIST), cache).getMonsters().size();
+            }
+        });
+
+        list.add(new Benchmark("SpawnTable.next 5000") {
+            private GameRandom random = new GameRandom(SEED);
+            private SpawnTable<PossibleMonster> table;
+            protected void setup() { // a catalog far bigger than the real one, to show picking doesn't depend on size
+                List<PossibleMonster> catalog = new ArrayList<>();
+                for (int i = 0; i < 5000; i++) {
+                    catalog.add(new PossibleMonster("monster " + i, 20, 4, 0, 20 + i, 'm', 1 + i % 50, 1 + i % 3,
+                                                    Spawnable.NO_MAX_DEPTH));
+                }
+                table = new SpawnTable<>(catalog, 2);
+            }
+            protected long op() {
+                return table.next(random).getHealth();
+            }
+        });
+
+        list.add(new Benchmark("GamePlay save") {
+            private GamePlay game;
+            protected void setup() {
+                game = new GamePlay("Benchmark Hero", new GameRandom(SEED));
+            }
+            protected long op() throws Exception {
+                return serialize(game).length;
+            }
+        });
+
+        list.add(new Benchmark("GamePlay load") {
+            private byte[] saved;
+            protected void setup() throws Exception {
+                saved = serialize(new GamePlay("Benchmark Hero", new GameRandom(SEED)));
+            }
+            protected long op() throws Exception {
+                SaveReader reader = new SaveReader(new ByteArrayInputStream(saved));
+                GamePlay game = GamePlay.load(reader);
+                reader.close();
+                return game.getDepth();
+            }
+        });
+
+        return list;
+    }
+
+    /**
+       Saves a game the same way UserInterface does, but into memory.
+       @param game The game to be saved
+       @return the saved bytes
+     */
+    private static byte[] serialize(GamePlay game) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaveWriter writer = new SaveWriter(bytes, true);
+        game.save(writer);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = (args.length > 0 ? args[0] : "");
+
+        monsterLines = Files.readAllLines(Paths.get(MONSTER_LIST), Charset.defaultCharset());
+        itemLines = Files.readAllLines(Paths.get(ITEM_LIST), Charset.defaultCharset());
+        Generator.readMonsters(monsterLines);
+        Generator.readItems(itemLines);
+
+        System.out.println(String.format("%-26s %14s %12s", "Benchmark", "ns/op", "error"));
+        for (Benchmark b : benchmarks()) {
+            if (!b.getName().contains(filter)) {continue;}
+            double[] result = b.measure();
+            System.out.println(String.format("%-26s %14.1f %12.1f", b.getName(), result[0], result[1]));
+        }
+        if (Benchmark.getSink() == 42) {System.out.println();} // keeps the sink alive
+    }
+}